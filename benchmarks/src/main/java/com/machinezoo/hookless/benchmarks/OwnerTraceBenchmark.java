@@ -0,0 +1,41 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.benchmarks;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+import com.machinezoo.hookless.*;
+import com.machinezoo.hookless.util.*;
+
+/*
+ * Cost of owner tracing in objects that are created for every reactive computation.
+ * Owner tracing mode is selected at startup, so every mode runs in its own fork with different system property.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class OwnerTraceBenchmark {
+	private final ReactiveThread parent = new ReactiveThread();
+	private ReactiveTrigger create() {
+		ReactiveScope scope = OwnerTrace.of(new ReactiveScope())
+			.parent(parent)
+			.target();
+		ReactiveTrigger trigger = OwnerTrace.of(new ReactiveTrigger())
+			.parent(parent)
+			.target();
+		trigger.arm(scope);
+		trigger.close();
+		return trigger;
+	}
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-Dhookless.ownertrace=enabled")
+	public ReactiveTrigger enabled() {
+		return create();
+	}
+	@Benchmark
+	@Fork(value = 1, jvmArgsAppend = "-Dhookless.ownertrace=disabled")
+	public ReactiveTrigger disabled() {
+		return create();
+	}
+}
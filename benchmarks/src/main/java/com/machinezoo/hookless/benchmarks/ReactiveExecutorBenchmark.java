@@ -0,0 +1,68 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.benchmarks;
+
+import java.lang.reflect.*;
+import java.util.concurrent.*;
+import java.util.concurrent.locks.*;
+import org.openjdk.jmh.annotations.*;
+import com.machinezoo.hookless.*;
+
+/*
+ * Throughput of reactive executor with platform and virtual threads.
+ * Every benchmark operation submits a batch of tasks and waits for all of them to complete.
+ * Tasks can optionally block for a while to simulate I/O in reactive computations.
+ * Virtual threads require Java 21 or newer. We compile against Java 17, so virtual thread factory is obtained via reflection.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReactiveExecutorBenchmark {
+	@Param({ "platform", "virtual" })
+	public String threads;
+	/*
+	 * How long every task blocks, in microseconds.
+	 */
+	@Param({ "0", "100" })
+	public int blocking;
+	@Param({ "1000" })
+	public int batch;
+	private ReactiveExecutor executor;
+	@Setup
+	public void setup() {
+		if (threads.equals("virtual")) {
+			/*
+			 * Parallelism is high enough to keep cores busy even if most tasks are blocked.
+			 */
+			executor = new ReactiveExecutor(256 * Runtime.getRuntime().availableProcessors(), virtualThreads());
+		} else
+			executor = new ReactiveExecutor();
+	}
+	private static ThreadFactory virtualThreads() {
+		try {
+			Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+			return (ThreadFactory)Class.forName("java.lang.Thread$Builder").getMethod("factory").invoke(builder);
+		} catch (ReflectiveOperationException ex) {
+			throw new UnsupportedOperationException("Virtual threads require Java 21 or newer.", ex);
+		}
+	}
+	@TearDown
+	public void teardown() throws InterruptedException {
+		executor.shutdown();
+		executor.awaitTermination(1, TimeUnit.MINUTES);
+	}
+	@Benchmark
+	public void execute() throws InterruptedException {
+		CountDownLatch latch = new CountDownLatch(batch);
+		for (int i = 0; i < batch; ++i) {
+			executor.execute(() -> {
+				if (blocking > 0)
+					LockSupport.parkNanos(blocking * 1000L);
+				latch.countDown();
+			});
+		}
+		latch.await();
+	}
+}
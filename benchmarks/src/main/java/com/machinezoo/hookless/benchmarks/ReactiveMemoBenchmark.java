@@ -0,0 +1,83 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.benchmarks;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import org.openjdk.jmh.annotations.*;
+import com.machinezoo.hookless.*;
+import com.machinezoo.hookless.experimental.std.bells.*;
+import com.machinezoo.hookless.experimental.std.memos.*;
+
+/*
+ * Change propagation through a chain of intermediaries: ReactiveLazy (built on ReactiveStateMachine)
+ * versus memos in the keyed graph. Every operation changes the source and reads the end of the chain.
+ * 
+ * With cutoff enabled, the first link maps the source to a constant, so the change never propagates past it.
+ * ReactiveLazy has no early cutoff and recomputes the whole chain anyway. Memos only recompute the first link.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReactiveMemoBenchmark {
+	@Param({ "1", "10", "100" })
+	public int depth;
+	@Param({ "false", "true" })
+	public boolean cutoff;
+	/*
+	 * Memo keys are records and memos are cached globally, so benchmark state is reachable via static map.
+	 * Every trial gets new ID to avoid reusing memos from previous trials.
+	 */
+	private static final AtomicInteger ids = new AtomicInteger();
+	private static final Map<Integer, ReactiveMemoBenchmark> trials = new ConcurrentHashMap<>();
+	private record Source(int trial) implements ReactiveBell {}
+	private record Link(int trial, int level) implements ReactiveMemo<Integer> {
+		@Override
+		public Integer compute() {
+			var state = trials.get(trial);
+			if (level == 0) {
+				new Source(trial).listen();
+				return state.cutoff ? 0 : state.input;
+			}
+			return new Link(trial, level - 1).get() + 1;
+		}
+	}
+	private int id;
+	private volatile int input;
+	private ReactiveVariable<Integer> variable;
+	private List<ReactiveLazy<Integer>> lazies;
+	private Link memo;
+	@Setup
+	public void setup() {
+		id = ids.incrementAndGet();
+		trials.put(id, this);
+		variable = new ReactiveVariable<>(0);
+		lazies = new ArrayList<>();
+		lazies.add(new ReactiveLazy<>(() -> cutoff ? variable.get() * 0 : variable.get()));
+		for (int i = 1; i < depth; ++i) {
+			var previous = lazies.get(i - 1);
+			lazies.add(new ReactiveLazy<>(() -> previous.get() + 1));
+		}
+		memo = new Link(id, depth - 1);
+		lazy();
+		memo();
+	}
+	@TearDown
+	public void teardown() {
+		trials.remove(id);
+	}
+	@Benchmark
+	public int lazy() {
+		variable.set(variable.get() + 1);
+		return lazies.get(depth - 1).get();
+	}
+	@Benchmark
+	public int memo() {
+		++input;
+		new Source(id).ring();
+		return memo.get();
+	}
+}
@@ -0,0 +1,55 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.benchmarks;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+import com.machinezoo.closeablescope.*;
+import com.machinezoo.hookless.*;
+
+/*
+ * Dependency tracking in one reactive computation, i.e. reading variables inside a scope and collecting their versions.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReactiveScopeBenchmark {
+	@Param({ "1", "10", "100", "1000" })
+	public int dependencies;
+	private ReactiveVariable<?>[] variables;
+	@Setup
+	public void setup() {
+		variables = new ReactiveVariable<?>[dependencies];
+		for (int i = 0; i < dependencies; ++i)
+			variables[i] = new ReactiveVariable<>(i);
+	}
+	@Benchmark
+	public ReactiveScope watch() {
+		ReactiveScope scope = new ReactiveScope();
+		try (CloseableScope computation = scope.enter()) {
+			for (ReactiveVariable<?> variable : variables)
+				variable.get();
+		}
+		return scope;
+	}
+	@Benchmark
+	public Collection<ReactiveVariable.Version> versions() {
+		return watch().versions();
+	}
+	/*
+	 * Repeated reads of the same variables must be deduplicated by the scope.
+	 */
+	@Benchmark
+	public ReactiveScope rewatch() {
+		ReactiveScope scope = new ReactiveScope();
+		try (CloseableScope computation = scope.enter()) {
+			for (int i = 0; i < 4; ++i)
+				for (ReactiveVariable<?> variable : variables)
+					variable.get();
+		}
+		return scope;
+	}
+}
@@ -0,0 +1,68 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.benchmarks;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import org.openjdk.jmh.annotations.*;
+import com.machinezoo.hookless.*;
+
+/*
+ * Complete invalidate-reschedule cycle. Single write to the source variable invalidates a number of reactive threads,
+ * which are then rescheduled in reactive executor and run again, reading all their dependencies.
+ * Benchmark operation completes when all dependent threads have finished their next iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReactiveThreadBenchmark {
+	/*
+	 * Number of reactive threads depending on the source variable.
+	 */
+	@Param({ "1", "10", "100", "1000" })
+	public int fanout;
+	/*
+	 * Number of variables read by every reactive thread including the source variable.
+	 */
+	@Param({ "1", "10", "100" })
+	public int dependencies;
+	private ReactiveVariable<Integer> source;
+	private final AtomicLong iterations = new AtomicLong();
+	private final List<ReactiveThread> threads = new ArrayList<>();
+	private int counter;
+	@Setup
+	public void setup() {
+		source = new ReactiveVariable<>(0);
+		List<ReactiveVariable<Integer>> others = new ArrayList<>();
+		for (int i = 1; i < dependencies; ++i)
+			others.add(new ReactiveVariable<>(i));
+		for (int i = 0; i < fanout; ++i) {
+			threads.add(new ReactiveThread(() -> {
+				source.get();
+				for (ReactiveVariable<Integer> other : others)
+					other.get();
+				iterations.incrementAndGet();
+			}).start());
+		}
+		await(fanout);
+	}
+	@TearDown
+	public void teardown() {
+		for (ReactiveThread thread : threads)
+			thread.stop();
+		threads.clear();
+	}
+	private void await(long target) {
+		while (iterations.get() < target)
+			Thread.onSpinWait();
+	}
+	@Benchmark
+	public void invalidate() {
+		long target = iterations.get() + fanout;
+		source.set(++counter);
+		await(target);
+	}
+}
@@ -0,0 +1,58 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.benchmarks;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+import com.machinezoo.closeablescope.*;
+import com.machinezoo.hookless.*;
+
+/*
+ * Full life cycle of a trigger: arm, fire, and close.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReactiveTriggerBenchmark {
+	@Param({ "1", "10", "100" })
+	public int dependencies;
+	private List<ReactiveVariable.Version> versions;
+	private ReactiveScope scope;
+	@Setup
+	public void setup() {
+		scope = new ReactiveScope();
+		try (CloseableScope computation = scope.enter()) {
+			for (int i = 0; i < dependencies; ++i)
+				new ReactiveVariable<>(i).get();
+		}
+		versions = new ArrayList<>(scope.versions());
+	}
+	@Benchmark
+	public ReactiveTrigger armClose() {
+		ReactiveTrigger trigger = new ReactiveTrigger();
+		trigger.arm(versions);
+		trigger.close();
+		return trigger;
+	}
+	/*
+	 * Arming directly from scope skips creation of Version objects.
+	 */
+	@Benchmark
+	public ReactiveTrigger armScopeClose() {
+		ReactiveTrigger trigger = new ReactiveTrigger();
+		trigger.arm(scope);
+		trigger.close();
+		return trigger;
+	}
+	@Benchmark
+	public ReactiveTrigger armFireClose() {
+		ReactiveTrigger trigger = new ReactiveTrigger();
+		trigger.arm(versions);
+		trigger.fire();
+		trigger.close();
+		return trigger;
+	}
+}
@@ -0,0 +1,40 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.benchmarks;
+
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+import com.machinezoo.hookless.*;
+
+/*
+ * Reads and writes of a single variable without any dependent computation.
+ * This is the floor under all other reactive operations.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReactiveVariableBenchmark {
+	private ReactiveVariable<Integer> variable;
+	private int counter;
+	@Setup
+	public void setup() {
+		variable = new ReactiveVariable<>(0);
+	}
+	@Benchmark
+	public Integer get() {
+		return variable.get();
+	}
+	@Benchmark
+	public void set() {
+		variable.set(++counter);
+	}
+	/*
+	 * Overwriting the variable with equal value exercises equality check that suppresses the change.
+	 */
+	@Benchmark
+	public void setEqual() {
+		variable.set(0);
+	}
+}
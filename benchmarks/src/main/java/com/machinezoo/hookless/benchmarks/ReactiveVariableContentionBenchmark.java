@@ -0,0 +1,41 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.benchmarks;
+
+import java.util.*;
+import java.util.concurrent.*;
+import org.openjdk.jmh.annotations.*;
+import com.machinezoo.hookless.*;
+
+/*
+ * Hot variable shared by many computations. Several threads keep subscribing and unsubscribing triggers
+ * while one thread keeps writing the variable. This is what happens when thousands of reactive threads read the same variable.
+ */
+@State(Scope.Group)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReactiveVariableContentionBenchmark {
+	private ReactiveVariable<Integer> variable;
+	private volatile int counter;
+	@Setup
+	public void setup() {
+		variable = new ReactiveVariable<>(0);
+	}
+	@Benchmark
+	@Group("subscribe")
+	@GroupThreads(3)
+	public boolean arm() {
+		try (ReactiveTrigger trigger = new ReactiveTrigger()) {
+			trigger.arm(List.of(new ReactiveVariable.Version(variable)));
+			return trigger.fired();
+		}
+	}
+	@Benchmark
+	@Group("subscribe")
+	@GroupThreads(1)
+	public void set() {
+		variable.set(++counter);
+	}
+}
@@ -0,0 +1,5 @@
+// Part of Hookless: https://hookless.machinezoo.com
+/**
+ * JMH benchmarks for hot paths in hookless.
+ */
+package com.machinezoo.hookless.benchmarks;
@@ -0,0 +1,154 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import java.util.function.*;
+import com.machinezoo.hookless.util.*;
+import com.machinezoo.stagean.*;
+
+/*
+ * Primitive variable for flags. Design of primitive variables is described in ReactiveVariable.
+ * Only getAndSet() and compareAndSet() are offered for read-modify-write, because there is nothing to accumulate in a flag.
+ */
+/**
+ * {@link ReactiveVariable} specialized for {@code boolean} values.
+ */
+@StubDocs
+public class ReactiveBooleanVariable extends ReactiveVariable<Boolean> implements BooleanSupplier {
+	/*
+	 * Value stored in the superclass is ignored except for the initial value. This field holds the current value.
+	 */
+	private volatile boolean current;
+	public ReactiveBooleanVariable(boolean value) {
+		super(new ReactiveValue<>(value));
+		current = value;
+	}
+	public ReactiveBooleanVariable() {
+		this(false);
+	}
+	@Override
+	public boolean getAsBoolean() {
+		/*
+		 * Dependency must be recorded before the value is read for the same reasons as in ReactiveVariable.value().
+		 */
+		watch();
+		return current;
+	}
+	public void set(boolean value) {
+		fire(assign(value));
+	}
+	/*
+	 * Equality-checked write. Caller must hold the lock.
+	 */
+	Subscription replace(boolean value) {
+		if (current == value)
+			return null;
+		current = value;
+		return advance();
+	}
+	/*
+	 * Equality check is first done outside of the lock like in ReactiveVariable.assign().
+	 */
+	Subscription assign(boolean value) {
+		if (current == value)
+			return null;
+		synchronized (this) {
+			return replace(value);
+		}
+	}
+	/*
+	 * Generic writes, notably from ReactiveTransaction and boxed read-modify-write methods, are unpacked into the primitive field.
+	 */
+	private static boolean unpack(ReactiveValue<Boolean> value) {
+		if (value.exception() != null || value.blocking() || value.result() == null)
+			throw new IllegalArgumentException("Primitive variable can only hold non-null non-blocking value.");
+		return value.result();
+	}
+	@Override
+	Subscription assign(ReactiveValue<Boolean> value) {
+		return assign(unpack(value));
+	}
+	@Override
+	Subscription replace(ReactiveValue<Boolean> value) {
+		return replace(unpack(value));
+	}
+	private volatile ReactiveValue<Boolean> boxed;
+	@Override
+	ReactiveValue<Boolean> stored() {
+		boolean value = current;
+		var boxed = this.boxed;
+		if (boxed == null || boxed.result() != value) {
+			boxed = new ReactiveValue<>(value);
+			this.boxed = boxed;
+		}
+		return boxed;
+	}
+	@Override
+	public ReactiveValue<Boolean> value() {
+		watch();
+		return stored();
+	}
+	@Override
+	public Boolean get() {
+		return getAsBoolean();
+	}
+	@Override
+	public void set(Boolean value) {
+		if (value == null)
+			throw new IllegalArgumentException("Primitive variable cannot hold null.");
+		set((boolean)value);
+	}
+	/**
+	 * Atomically sets the value to {@code value} if current value is equal to {@code expected}.
+	 * No reactive dependency is recorded.
+	 * 
+	 * @param expected
+	 *            expected current value
+	 * @param value
+	 *            new value
+	 * @return {@code true} if current value matched {@code expected}, {@code false} otherwise
+	 */
+	public boolean compareAndSet(boolean expected, boolean value) {
+		Subscription notified;
+		synchronized (this) {
+			if (current != expected)
+				return false;
+			notified = replace(value);
+		}
+		fire(notified);
+		return true;
+	}
+	/*
+	 * Boxed overload compares values like the primitive one. It would otherwise follow equality() setting.
+	 * Null never matches, because primitive variable cannot hold null.
+	 */
+	@Override
+	public boolean compareAndSet(Boolean expected, Boolean value) {
+		if (value == null)
+			throw new IllegalArgumentException("Primitive variable cannot hold null.");
+		if (expected == null)
+			return false;
+		return compareAndSet((boolean)expected, (boolean)value);
+	}
+	/**
+	 * Atomically sets new value and returns the previous one.
+	 * No reactive dependency is recorded.
+	 * 
+	 * @param value
+	 *            new value
+	 * @return previous value
+	 */
+	public boolean getAndSet(boolean value) {
+		boolean before;
+		Subscription notified;
+		synchronized (this) {
+			before = current;
+			notified = replace(value);
+		}
+		fire(notified);
+		return before;
+	}
+	@Override
+	public String toString() {
+		return OwnerTrace.of(this) + " = " + current;
+	}
+}
@@ -0,0 +1,224 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import java.util.*;
+import java.util.function.*;
+import org.slf4j.*;
+import com.machinezoo.closeablescope.*;
+import com.machinezoo.hookless.util.*;
+import com.machinezoo.stagean.*;
+
+/*
+ * Derived reactive maps that are maintained incrementally.
+ *
+ * Derived collection could be computed by ReactiveLazy or ReactiveWorker, but every change in the source
+ * would then rerun the whole computation over the whole source, which is O(size) per change.
+ * Operators here instead observe keys of changed entries in the source and update only the affected entries of the view,
+ * which is O(changes). The view is an ordinary ReactiveMap, so its readers get per-key dependency tracking
+ * and views can be chained. Views should not be modified by application code.
+ *
+ * Operators run synchronously in the thread that wrote the source, so views reflect writes immediately like ReactiveLazy.
+ * Every operator has its own lock. It always reads latest state of the source under this lock,
+ * so concurrent writes cannot leave the view with stale entries even if their notifications arrive out of order.
+ * Operator functions run with reactive scope suppressed, because the writer might be inside unrelated reactive computation.
+ * They should be pure functions of the entry. Reactive data read by them is not tracked.
+ * Exceptions thrown by operator functions are logged and the affected entry is removed from the view.
+ *
+ * View strongly references its operator and the operator strongly references its sources.
+ * Sources reference operators weakly, so views that are no longer referenced are collected.
+ */
+/**
+ * Incrementally maintained views of {@link ReactiveMap}.
+ */
+@StubDocs
+public class ReactiveCollections {
+	private static final Logger logger = LoggerFactory.getLogger(ReactiveCollections.class);
+	private static abstract class Operator<K> {
+		/*
+		 * Sources hold observers weakly. This field keeps the observer alive for as long as the operator is alive.
+		 */
+		final Consumer<Collection<K>> observer = this::update;
+		synchronized void update(Collection<K> keys) {
+			try (CloseableScope c = ReactiveScope.ignore()) {
+				for (K key : keys) {
+					try {
+						apply(key);
+					} catch (Throwable ex) {
+						logger.error("Reactive collection operator failed.", ex);
+						discard(key);
+					}
+				}
+			}
+		}
+		abstract void apply(K key);
+		abstract void discard(K key);
+		void start(ReactiveMap<K, ?> source) {
+			source.observe(observer);
+			update(source.peekKeys());
+		}
+	}
+	private static <K, V> ReactiveMap<K, V> view(Object operator, String alias) {
+		ReactiveMap<K, V> view = OwnerTrace.of(new ReactiveMap<K, V>())
+			.alias(alias)
+			.target();
+		view.keepalive(operator);
+		return view;
+	}
+	private static class Mapping<K, V, R> extends Operator<K> {
+		final ReactiveMap<K, V> source;
+		final Function<? super V, ? extends R> function;
+		final ReactiveMap<K, R> view = view(this, "mapped");
+		Mapping(ReactiveMap<K, V> source, Function<? super V, ? extends R> function) {
+			this.source = source;
+			this.function = function;
+		}
+		@Override
+		void apply(K key) {
+			Map.Entry<K, V> entry = source.peek(key);
+			if (entry != null)
+				view.put(key, function.apply(entry.getValue()));
+			else
+				view.remove(key);
+		}
+		@Override
+		void discard(K key) {
+			view.remove(key);
+		}
+	}
+	public static <K, V, R> ReactiveMap<K, R> map(ReactiveMap<K, V> source, Function<? super V, ? extends R> function) {
+		Objects.requireNonNull(source);
+		Objects.requireNonNull(function);
+		Mapping<K, V, R> operator = new Mapping<>(source, function);
+		operator.start(source);
+		return operator.view;
+	}
+	private static class Filter<K, V> extends Operator<K> {
+		final ReactiveMap<K, V> source;
+		final BiPredicate<? super K, ? super V> predicate;
+		final ReactiveMap<K, V> view = view(this, "filtered");
+		Filter(ReactiveMap<K, V> source, BiPredicate<? super K, ? super V> predicate) {
+			this.source = source;
+			this.predicate = predicate;
+		}
+		@Override
+		void apply(K key) {
+			Map.Entry<K, V> entry = source.peek(key);
+			if (entry != null && predicate.test(key, entry.getValue()))
+				view.put(key, entry.getValue());
+			else
+				view.remove(key);
+		}
+		@Override
+		void discard(K key) {
+			view.remove(key);
+		}
+	}
+	public static <K, V> ReactiveMap<K, V> filter(ReactiveMap<K, V> source, BiPredicate<? super K, ? super V> predicate) {
+		Objects.requireNonNull(source);
+		Objects.requireNonNull(predicate);
+		Filter<K, V> operator = new Filter<>(source, predicate);
+		operator.start(source);
+		return operator.view;
+	}
+	/*
+	 * Groups are reactive sets, so that moving one key between groups touches only the two groups and their changed members.
+	 * Empty groups are removed from the view.
+	 */
+	private static class Grouping<K, V, G> extends Operator<K> {
+		final ReactiveMap<K, V> source;
+		final Function<? super V, ? extends G> classifier;
+		final ReactiveMap<G, ReactiveSet<K>> view = view(this, "grouped");
+		/*
+		 * Current group of every key, so that we know which group to remove the key from.
+		 */
+		final Map<K, G> groups = new HashMap<>();
+		Grouping(ReactiveMap<K, V> source, Function<? super V, ? extends G> classifier) {
+			this.source = source;
+			this.classifier = classifier;
+		}
+		@Override
+		void apply(K key) {
+			Map.Entry<K, V> entry = source.peek(key);
+			if (entry == null) {
+				discard(key);
+				return;
+			}
+			G group = classifier.apply(entry.getValue());
+			if (groups.containsKey(key) && Objects.equals(groups.get(key), group))
+				return;
+			discard(key);
+			Map.Entry<G, ReactiveSet<K>> existing = view.peek(group);
+			ReactiveSet<K> members;
+			if (existing != null)
+				members = existing.getValue();
+			else {
+				members = OwnerTrace.of(new ReactiveSet<K>())
+					.parent(view)
+					.tag("group", group)
+					.target();
+				view.put(group, members);
+			}
+			members.add(key);
+			groups.put(key, group);
+		}
+		@Override
+		void discard(K key) {
+			if (!groups.containsKey(key))
+				return;
+			G group = groups.remove(key);
+			Map.Entry<G, ReactiveSet<K>> existing = view.peek(group);
+			if (existing != null) {
+				ReactiveSet<K> members = existing.getValue();
+				members.remove(key);
+				if (members.isEmpty())
+					view.remove(group);
+			}
+		}
+	}
+	public static <K, V, G> ReactiveMap<G, ReactiveSet<K>> groupBy(ReactiveMap<K, V> source, Function<? super V, ? extends G> classifier) {
+		Objects.requireNonNull(source);
+		Objects.requireNonNull(classifier);
+		Grouping<K, V, G> operator = new Grouping<>(source, classifier);
+		operator.start(source);
+		return operator.view;
+	}
+	/*
+	 * Inner join on key. Change of either side updates only the entry with the changed key.
+	 */
+	private static class Join<K, L, R, T> extends Operator<K> {
+		final ReactiveMap<K, L> left;
+		final ReactiveMap<K, R> right;
+		final BiFunction<? super L, ? super R, ? extends T> combiner;
+		final ReactiveMap<K, T> view = view(this, "joined");
+		Join(ReactiveMap<K, L> left, ReactiveMap<K, R> right, BiFunction<? super L, ? super R, ? extends T> combiner) {
+			this.left = left;
+			this.right = right;
+			this.combiner = combiner;
+		}
+		@Override
+		void apply(K key) {
+			Map.Entry<K, L> leftEntry = left.peek(key);
+			Map.Entry<K, R> rightEntry = right.peek(key);
+			if (leftEntry != null && rightEntry != null)
+				view.put(key, combiner.apply(leftEntry.getValue(), rightEntry.getValue()));
+			else
+				view.remove(key);
+		}
+		@Override
+		void discard(K key) {
+			view.remove(key);
+		}
+	}
+	public static <K, L, R, T> ReactiveMap<K, T> join(ReactiveMap<K, L> left, ReactiveMap<K, R> right, BiFunction<? super L, ? super R, ? extends T> combiner) {
+		Objects.requireNonNull(left);
+		Objects.requireNonNull(right);
+		Objects.requireNonNull(combiner);
+		Join<K, L, R, T> operator = new Join<>(left, right, combiner);
+		/*
+		 * Keys present only in the right map produce no entries, so it is sufficient to scan the left map initially.
+		 */
+		right.observe(operator.observer);
+		operator.start(left);
+		return operator.view;
+	}
+}
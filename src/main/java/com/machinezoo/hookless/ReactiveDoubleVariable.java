@@ -0,0 +1,213 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import java.util.function.*;
+import com.machinezoo.hookless.util.*;
+import com.machinezoo.stagean.*;
+
+/*
+ * Primitive variable for gauges and other floating-point state. Design of primitive variables is described in ReactiveVariable.
+ * Values are compared bitwise rather than with == operator. See same() below.
+ */
+/**
+ * {@link ReactiveVariable} specialized for {@code double} values.
+ */
+@StubDocs
+public class ReactiveDoubleVariable extends ReactiveVariable<Double> implements DoubleSupplier {
+	/*
+	 * Value stored in the superclass is ignored except for the initial value. This field holds the current value.
+	 */
+	private volatile double current;
+	public ReactiveDoubleVariable(double value) {
+		super(new ReactiveValue<>(value));
+		current = value;
+	}
+	public ReactiveDoubleVariable() {
+		this(0);
+	}
+	@Override
+	public double getAsDouble() {
+		/*
+		 * Dependency must be recorded before the value is read for the same reasons as in ReactiveVariable.value().
+		 */
+		watch();
+		return current;
+	}
+	public void set(double value) {
+		fire(assign(value));
+	}
+	/*
+	 * Bitwise comparison treats NaN as equal to itself, so that repeated writes of NaN do not cause invalidations.
+	 * It also distinguishes positive and negative zero, which is consistent with Double.equals().
+	 */
+	private static boolean same(double left, double right) {
+		return Double.doubleToLongBits(left) == Double.doubleToLongBits(right);
+	}
+	/*
+	 * Equality-checked write. Caller must hold the lock.
+	 */
+	Subscription replace(double value) {
+		if (same(current, value))
+			return null;
+		current = value;
+		return advance();
+	}
+	/*
+	 * Equality check is first done outside of the lock like in ReactiveVariable.assign().
+	 */
+	Subscription assign(double value) {
+		if (same(current, value))
+			return null;
+		synchronized (this) {
+			return replace(value);
+		}
+	}
+	/*
+	 * Generic writes, notably from ReactiveTransaction and boxed read-modify-write methods, are unpacked into the primitive field.
+	 */
+	private static double unpack(ReactiveValue<Double> value) {
+		if (value.exception() != null || value.blocking() || value.result() == null)
+			throw new IllegalArgumentException("Primitive variable can only hold non-null non-blocking value.");
+		return value.result();
+	}
+	@Override
+	Subscription assign(ReactiveValue<Double> value) {
+		return assign(unpack(value));
+	}
+	@Override
+	Subscription replace(ReactiveValue<Double> value) {
+		return replace(unpack(value));
+	}
+	private volatile ReactiveValue<Double> boxed;
+	@Override
+	ReactiveValue<Double> stored() {
+		double value = current;
+		var boxed = this.boxed;
+		if (boxed == null || !same(boxed.result(), value)) {
+			boxed = new ReactiveValue<>(value);
+			this.boxed = boxed;
+		}
+		return boxed;
+	}
+	@Override
+	public ReactiveValue<Double> value() {
+		watch();
+		return stored();
+	}
+	@Override
+	public Double get() {
+		return getAsDouble();
+	}
+	@Override
+	public void set(Double value) {
+		if (value == null)
+			throw new IllegalArgumentException("Primitive variable cannot hold null.");
+		set((double)value);
+	}
+	/**
+	 * Atomically sets the value to {@code value} if current value is equal to {@code expected}.
+	 * No reactive dependency is recorded.
+	 * 
+	 * @param expected
+	 *            expected current value
+	 * @param value
+	 *            new value
+	 * @return {@code true} if current value matched {@code expected}, {@code false} otherwise
+	 */
+	public boolean compareAndSet(double expected, double value) {
+		Subscription notified;
+		synchronized (this) {
+			if (!same(current, expected))
+				return false;
+			notified = replace(value);
+		}
+		fire(notified);
+		return true;
+	}
+	/*
+	 * Boxed overload compares values like the primitive one. It would otherwise follow equality() setting.
+	 * Null never matches, because primitive variable cannot hold null.
+	 */
+	@Override
+	public boolean compareAndSet(Double expected, Double value) {
+		if (value == null)
+			throw new IllegalArgumentException("Primitive variable cannot hold null.");
+		if (expected == null)
+			return false;
+		return compareAndSet((double)expected, (double)value);
+	}
+	private double modify(double operand, DoubleBinaryOperator function, boolean previous) {
+		double before;
+		double after;
+		Subscription notified;
+		synchronized (this) {
+			before = current;
+			after = function.applyAsDouble(before, operand);
+			notified = replace(after);
+		}
+		fire(notified);
+		return previous ? before : after;
+	}
+	/**
+	 * Atomically sets new value and returns the previous one.
+	 * No reactive dependency is recorded.
+	 * 
+	 * @param value
+	 *            new value
+	 * @return previous value
+	 */
+	public double getAndSet(double value) {
+		return modify(value, (a, b) -> b, true);
+	}
+	/**
+	 * Atomically combines current value with {@code operand} and stores the result.
+	 * The function is called exactly once while holding the lock of this variable.
+	 * No reactive dependency is recorded and triggers are fired at most once.
+	 * 
+	 * @param operand
+	 *            second parameter of the {@code function}
+	 * @param function
+	 *            side-effect-free function combining current value with {@code operand}
+	 * @return previous value
+	 */
+	public double getAndAccumulate(double operand, DoubleBinaryOperator function) {
+		return modify(operand, function, true);
+	}
+	/**
+	 * Atomically combines current value with {@code operand} and stores the result.
+	 * This is the same as {@link #getAndAccumulate(double, DoubleBinaryOperator)} except that new value is returned.
+	 * 
+	 * @param operand
+	 *            second parameter of the {@code function}
+	 * @param function
+	 *            side-effect-free function combining current value with {@code operand}
+	 * @return new value
+	 */
+	public double accumulateAndGet(double operand, DoubleBinaryOperator function) {
+		return modify(operand, function, false);
+	}
+	/**
+	 * Atomically adds {@code delta} to current value.
+	 * 
+	 * @param delta
+	 *            value to add
+	 * @return previous value
+	 */
+	public double getAndAdd(double delta) {
+		return modify(delta, Double::sum, true);
+	}
+	/**
+	 * Atomically adds {@code delta} to current value.
+	 * 
+	 * @param delta
+	 *            value to add
+	 * @return new value
+	 */
+	public double addAndGet(double delta) {
+		return modify(delta, Double::sum, false);
+	}
+	@Override
+	public String toString() {
+		return OwnerTrace.of(this) + " = " + current;
+	}
+}
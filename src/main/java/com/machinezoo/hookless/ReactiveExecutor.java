@@ -1,6 +1,7 @@
 // Part of Hookless: https://hookless.machinezoo.com
 package com.machinezoo.hookless;
 
+import java.time.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
@@ -9,7 +10,7 @@ import io.micrometer.core.instrument.*;
 import io.micrometer.core.instrument.Timer;
 
 /*
- * Latency-optimized executor designed for hookless. Currently it's just standard ThreadPoolExecutor with custom queue.
+ * Latency-optimized executor designed for hookless. Currently it's just standard ThreadPoolExecutor with custom queue (ReactiveQueue).
  *
  * Reactive executor has an event concept. Event is a group of related tasks that likely originated from single UI event.
  * When event's task schedules another task (e.g. due to reactive invalidation), the new task becomes part of the same event.
@@ -23,6 +24,9 @@ import io.micrometer.core.instrument.Timer;
  * Reactive executor solves the problem by keeping one global FIFO queue of events that each have their own local FIFO queue of tasks.
  * This has the effect that cascading tasks inside one event will all run together, yielding short latencies independent of cascading depth.
  * There is a reasonable limit on cascading depth to prevent buggy code from creating events that never stop.
+ * 
+ * Tasks also have priority. Background tasks are queued separately and they only get configurable share of executions
+ * when interactive tasks are waiting, so that background computations do not inflate latency of interactive ones.
  */
 /**
  * Latency-optimized executor designed for reactive programs.
@@ -31,12 +35,11 @@ import io.micrometer.core.instrument.Timer;
 public class ReactiveExecutor extends ThreadPoolExecutor {
 	private static ThreadLocal<ReactiveTask> running = new ThreadLocal<>();
 	/*
-	 * Event and task FIFOs do not physically exist. We just assign increasing event and task IDs to all tasks
-	 * and then use priority queue to execute tasks in event order followed by task order.
+	 * We assign increasing event IDs to all tasks. Reactive queue then keeps one FIFO of tasks per event
+	 * and executes tasks in event order. See ReactiveQueue for details.
 	 * Event counter is executor-local, so that slow thread pools do not impede progress in fast thread pools.
 	 */
 	private final AtomicLong eventCounter = new AtomicLong();
-	private static final AtomicLong taskCounter = new AtomicLong();
 	/*
 	 * Expose event counter, so that non-default reactive thread pools can be monitored.
 	 * There's no need to expose task counter in the same way,
@@ -47,23 +50,34 @@ public class ReactiveExecutor extends ThreadPoolExecutor {
 	}
 	private static Timer taskTimer = Metrics.timer("hookless.executor.tasks");
 	/*
-	 * We will wrap every task submitted to the executor in order to make the tasks sortable by event/task ID.
+	 * We will wrap every task submitted to the executor in order to tag the tasks with event ID.
 	 */
-	private static class ReactiveTask implements Runnable, Comparable<ReactiveTask> {
+	static class ReactiveTask implements Runnable {
 		final ReactiveExecutor executor;
 		final long eventId;
-		final long taskId = taskCounter.incrementAndGet();
 		/*
 		 * This is cascade depth. Child tasks have depth one higher than their parent task.
 		 */
 		final int depth;
+		final ReactivePriority priority;
 		final Runnable runnable;
 		final Timer.Sample sample;
-		ReactiveTask(ReactiveExecutor executor, long eventId, int depth, Runnable runnable) {
+		/*
+		 * Submission time (System.nanoTime()) used to measure queue latency. Zero when nothing measures it.
+		 */
+		final long queued;
+		/*
+		 * Set by tryExecute() before the task is queued. Nonblocking task is rejected instead of waiting when the queue is full.
+		 * Rejection of uncounted task is not included in getRejectedCount(), because it is a retry of already rejected task.
+		 */
+		boolean nonblocking;
+		boolean uncounted;
+		ReactiveTask(ReactiveExecutor executor, long eventId, int depth, ReactivePriority priority, Runnable runnable) {
 			this.executor = executor;
 			this.eventId = eventId;
 			this.runnable = runnable;
 			this.depth = depth;
+			this.priority = priority;
 			/*
 			 * Task timers are only enabled for the common thread pool.
 			 * Tasks in other thread pools can be timed for example by creating ExecutorService wrapper
@@ -73,18 +87,15 @@ public class ReactiveExecutor extends ThreadPoolExecutor {
 			 * Total latency is usually more important than throughput in hookless applications.
 			 */
 			sample = executor == common ? Timer.start() : null;
+			queued = executor != null && executor.timestamped() ? System.nanoTime() : 0;
 		}
-		@Override
-		public int compareTo(ReactiveTask other) {
-			if (eventId != other.eventId)
-				return eventId < other.eventId ? -1 : 1;
-			else
-				return Long.compare(taskId, other.taskId);
+		ReactiveTask(ReactiveExecutor executor, long eventId, int depth, Runnable runnable) {
+			this(executor, eventId, depth, ReactivePriority.INTERACTIVE, runnable);
 		}
 		@Override
 		public void run() {
 			/*
-			 * While incrementing task ID is straightforward, we have several options as to when to increment event ID.
+			 * We have several options as to when to increment event ID.
 			 * Here we increment it when the first task of the current event starts execution.
 			 * This way we will typically have only two events: current one and the next one.
 			 * Multi-threaded execution can however cause some older events to be still finishing their tasks.
@@ -118,6 +129,10 @@ public class ReactiveExecutor extends ThreadPoolExecutor {
 	}
 	/*
 	 * Unbounded queue means that ThreadPoolExecutor can run only as a fixed-size thread pool.
+	 * 
+	 * Computations that perform blocking I/O can run on virtual threads (Java 21+) by passing virtual thread factory here.
+	 * Event ordering is still enforced by our queue. Parallelism then limits the number of concurrently running tasks,
+	 * including blocked ones, so it can be much higher than core count.
 	 */
 	public ReactiveExecutor(int parallelism, ThreadFactory threads) {
 		/*
@@ -125,8 +140,9 @@ public class ReactiveExecutor extends ThreadPoolExecutor {
 		 * because reactive objects are designed to create at most one task at a time.
 		 * The only way we could exhaust memory here is if the reactive objects
 		 * are gargbage-collected faster than we can execute their callbacks.
+		 * Applications with very many reactive threads can bound the queue via setCapacity().
 		 */
-		super(parallelism, parallelism, 0, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>(), threads);
+		super(parallelism, parallelism, 0, TimeUnit.MILLISECONDS, new ReactiveQueue(), threads);
 	}
 	public ReactiveExecutor(int parallelism) {
 		this(parallelism, Executors.defaultThreadFactory());
@@ -143,18 +159,162 @@ public class ReactiveExecutor extends ThreadPoolExecutor {
 	private static final int MAX_DEPTH = 30;
 	/*
 	 * We could also override newTaskFor(), but then tasks submitted directly via execute() would not be wrapped.
+	 * 
+	 * Child tasks inherit priority of their parent task, so that cascades started by background computations stay in background.
 	 */
 	@Override
 	public void execute(Runnable runnable) {
+		ReactiveTask current = running.get();
+		execute(runnable, current != null && current.executor == this ? current.priority : ReactivePriority.INTERACTIVE);
+	}
+	public void execute(Runnable runnable, ReactivePriority priority) {
 		Objects.requireNonNull(runnable);
+		Objects.requireNonNull(priority);
+		enqueue(wrap(runnable, priority));
+	}
+	private ReactiveTask wrap(Runnable runnable, ReactivePriority priority) {
 		ReactiveTask current = running.get();
 		/*
 		 * We will check whether the current task belongs to this executor, because every executor has separate event counter.
 		 */
 		if (current != null && current.executor == this && current.depth < MAX_DEPTH)
-			super.execute(new ReactiveTask(this, current.eventId, current.depth + 1, runnable));
+			return new ReactiveTask(this, current.eventId, current.depth + 1, priority, runnable);
 		else
-			super.execute(new ReactiveTask(this, eventCounter.get(), 0, runnable));
+			return new ReactiveTask(this, eventCounter.get(), 0, priority, runnable);
+	}
+	/*
+	 * Submission that never blocks, not even under BLOCK overflow policy. Rejection is reported by returning false.
+	 * ReactiveThread uses it on its shared timer thread, which must not be stalled by one full executor,
+	 * and it passes counted == false when retrying already rejected iteration.
+	 */
+	boolean tryExecute(Runnable runnable, ReactivePriority priority, boolean counted) {
+		Objects.requireNonNull(runnable);
+		Objects.requireNonNull(priority);
+		ReactiveTask task = wrap(runnable, priority);
+		task.nonblocking = true;
+		task.uncounted = !counted;
+		try {
+			enqueue(task);
+			return true;
+		} catch (RejectedExecutionException ex) {
+			return false;
+		}
+	}
+	/*
+	 * Tenants of ReactiveExecutorGroup override this to run tasks on carrier threads shared by the whole group.
+	 */
+	void enqueue(ReactiveTask task) {
+		super.execute(task);
+	}
+	boolean timestamped() {
+		return sizing != null;
+	}
+	/*
+	 * Minimum share of executions given to background tasks while interactive tasks are waiting. Defaults to 0.1.
+	 * Zero share means background tasks run only when there are no interactive tasks, which risks starvation under sustained load.
+	 */
+	public double getBackgroundShare() {
+		return ((ReactiveQueue)getQueue()).share();
+	}
+	public void setBackgroundShare(double share) {
+		((ReactiveQueue)getQueue()).share(share);
+	}
+	/*
+	 * What happens when bounded queue is full:
+	 * - REJECT: submission throws RejectedExecutionException like in ThreadPoolExecutor with bounded queue.
+	 * - SHED: background tasks are rejected once the queue is half full, leaving the rest for interactive tasks.
+	 * - BLOCK: submissions from outside of the pool wait for space. This applies backpressure to writers of reactive variables.
+	 *   Submissions from pool threads are always admitted, because blocking the consumers of the queue would deadlock.
+	 * 
+	 * Rejected tasks are not lost when they come from ReactiveThread, which retries scheduling later.
+	 * Reactive threads also never have more than one iteration in the queue, so repeated invalidations coalesce.
+	 */
+	public static enum Overflow {
+		REJECT,
+		SHED,
+		BLOCK
+	}
+	/*
+	 * Queue capacity defaults to Integer.MAX_VALUE, which means unbounded queue.
+	 */
+	public int getCapacity() {
+		return ((ReactiveQueue)getQueue()).capacity();
+	}
+	public void setCapacity(int capacity) {
+		((ReactiveQueue)getQueue()).capacity(capacity);
+	}
+	public Overflow getOverflow() {
+		return ((ReactiveQueue)getQueue()).overflow();
+	}
+	public void setOverflow(Overflow overflow) {
+		((ReactiveQueue)getQueue()).overflow(overflow);
+	}
+	/*
+	 * Counts tasks rejected by bounded queue. Rejections due to shutdown are not included.
+	 * Retries of rejected reactive thread iterations are not counted again.
+	 * Exposed for the same reason as getEventCount().
+	 */
+	public long getRejectedCount() {
+		return ((ReactiveQueue)getQueue()).rejected();
+	}
+	/*
+	 * Adaptive sizing grows the pool within bounds when threads block and shrinks it again when they stop blocking.
+	 * See ReactiveSizing for details. It is disabled by default, because it adds bookkeeping to every task
+	 * and its sampler wakes up periodically even when the pool is idle.
+	 * Common executor enables it when system property hookless.executor.adaptive is set to "enabled".
+	 * Disabling adaptive sizing leaves the pool at its current size.
+	 */
+	private volatile ReactiveSizing sizing;
+	public synchronized void setAdaptiveSizing(int min, int max) {
+		ReactiveSizing previous = sizing;
+		sizing = new ReactiveSizing(this, min, max);
+		if (previous != null)
+			previous.stop();
+	}
+	public synchronized void disableAdaptiveSizing() {
+		if (sizing != null) {
+			sizing.stop();
+			sizing = null;
+		}
+	}
+	public boolean isAdaptiveSizing() {
+		return sizing != null;
+	}
+	/*
+	 * Statistics of adaptive sizing, exposed for the same reason as getEventCount(). They are all zero when adaptive sizing is disabled.
+	 * Blocked thread count and queue latency are values from the last sample.
+	 */
+	public int getBlockedCount() {
+		ReactiveSizing sizing = this.sizing;
+		return sizing != null ? sizing.blocked() : 0;
+	}
+	public Duration getQueueLatency() {
+		ReactiveSizing sizing = this.sizing;
+		return Duration.ofNanos(sizing != null ? sizing.latency() : 0);
+	}
+	public long getGrowCount() {
+		ReactiveSizing sizing = this.sizing;
+		return sizing != null ? sizing.grown() : 0;
+	}
+	public long getShrinkCount() {
+		ReactiveSizing sizing = this.sizing;
+		return sizing != null ? sizing.shrunk() : 0;
+	}
+	@Override
+	protected void beforeExecute(Thread thread, Runnable runnable) {
+		ReactiveSizing sizing = this.sizing;
+		if (sizing != null)
+			sizing.busy.add(thread);
+	}
+	@Override
+	protected void afterExecute(Runnable runnable, Throwable exception) {
+		ReactiveSizing sizing = this.sizing;
+		if (sizing != null)
+			sizing.busy.remove(Thread.currentThread());
+	}
+	@Override
+	protected void terminated() {
+		disableAdaptiveSizing();
 	}
 	public static ReactiveExecutor current() {
 		ReactiveTask task = running.get();
@@ -177,9 +337,19 @@ public class ReactiveExecutor extends ThreadPoolExecutor {
 		}
 	});
 	static {
+		/*
+		 * Common executor may grow when computations block, but only up to a small multiple of core count.
+		 */
+		if ("enabled".equals(System.getProperty("hookless.executor.adaptive")))
+			common.setAdaptiveSizing(1, 4 * Runtime.getRuntime().availableProcessors());
 		Metrics.gauge("hookless.executor.events", common, x -> x.getEventCount());
 		Metrics.gauge("hookless.executor.threads", common, x -> x.getPoolSize());
 		Metrics.gauge("hookless.executor.queue", common, x -> x.getQueue().size());
+		FunctionCounter.builder("hookless.executor.rejections", common, x -> x.getRejectedCount()).register(Metrics.globalRegistry);
+		Metrics.gauge("hookless.executor.blocked", common, x -> x.getBlockedCount());
+		TimeGauge.builder("hookless.executor.latency", common, TimeUnit.NANOSECONDS, x -> x.getQueueLatency().toNanos()).register(Metrics.globalRegistry);
+		FunctionCounter.builder("hookless.executor.resizes", common, x -> x.getGrowCount()).tag("direction", "grow").register(Metrics.globalRegistry);
+		FunctionCounter.builder("hookless.executor.resizes", common, x -> x.getShrinkCount()).tag("direction", "shrink").register(Metrics.globalRegistry);
 	}
 	public static ReactiveExecutor common() {
 		return common;
@@ -0,0 +1,350 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import org.slf4j.*;
+import com.machinezoo.noexception.slf4j.*;
+import com.machinezoo.stagean.*;
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.Timer;
+
+/*
+ * Multi-tenant applications cannot share one reactive executor, because a storm of invalidations in one tenant
+ * fills the queue and inflates latency of all other tenants. Separate executors per tenant would isolate tenants,
+ * but every executor has its own threads, so the JVM ends up with many times more threads than cores.
+ *
+ * Executor group instead creates logical reactive executor for every tenant. Tenant executor has its own queue and event counter,
+ * so event ordering, priorities, and overflow policy work within the tenant exactly like in standalone reactive executor.
+ * Tenant executors however have no threads of their own. Their tasks are executed by carrier threads shared by the whole group.
+ *
+ * Carriers choose tenants using deficit round robin. Tenants with queued tasks form a circular list.
+ * Tenant at the head of the list is served as long as it has positive deficit. Otherwise its deficit is increased
+ * by quantum proportional to tenant's weight and the tenant is moved to the end of the list.
+ * Execution time of every task is subtracted from tenant's deficit, so tenants share carriers in proportion to their weights
+ * regardless of how long their tasks are. Task cost is known only after the task completes, so tenant can go into debt,
+ * which it then repays by waiting for other tenants. Tenant that runs out of tasks forfeits positive deficit, but it keeps its debt.
+ *
+ * Tenant executors are instances of ReactiveExecutor, so they can be used anywhere reactive executor is expected.
+ * Since they have no threads of their own, thread pool configuration and statistics of ThreadPoolExecutor do not apply to them.
+ */
+/**
+ * Group of logical reactive executors that fairly share one set of carrier threads.
+ */
+@StubDocs
+public class ReactiveExecutorGroup {
+	private static final Logger logger = LoggerFactory.getLogger(ReactiveExecutorGroup.class);
+	/*
+	 * Execution time granted to tenant of weight 1 in every round.
+	 * It is long enough to amortize round robin overhead over many short reactive tasks.
+	 */
+	private static final long QUANTUM = TimeUnit.MILLISECONDS.toNanos(1);
+	/*
+	 * Group name tags metrics of all tenants, so that tenants of different groups can have the same name.
+	 * It should be unique in the JVM. Unnamed groups get generated names.
+	 */
+	private final String name;
+	private static final AtomicInteger counter = new AtomicInteger();
+	private final ThreadFactory threads;
+	/*
+	 * Tenants with queued tasks. Guarded by this group's lock.
+	 */
+	private final Deque<Tenant> active = new ArrayDeque<>();
+	private boolean shutdown;
+	private final List<Thread> carriers = new ArrayList<>();
+	public ReactiveExecutorGroup(String name, int parallelism, ThreadFactory threads) {
+		Objects.requireNonNull(name);
+		if (parallelism <= 0)
+			throw new IllegalArgumentException();
+		Objects.requireNonNull(threads);
+		this.name = name;
+		this.threads = threads;
+		for (int i = 0; i < parallelism; ++i) {
+			Thread thread = threads.newThread(this::carry);
+			carriers.add(thread);
+			thread.start();
+		}
+	}
+	public ReactiveExecutorGroup(String name, int parallelism) {
+		this(name, parallelism, Executors.defaultThreadFactory());
+	}
+	public ReactiveExecutorGroup(String name) {
+		this(name, Runtime.getRuntime().availableProcessors());
+	}
+	public ReactiveExecutorGroup(int parallelism, ThreadFactory threads) {
+		this("group-" + counter.incrementAndGet(), parallelism, threads);
+	}
+	public ReactiveExecutorGroup(int parallelism) {
+		this(parallelism, Executors.defaultThreadFactory());
+	}
+	public ReactiveExecutorGroup() {
+		this(Runtime.getRuntime().availableProcessors());
+	}
+	public String name() {
+		return name;
+	}
+	/*
+	 * Tenants that were not terminated yet. Group shutdown shuts them all down. Guarded by this group's lock.
+	 */
+	private final Set<Tenant> tenants = new HashSet<>();
+	/*
+	 * Submissions that passed admission check but did not reach the queue yet. Carriers do not exit while there are any.
+	 */
+	private int pending;
+	/*
+	 * Metrics are tagged with group and tenant name, so tenant names must be unique within the group.
+	 * Names are released and meters removed when the tenant terminates. Guarded by this group's lock.
+	 */
+	private final Set<String> names = new HashSet<>();
+	private static class Tenant extends ReactiveExecutor {
+		final ReactiveExecutorGroup group;
+		final String name;
+		final int weight;
+		/*
+		 * All these fields are guarded by group's lock.
+		 * Busy count includes running tasks and pending submissions. Tenant terminates only when it drops to zero.
+		 * ThreadPoolExecutor cannot track this, because it has no workers and it would terminate as soon as the queue is empty.
+		 */
+		long deficit;
+		boolean active;
+		int busy;
+		/*
+		 * Per-tenant metrics. Latency is time spent in the queue. Task timer measures execution time and its count is throughput.
+		 */
+		final Timer latency;
+		final Timer tasks;
+		final Gauge queue;
+		final CountDownLatch termination = new CountDownLatch(1);
+		Tenant(ReactiveExecutorGroup group, String name, int weight) {
+			super(1, group.threads);
+			this.group = group;
+			this.name = name;
+			this.weight = weight;
+			Tags tags = Tags.of("group", group.name, "tenant", name);
+			latency = Timer.builder("hookless.tenant.latency").tags(tags).register(Metrics.globalRegistry);
+			tasks = Timer.builder("hookless.tenant.tasks").tags(tags).register(Metrics.globalRegistry);
+			queue = Gauge.builder("hookless.tenant.queue", this, x -> x.getQueue().size()).tags(tags).register(Metrics.globalRegistry);
+		}
+		@Override
+		void enqueue(ReactiveTask task) {
+			if (!group.admit(this)) {
+				getRejectedExecutionHandler().rejectedExecution(task, this);
+				return;
+			}
+			boolean offered = false;
+			try {
+				offered = getQueue().offer(task);
+			} finally {
+				group.admitted(this, offered);
+			}
+			if (!offered)
+				getRejectedExecutionHandler().rejectedExecution(task, this);
+		}
+		@Override
+		boolean timestamped() {
+			return true;
+		}
+		@Override
+		public void shutdown() {
+			super.shutdown();
+			group.settle(this);
+		}
+		@Override
+		public List<Runnable> shutdownNow() {
+			List<Runnable> drained = super.shutdownNow();
+			group.settle(this);
+			return drained;
+		}
+		@Override
+		public boolean isTerminated() {
+			return termination.getCount() == 0;
+		}
+		@Override
+		public boolean isTerminating() {
+			return isShutdown() && !isTerminated();
+		}
+		@Override
+		public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+			return termination.await(timeout, unit);
+		}
+		/*
+		 * ThreadPoolExecutor would start its own threads if we let it.
+		 */
+		@Override
+		public void setCorePoolSize(int size) {
+			throw new UnsupportedOperationException();
+		}
+		@Override
+		public boolean prestartCoreThread() {
+			throw new UnsupportedOperationException();
+		}
+		@Override
+		public int prestartAllCoreThreads() {
+			throw new UnsupportedOperationException();
+		}
+		@Override
+		public void setAdaptiveSizing(int min, int max) {
+			throw new UnsupportedOperationException();
+		}
+		@Override
+		public String toString() {
+			return "tenant " + name + " in group " + group.name;
+		}
+	}
+	/*
+	 * Creates new logical executor. Tenant name is used to tag metrics and it must not be used by other live tenant of this group.
+	 * Tenant with higher weight gets proportionally more carrier time when tenants compete for carriers.
+	 * Tenants should be shut down when no longer needed, so that their metrics are removed.
+	 */
+	public ReactiveExecutor tenant(String name, int weight) {
+		Objects.requireNonNull(name);
+		if (weight <= 0)
+			throw new IllegalArgumentException();
+		synchronized (this) {
+			if (shutdown)
+				throw new IllegalStateException();
+			if (!names.add(name))
+				throw new IllegalArgumentException("Tenant name is already in use: " + name);
+			Tenant tenant = new Tenant(this, name, weight);
+			tenants.add(tenant);
+			return tenant;
+		}
+	}
+	public ReactiveExecutor tenant(String name) {
+		return tenant(name, 1);
+	}
+	/*
+	 * Admission check and activation are done under the lock, but the task is queued without the lock,
+	 * because queuing may block under BLOCK overflow policy. Pending submission keeps the tenant and the carriers alive.
+	 * 
+	 * Carrier polls the queue under the lock. It can therefore deactivate the tenant only if it polls before the task is queued,
+	 * in which case the submitter sees inactive tenant and activates it again.
+	 */
+	private synchronized boolean admit(Tenant tenant) {
+		if (shutdown || tenant.isShutdown())
+			return false;
+		++tenant.busy;
+		++pending;
+		return true;
+	}
+	private synchronized void admitted(Tenant tenant, boolean offered) {
+		--tenant.busy;
+		--pending;
+		if (offered && !tenant.active) {
+			tenant.active = true;
+			active.addLast(tenant);
+			notify();
+		}
+		/*
+		 * Carriers of group that was shut down wait for pending submissions before they exit.
+		 */
+		if (shutdown && pending == 0)
+			notifyAll();
+		settle(tenant);
+	}
+	/*
+	 * Terminates the tenant if it was shut down and it has no queued, running, or pending tasks.
+	 */
+	private synchronized void settle(Tenant tenant) {
+		if (tenant.isShutdown() && tenant.busy == 0 && tenant.getQueue().isEmpty() && tenant.termination.getCount() > 0) {
+			tenants.remove(tenant);
+			Metrics.globalRegistry.remove(tenant.latency);
+			Metrics.globalRegistry.remove(tenant.tasks);
+			Metrics.globalRegistry.remove(tenant.queue);
+			names.remove(tenant.name);
+			tenant.termination.countDown();
+		}
+	}
+	/*
+	 * Carriers are owned by the group, so interrupts do not stop them while the group is running.
+	 * Interrupt is remembered and restored when the carrier exits, so that tasks never run with interrupt flag set.
+	 * Interrupted carrier of group that was shut down exits without waiting for pending submissions.
+	 * Other carriers, if any, still process them.
+	 */
+	private void carry() {
+		boolean interrupted = false;
+		while (true) {
+			Tenant tenant;
+			ReactiveExecutor.ReactiveTask task;
+			synchronized (this) {
+				while (true) {
+					tenant = active.peekFirst();
+					if (tenant == null) {
+						if (shutdown && (pending == 0 || interrupted)) {
+							if (interrupted)
+								Thread.currentThread().interrupt();
+							return;
+						}
+						try {
+							wait();
+						} catch (InterruptedException ex) {
+							interrupted = true;
+						}
+						continue;
+					}
+					if (tenant.deficit <= 0) {
+						tenant.deficit += QUANTUM * tenant.weight;
+						active.addLast(active.pollFirst());
+						continue;
+					}
+					task = (ReactiveExecutor.ReactiveTask)tenant.getQueue().poll();
+					if (task != null) {
+						++tenant.busy;
+						break;
+					}
+					active.pollFirst();
+					tenant.active = false;
+					tenant.deficit = Math.min(0, tenant.deficit);
+				}
+			}
+			/*
+			 * Interrupt that arrived while the carrier was busy is not passed to the task.
+			 */
+			if (Thread.interrupted())
+				interrupted = true;
+			long start = System.nanoTime();
+			if (task.queued != 0)
+				tenant.latency.record(start - task.queued, TimeUnit.NANOSECONDS);
+			ExceptionLogging.log(logger).run(task);
+			long duration = System.nanoTime() - start;
+			tenant.tasks.record(duration, TimeUnit.NANOSECONDS);
+			synchronized (this) {
+				tenant.deficit -= duration;
+				--tenant.busy;
+				settle(tenant);
+			}
+		}
+	}
+	/*
+	 * Carriers finish all queued tasks before they exit. All tenants are shut down and new tenants cannot be created.
+	 */
+	public void shutdown() {
+		List<Tenant> tenants;
+		synchronized (this) {
+			shutdown = true;
+			notifyAll();
+			tenants = new ArrayList<>(this.tenants);
+		}
+		/*
+		 * Tenant shutdown takes ThreadPoolExecutor's lock, so do it outside of group's lock.
+		 */
+		for (Tenant tenant : tenants)
+			tenant.shutdown();
+	}
+	public synchronized boolean isShutdown() {
+		return shutdown;
+	}
+	public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+		long deadline = System.nanoTime() + unit.toNanos(timeout);
+		for (Thread carrier : carriers) {
+			long remaining = deadline - System.nanoTime();
+			if (remaining <= 0)
+				return false;
+			TimeUnit.NANOSECONDS.timedJoin(carrier, remaining);
+			if (carrier.isAlive())
+				return false;
+		}
+		return true;
+	}
+}
@@ -0,0 +1,217 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import java.util.function.*;
+import com.machinezoo.hookless.util.*;
+import com.machinezoo.stagean.*;
+
+/*
+ * Primitive variable for int counters, indexes, and sizes. Design of primitive variables is described in ReactiveVariable.
+ */
+/**
+ * {@link ReactiveVariable} specialized for {@code int} values.
+ */
+@StubDocs
+public class ReactiveIntVariable extends ReactiveVariable<Integer> implements IntSupplier {
+	/*
+	 * Value stored in the superclass is ignored except for the initial value. This field holds the current value.
+	 */
+	private volatile int current;
+	public ReactiveIntVariable(int value) {
+		super(new ReactiveValue<>(value));
+		current = value;
+	}
+	public ReactiveIntVariable() {
+		this(0);
+	}
+	@Override
+	public int getAsInt() {
+		/*
+		 * Dependency must be recorded before the value is read for the same reasons as in ReactiveVariable.value().
+		 */
+		watch();
+		return current;
+	}
+	public void set(int value) {
+		fire(assign(value));
+	}
+	/*
+	 * Equality-checked write. Caller must hold the lock.
+	 */
+	Subscription replace(int value) {
+		if (current == value)
+			return null;
+		current = value;
+		return advance();
+	}
+	/*
+	 * Equality check is first done outside of the lock like in ReactiveVariable.assign().
+	 */
+	Subscription assign(int value) {
+		if (current == value)
+			return null;
+		synchronized (this) {
+			return replace(value);
+		}
+	}
+	/*
+	 * Generic writes, notably from ReactiveTransaction and boxed read-modify-write methods, are unpacked into the primitive field.
+	 */
+	private static int unpack(ReactiveValue<Integer> value) {
+		if (value.exception() != null || value.blocking() || value.result() == null)
+			throw new IllegalArgumentException("Primitive variable can only hold non-null non-blocking value.");
+		return value.result();
+	}
+	@Override
+	Subscription assign(ReactiveValue<Integer> value) {
+		return assign(unpack(value));
+	}
+	@Override
+	Subscription replace(ReactiveValue<Integer> value) {
+		return replace(unpack(value));
+	}
+	private volatile ReactiveValue<Integer> boxed;
+	@Override
+	ReactiveValue<Integer> stored() {
+		int value = current;
+		var boxed = this.boxed;
+		if (boxed == null || boxed.result() != value) {
+			boxed = new ReactiveValue<>(value);
+			this.boxed = boxed;
+		}
+		return boxed;
+	}
+	@Override
+	public ReactiveValue<Integer> value() {
+		watch();
+		return stored();
+	}
+	@Override
+	public Integer get() {
+		return getAsInt();
+	}
+	@Override
+	public void set(Integer value) {
+		if (value == null)
+			throw new IllegalArgumentException("Primitive variable cannot hold null.");
+		set((int)value);
+	}
+	/**
+	 * Atomically sets the value to {@code value} if current value is equal to {@code expected}.
+	 * No reactive dependency is recorded.
+	 * 
+	 * @param expected
+	 *            expected current value
+	 * @param value
+	 *            new value
+	 * @return {@code true} if current value matched {@code expected}, {@code false} otherwise
+	 */
+	public boolean compareAndSet(int expected, int value) {
+		Subscription notified;
+		synchronized (this) {
+			if (current != expected)
+				return false;
+			notified = replace(value);
+		}
+		fire(notified);
+		return true;
+	}
+	/*
+	 * Boxed overload compares values like the primitive one. It would otherwise follow equality() setting.
+	 * Null never matches, because primitive variable cannot hold null.
+	 */
+	@Override
+	public boolean compareAndSet(Integer expected, Integer value) {
+		if (value == null)
+			throw new IllegalArgumentException("Primitive variable cannot hold null.");
+		if (expected == null)
+			return false;
+		return compareAndSet((int)expected, (int)value);
+	}
+	private int modify(int operand, IntBinaryOperator function, boolean previous) {
+		int before;
+		int after;
+		Subscription notified;
+		synchronized (this) {
+			before = current;
+			after = function.applyAsInt(before, operand);
+			notified = replace(after);
+		}
+		fire(notified);
+		return previous ? before : after;
+	}
+	/**
+	 * Atomically sets new value and returns the previous one.
+	 * No reactive dependency is recorded.
+	 * 
+	 * @param value
+	 *            new value
+	 * @return previous value
+	 */
+	public int getAndSet(int value) {
+		return modify(value, (a, b) -> b, true);
+	}
+	/**
+	 * Atomically combines current value with {@code operand} and stores the result.
+	 * The function is called exactly once while holding the lock of this variable.
+	 * No reactive dependency is recorded and triggers are fired at most once.
+	 * 
+	 * @param operand
+	 *            second parameter of the {@code function}
+	 * @param function
+	 *            side-effect-free function combining current value with {@code operand}
+	 * @return previous value
+	 */
+	public int getAndAccumulate(int operand, IntBinaryOperator function) {
+		return modify(operand, function, true);
+	}
+	/**
+	 * Atomically combines current value with {@code operand} and stores the result.
+	 * This is the same as {@link #getAndAccumulate(int, IntBinaryOperator)} except that new value is returned.
+	 * 
+	 * @param operand
+	 *            second parameter of the {@code function}
+	 * @param function
+	 *            side-effect-free function combining current value with {@code operand}
+	 * @return new value
+	 */
+	public int accumulateAndGet(int operand, IntBinaryOperator function) {
+		return modify(operand, function, false);
+	}
+	/**
+	 * Atomically adds {@code delta} to current value.
+	 * 
+	 * @param delta
+	 *            value to add
+	 * @return previous value
+	 */
+	public int getAndAdd(int delta) {
+		return modify(delta, Integer::sum, true);
+	}
+	/**
+	 * Atomically adds {@code delta} to current value.
+	 * 
+	 * @param delta
+	 *            value to add
+	 * @return new value
+	 */
+	public int addAndGet(int delta) {
+		return modify(delta, Integer::sum, false);
+	}
+	public int getAndIncrement() {
+		return getAndAdd(1);
+	}
+	public int incrementAndGet() {
+		return addAndGet(1);
+	}
+	public int getAndDecrement() {
+		return getAndAdd(-1);
+	}
+	public int decrementAndGet() {
+		return addAndGet(-1);
+	}
+	@Override
+	public String toString() {
+		return OwnerTrace.of(this) + " = " + current;
+	}
+}
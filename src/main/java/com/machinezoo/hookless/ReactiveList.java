@@ -0,0 +1,152 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import java.util.*;
+import com.machinezoo.hookless.util.*;
+import com.machinezoo.stagean.*;
+
+/*
+ * List counterpart of ReactiveMap. Dependencies are tracked per index.
+ * Reading an element depends only on the element at that index, so appending or replacing other elements does not invalidate it.
+ * Insertions and removals shift elements, which changes all indexes from the modified position to the end of the list.
+ *
+ * Reading out of bounds depends on size, because the read becomes valid when the list grows.
+ * Searching (indexOf(), contains()) depends on the whole content like iteration.
+ */
+/**
+ * Reactive array list with per-index dependency tracking.
+ *
+ * @param <E>
+ *            type of elements
+ */
+@StubDocs
+public class ReactiveList<E> {
+	private final List<E> list = new ArrayList<>();
+	private final ReactiveTokens indexes = new ReactiveTokens(this, "index");
+	private final ReactiveVariable<Object> size = OwnerTrace.of(new ReactiveVariable<Object>(new Object()))
+		.parent(this)
+		.tag("role", "size")
+		.target();
+	private final ReactiveVariable<Object> content = OwnerTrace.of(new ReactiveVariable<Object>(new Object()))
+		.parent(this)
+		.tag("role", "content")
+		.target();
+	public ReactiveList() {
+		OwnerTrace.of(this).alias("list");
+	}
+	public ReactiveList(Collection<? extends E> collection) {
+		this();
+		list.addAll(collection);
+	}
+	public synchronized E get(int index) {
+		if (index < 0 || index >= list.size()) {
+			size.watch();
+			throw new IndexOutOfBoundsException(index);
+		}
+		indexes.watch(index);
+		return list.get(index);
+	}
+	public synchronized int size() {
+		size.watch();
+		return list.size();
+	}
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+	public synchronized int indexOf(Object element) {
+		content.watch();
+		return list.indexOf(element);
+	}
+	public boolean contains(Object element) {
+		return indexOf(element) >= 0;
+	}
+	public synchronized List<E> snapshot() {
+		content.watch();
+		return Collections.unmodifiableList(new ArrayList<>(list));
+	}
+	/*
+	 * Touches indexes in range [from, to). Must be called with the lock held.
+	 */
+	private void touch(int from, int to, List<ReactiveVariable<Object>> touched) {
+		if (to - from <= indexes.size()) {
+			for (int index = from; index < to; ++index)
+				indexes.touch(index, touched);
+		} else
+			indexes.touch(k -> (Integer)k >= from && (Integer)k < to, touched);
+	}
+	public E set(int index, E element) {
+		List<ReactiveVariable<Object>> touched = new ArrayList<>();
+		E previous;
+		synchronized (this) {
+			previous = list.set(index, element);
+			if (Objects.equals(previous, element))
+				return previous;
+			indexes.touch(index, touched);
+			touched.add(content);
+		}
+		ReactiveTokens.change(touched);
+		return previous;
+	}
+	public void add(E element) {
+		List<ReactiveVariable<Object>> touched = new ArrayList<>();
+		synchronized (this) {
+			list.add(element);
+			indexes.touch(list.size() - 1, touched);
+			touched.add(size);
+			touched.add(content);
+		}
+		ReactiveTokens.change(touched);
+	}
+	public void add(int index, E element) {
+		List<ReactiveVariable<Object>> touched = new ArrayList<>();
+		synchronized (this) {
+			list.add(index, element);
+			touch(index, list.size(), touched);
+			touched.add(size);
+			touched.add(content);
+		}
+		ReactiveTokens.change(touched);
+	}
+	public void addAll(Collection<? extends E> collection) {
+		List<ReactiveVariable<Object>> touched = new ArrayList<>();
+		synchronized (this) {
+			if (collection.isEmpty())
+				return;
+			int from = list.size();
+			list.addAll(collection);
+			touch(from, list.size(), touched);
+			touched.add(size);
+			touched.add(content);
+		}
+		ReactiveTokens.change(touched);
+	}
+	public E remove(int index) {
+		List<ReactiveVariable<Object>> touched = new ArrayList<>();
+		E previous;
+		synchronized (this) {
+			int end = list.size();
+			previous = list.remove(index);
+			touch(index, end, touched);
+			touched.add(size);
+			touched.add(content);
+		}
+		ReactiveTokens.change(touched);
+		return previous;
+	}
+	public void clear() {
+		List<ReactiveVariable<Object>> touched = new ArrayList<>();
+		synchronized (this) {
+			if (list.isEmpty())
+				return;
+			touch(0, list.size(), touched);
+			list.clear();
+			touched.add(size);
+			touched.add(content);
+		}
+		ReactiveTokens.change(touched);
+	}
+	@Override
+	public synchronized String toString() {
+		return OwnerTrace.of(this) + " = " + list;
+	}
+}
@@ -0,0 +1,242 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import java.lang.ref.*;
+import java.util.*;
+import java.util.function.*;
+import org.slf4j.*;
+import com.machinezoo.hookless.util.*;
+import com.machinezoo.noexception.slf4j.*;
+import com.machinezoo.stagean.*;
+
+/*
+ * Map stored in reactive variable invalidates all readers on every write.
+ * This map instead tracks dependencies separately for every key, for size, and for the whole content.
+ * Reads of one key (get(), containsKey()) only depend on that key, so writes to other keys do not invalidate them.
+ * Size depends only on size, so overwriting existing key does not invalidate it.
+ * Everything that iterates over the map depends on the whole content.
+ *
+ * We are not implementing java.util.Map, because its live views and iterators cannot be made reactive efficiently.
+ * Iteration is instead offered via snapshots.
+ *
+ * Writes are deduplicated by value equality like in ReactiveVariable. Writes return previous value
+ * without recording any dependency, so that read-modify-write code does not depend on what it writes.
+ *
+ * The map is guarded by single lock. Triggers are fired after the lock is released.
+ *
+ * Derived views (see ReactiveCollections) additionally observe keys of changed entries,
+ * so that they can update incrementally instead of recomputing the whole view.
+ */
+/**
+ * Reactive hash map with per-key dependency tracking.
+ *
+ * @param <K>
+ *            type of keys
+ * @param <V>
+ *            type of values
+ */
+@StubDocs
+public class ReactiveMap<K, V> {
+	private final Map<K, V> map = new HashMap<>();
+	private final ReactiveTokens keys = new ReactiveTokens(this, "key");
+	private final ReactiveVariable<Object> size = OwnerTrace.of(new ReactiveVariable<Object>(new Object()))
+		.parent(this)
+		.tag("role", "size")
+		.target();
+	private final ReactiveVariable<Object> content = OwnerTrace.of(new ReactiveVariable<Object>(new Object()))
+		.parent(this)
+		.tag("role", "content")
+		.target();
+	public ReactiveMap() {
+		OwnerTrace.of(this).alias("map");
+	}
+	public ReactiveMap(Map<? extends K, ? extends V> map) {
+		this();
+		this.map.putAll(map);
+	}
+	public synchronized V get(Object key) {
+		keys.watch(key);
+		return map.get(key);
+	}
+	public synchronized V getOrDefault(Object key, V fallback) {
+		keys.watch(key);
+		return map.getOrDefault(key, fallback);
+	}
+	public synchronized boolean containsKey(Object key) {
+		keys.watch(key);
+		return map.containsKey(key);
+	}
+	public synchronized int size() {
+		size.watch();
+		return map.size();
+	}
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+	public synchronized Map<K, V> snapshot() {
+		content.watch();
+		return Collections.unmodifiableMap(new HashMap<>(map));
+	}
+	public synchronized Set<K> keySet() {
+		content.watch();
+		return Collections.unmodifiableSet(new HashSet<>(map.keySet()));
+	}
+	public synchronized List<V> values() {
+		content.watch();
+		return Collections.unmodifiableList(new ArrayList<>(map.values()));
+	}
+	/*
+	 * Reactive triggers can only tell that something changed. Derived views need to know which keys changed.
+	 * Observers receive keys of changed entries after every write, after triggers are fired.
+	 * They are referenced weakly, so that unreferenced derived view can be collected. Derived view references its source strongly.
+	 * 
+	 * The list is copied on write, so that writers can capture it under the lock and notify observers without the lock.
+	 * Changed keys are not collected at all when there are no observers.
+	 */
+	private static final Logger logger = LoggerFactory.getLogger(ReactiveMap.class);
+	private List<WeakReference<Consumer<Collection<K>>>> observers = Collections.emptyList();
+	synchronized void observe(Consumer<Collection<K>> observer) {
+		Objects.requireNonNull(observer);
+		List<WeakReference<Consumer<Collection<K>>>> copy = new ArrayList<>();
+		for (WeakReference<Consumer<Collection<K>>> reference : observers)
+			if (reference.get() != null)
+				copy.add(reference);
+		copy.add(new WeakReference<>(observer));
+		observers = copy;
+	}
+	private static <K> void notify(List<WeakReference<Consumer<Collection<K>>>> observers, Collection<K> keys) {
+		if (keys == null || keys.isEmpty())
+			return;
+		for (WeakReference<Consumer<Collection<K>>> reference : observers) {
+			Consumer<Collection<K>> observer = reference.get();
+			if (observer != null)
+				ExceptionLogging.log(logger).consumer(observer).accept(keys);
+		}
+	}
+	/*
+	 * Non-reactive reads for derived views. They must not record dependencies,
+	 * because observers run in the thread of the writer, which might be inside unrelated reactive computation.
+	 * Absent key is reported as null entry, so that it can be distinguished from null value.
+	 */
+	synchronized Map.Entry<K, V> peek(K key) {
+		if (!map.containsKey(key))
+			return null;
+		return new AbstractMap.SimpleImmutableEntry<>(key, map.get(key));
+	}
+	synchronized List<K> peekKeys() {
+		return new ArrayList<>(map.keySet());
+	}
+	private static final int UNCHANGED = 0;
+	private static final int CHANGED = 1;
+	private static final int ADDED = 2;
+	/*
+	 * Must be called with the lock held. Touches only the key. Size and content are touched by the caller,
+	 * so that bulk writes touch them only once.
+	 * 
+	 * Equal value is not stored at all. Replacing the instance without invalidation would let readers
+	 * see different instance than the one they depend on, which ReactiveVariable never does either.
+	 */
+	private int write(K key, V value, List<ReactiveVariable<Object>> touched) {
+		boolean existed = map.containsKey(key);
+		if (existed && Objects.equals(map.get(key), value))
+			return UNCHANGED;
+		map.put(key, value);
+		keys.touch(key, touched);
+		return existed ? CHANGED : ADDED;
+	}
+	private void touch(int change, List<ReactiveVariable<Object>> touched) {
+		if (change == ADDED)
+			touched.add(size);
+		if (change != UNCHANGED)
+			touched.add(content);
+	}
+	public V put(K key, V value) {
+		List<ReactiveVariable<Object>> touched = new ArrayList<>();
+		List<WeakReference<Consumer<Collection<K>>>> observers;
+		V previous;
+		int change;
+		synchronized (this) {
+			previous = map.get(key);
+			change = write(key, value, touched);
+			touch(change, touched);
+			observers = this.observers;
+		}
+		ReactiveTokens.change(touched);
+		if (change != UNCHANGED)
+			notify(observers, Collections.singletonList(key));
+		return previous;
+	}
+	public void putAll(Map<? extends K, ? extends V> map) {
+		List<ReactiveVariable<Object>> touched = new ArrayList<>();
+		List<WeakReference<Consumer<Collection<K>>>> observers;
+		List<K> changed;
+		synchronized (this) {
+			observers = this.observers;
+			changed = observers.isEmpty() ? null : new ArrayList<>();
+			int change = UNCHANGED;
+			for (Map.Entry<? extends K, ? extends V> entry : map.entrySet()) {
+				int entryChange = write(entry.getKey(), entry.getValue(), touched);
+				if (entryChange != UNCHANGED && changed != null)
+					changed.add(entry.getKey());
+				change = Math.max(change, entryChange);
+			}
+			touch(change, touched);
+		}
+		ReactiveTokens.change(touched);
+		notify(observers, changed);
+	}
+	@SuppressWarnings("unchecked")
+	public V remove(Object key) {
+		List<ReactiveVariable<Object>> touched = new ArrayList<>();
+		List<WeakReference<Consumer<Collection<K>>>> observers;
+		V previous;
+		synchronized (this) {
+			if (!map.containsKey(key))
+				return null;
+			previous = map.remove(key);
+			keys.touch(key, touched);
+			touched.add(size);
+			touched.add(content);
+			observers = this.observers;
+		}
+		ReactiveTokens.change(touched);
+		/*
+		 * The key was present in the map, so it has type K.
+		 */
+		notify(observers, Collections.singletonList((K)key));
+		return previous;
+	}
+	public void clear() {
+		List<ReactiveVariable<Object>> touched = new ArrayList<>();
+		List<WeakReference<Consumer<Collection<K>>>> observers;
+		List<K> changed;
+		synchronized (this) {
+			if (map.isEmpty())
+				return;
+			observers = this.observers;
+			changed = observers.isEmpty() ? null : new ArrayList<>(map.keySet());
+			if (map.size() <= keys.size()) {
+				for (K key : map.keySet())
+					keys.touch(key, touched);
+			} else
+				keys.touch(map::containsKey, touched);
+			map.clear();
+			touched.add(size);
+			touched.add(content);
+		}
+		ReactiveTokens.change(touched);
+		notify(observers, changed);
+	}
+	/*
+	 * Derived view references its operator, which references the source, so that the whole chain lives as long as the view.
+	 */
+	@SuppressWarnings("unused")
+	private Object keepalive;
+	void keepalive(Object keepalive) {
+		this.keepalive = keepalive;
+	}
+	@Override
+	public synchronized String toString() {
+		return OwnerTrace.of(this) + " = " + map;
+	}
+}
@@ -0,0 +1,27 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import com.machinezoo.stagean.*;
+
+/*
+ * Reactive executor keeps separate queue (lane) for every priority. Events are ordered within every lane.
+ * Interactive lane is preferred, but background lane is guaranteed configurable share of executions,
+ * so that background computations are slowed down under load, but they are not starved.
+ */
+/**
+ * Priority lane of tasks in {@link ReactiveExecutor}.
+ * 
+ * @see ReactiveThread#priority(ReactivePriority)
+ * @see ReactiveExecutor#setBackgroundShare(double)
+ */
+@StubDocs
+public enum ReactivePriority {
+	/*
+	 * Latency-critical computations, typically UI refresh. This is the default.
+	 */
+	INTERACTIVE,
+	/*
+	 * Throughput-oriented computations like reindexing that can tolerate delays.
+	 */
+	BACKGROUND
+}
@@ -0,0 +1,410 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+
+/*
+ * Work queue of reactive executor. Tasks are executed in event order and FIFO order within every event.
+ *
+ * Older versions of reactive executor used PriorityBlockingQueue ordered by event ID and global task ID.
+ * That queue is guarded by single lock, which serializes all submissions and all takes across all pool threads.
+ * On machines with many cores, the queue lock becomes the bottleneck of the whole executor.
+ *
+ * This queue instead keeps one lock-free FIFO (bucket) per event in a concurrent skip list sorted by event ID.
+ * There are usually only two or three events active at any time, so the skip list is tiny
+ * and nearly all operations are reduced to CAS on the tail or head of one of the bucket FIFOs.
+ * Ordering is slightly relaxed compared to the priority queue. Concurrently submitted tasks of the same event
+ * are not strictly ordered, but that was never guaranteed, because submitting threads race anyway.
+ *
+ * Blocking takes are implemented with a semaphore that counts queued tasks.
+ * Taker first acquires a permit, which guarantees there is a task for it somewhere in the buckets,
+ * and then it scans buckets in event order for the first task.
+ *
+ * Tasks are additionally split into priority lanes, each with its own buckets. Events are ordered only within lane.
+ * Taker scans interactive lane first except for every n-th take, which scans background lane first.
+ * Background tasks thus get configured share of executions when both lanes are busy
+ * and all executions when interactive lane is empty. Counting takes is cheaper and simpler than tracking execution time
+ * and it is good enough, because reactive tasks are short.
+ *
+ * The queue is unbounded by default. Reactive threads queue at most one iteration each, so queue length is normally bounded
+ * by the number of reactive threads, but that can still be millions. Optional capacity limits queue length
+ * and overflow policy defines what happens when the queue is full. See ReactiveExecutor.Overflow.
+ */
+class ReactiveQueue extends AbstractQueue<Runnable> implements BlockingQueue<Runnable> {
+	private static class Bucket {
+		final long eventId;
+		final ConcurrentLinkedQueue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+		/*
+		 * Number of tasks added to the bucket and not yet removed. Negative value means the bucket is retired.
+		 * Empty bucket is retired by whoever removes its last task. Retired bucket is removed from the map
+		 * and submitters that still see it in the map help remove it and then retry with new bucket.
+		 * This protocol ensures no task can be added to a bucket after it is removed from the map.
+		 */
+		final AtomicInteger pending = new AtomicInteger();
+		Bucket(long eventId) {
+			this.eventId = eventId;
+		}
+	}
+	private static class Lane {
+		final ConcurrentSkipListMap<Long, Bucket> buckets = new ConcurrentSkipListMap<>();
+		/*
+		 * Nearly all submissions go to the same event, so we cache its bucket to avoid skip list lookup.
+		 */
+		volatile Bucket recent;
+	}
+	private final Lane[] lanes = Arrays.stream(ReactivePriority.values()).map(p -> new Lane()).toArray(Lane[]::new);
+	private final Lane interactive = lanes[ReactivePriority.INTERACTIVE.ordinal()];
+	private final Lane background = lanes[ReactivePriority.BACKGROUND.ordinal()];
+	/*
+	 * Every period-th take prefers background lane. Zero period means background lane is only served when interactive lane is empty.
+	 * Races on the take counter are benign. They only shift the share slightly.
+	 */
+	private volatile int period = 10;
+	private final AtomicLong takes = new AtomicLong();
+	double share() {
+		int period = this.period;
+		return period == 0 ? 0 : 1.0 / period;
+	}
+	void share(double share) {
+		if (!(share >= 0 && share <= 1))
+			throw new IllegalArgumentException();
+		period = share == 0 ? 0 : (int)Math.max(1, Math.min(Integer.MAX_VALUE, Math.round(1 / share)));
+	}
+	private volatile int capacity = Integer.MAX_VALUE;
+	int capacity() {
+		return capacity;
+	}
+	void capacity(int capacity) {
+		if (capacity <= 0)
+			throw new IllegalArgumentException();
+		this.capacity = capacity;
+		/*
+		 * Blocked submitters may fit into increased capacity.
+		 */
+		signal();
+	}
+	private volatile ReactiveExecutor.Overflow overflow = ReactiveExecutor.Overflow.REJECT;
+	ReactiveExecutor.Overflow overflow() {
+		return overflow;
+	}
+	void overflow(ReactiveExecutor.Overflow overflow) {
+		Objects.requireNonNull(overflow);
+		this.overflow = overflow;
+		signal();
+	}
+	/*
+	 * Exact count of queued tasks. Unlike permits, it is decremented when the task is actually removed from its bucket.
+	 */
+	private final AtomicInteger queued = new AtomicInteger();
+	private final LongAdder rejected = new LongAdder();
+	long rejected() {
+		return rejected.sum();
+	}
+	/*
+	 * Blocked submitters wait on this monitor. Takers only signal when somebody is waiting, so that unblocked queue pays nothing.
+	 */
+	private final Object space = new Object();
+	private volatile int waiting;
+	private void signal() {
+		if (waiting > 0) {
+			synchronized (space) {
+				space.notifyAll();
+			}
+		}
+	}
+	private boolean reserve(int limit) {
+		while (true) {
+			int count = queued.get();
+			if (count >= limit)
+				return false;
+			if (queued.compareAndSet(count, count + 1))
+				return true;
+		}
+	}
+	private boolean admit(Runnable task) {
+		int capacity = this.capacity;
+		if (capacity == Integer.MAX_VALUE) {
+			queued.incrementAndGet();
+			return true;
+		}
+		ReactiveExecutor.ReactiveTask reactive = task instanceof ReactiveExecutor.ReactiveTask ? (ReactiveExecutor.ReactiveTask)task : null;
+		switch (overflow) {
+		case REJECT:
+			return reserve(capacity);
+		case SHED:
+			/*
+			 * Background tasks can only fill half of the queue. The other half is reserved for interactive tasks.
+			 */
+			return reserve(reactive != null && reactive.priority == ReactivePriority.BACKGROUND ? Math.max(1, capacity / 2) : capacity);
+		case BLOCK:
+			/*
+			 * Pool threads are the consumers of the queue. Blocking them would deadlock, so their tasks are always admitted.
+			 * Backpressure is thus applied only to code outside of the pool, typically writers of reactive variables
+			 * whose writes trigger invalidations that schedule reactive threads.
+			 */
+			if (reactive != null && reactive.executor != null && ReactiveExecutor.current() == reactive.executor) {
+				queued.incrementAndGet();
+				return true;
+			}
+			/*
+			 * Nonblocking submissions (see ReactiveExecutor.tryExecute()) behave as if the policy was REJECT.
+			 */
+			if (reactive != null && reactive.nonblocking)
+				return reserve(capacity);
+			if (reserve(capacity))
+				return true;
+			synchronized (space) {
+				++waiting;
+				try {
+					while (!reserve(this.capacity)) {
+						if (overflow != ReactiveExecutor.Overflow.BLOCK)
+							return reserve(this.capacity);
+						space.wait();
+					}
+					return true;
+				} catch (InterruptedException ex) {
+					/*
+					 * Interrupted submitter gets rejection. Preserve interrupt status for the caller.
+					 */
+					Thread.currentThread().interrupt();
+					return false;
+				} finally {
+					--waiting;
+				}
+			}
+		default:
+			throw new IllegalStateException();
+		}
+	}
+	private void released() {
+		queued.decrementAndGet();
+		signal();
+	}
+	/*
+	 * Semaphore's protected reducePermits() is used to forget tasks that are removed from the queue without taking.
+	 */
+	@SuppressWarnings("serial")
+	private static class Permits extends Semaphore {
+		Permits() {
+			super(0);
+		}
+		void reduce() {
+			reducePermits(1);
+		}
+	}
+	private final Permits permits = new Permits();
+	private Lane lane(Object task) {
+		/*
+		 * Foreign tasks go to interactive lane, so that they are not delayed.
+		 */
+		return task instanceof ReactiveExecutor.ReactiveTask ? lanes[((ReactiveExecutor.ReactiveTask)task).priority.ordinal()] : interactive;
+	}
+	private static long eventId(Object task) {
+		/*
+		 * ThreadPoolExecutor only queues our own tasks, but tolerate other tasks just in case. They go last.
+		 */
+		return task instanceof ReactiveExecutor.ReactiveTask ? ((ReactiveExecutor.ReactiveTask)task).eventId : Long.MAX_VALUE;
+	}
+	private static Bucket bucket(Lane lane, long eventId) {
+		Bucket bucket = lane.recent;
+		if (bucket != null && bucket.eventId == eventId)
+			return bucket;
+		bucket = lane.buckets.get(eventId);
+		if (bucket == null) {
+			Bucket created = new Bucket(eventId);
+			bucket = lane.buckets.putIfAbsent(eventId, created);
+			if (bucket == null)
+				bucket = created;
+		}
+		lane.recent = bucket;
+		return bucket;
+	}
+	@Override
+	public boolean offer(Runnable task) {
+		Objects.requireNonNull(task);
+		if (!admit(task)) {
+			if (!(task instanceof ReactiveExecutor.ReactiveTask && ((ReactiveExecutor.ReactiveTask)task).uncounted))
+				rejected.increment();
+			return false;
+		}
+		long eventId = eventId(task);
+		Lane lane = lane(task);
+		while (true) {
+			Bucket bucket = bucket(lane, eventId);
+			int pending = bucket.pending.get();
+			if (pending < 0) {
+				lane.buckets.remove(eventId, bucket);
+				if (lane.recent == bucket)
+					lane.recent = null;
+				continue;
+			}
+			if (bucket.pending.compareAndSet(pending, pending + 1)) {
+				bucket.tasks.add(task);
+				break;
+			}
+		}
+		permits.release();
+		return true;
+	}
+	private void removed(Lane lane, Bucket bucket) {
+		if (bucket.pending.decrementAndGet() == 0 && bucket.pending.compareAndSet(0, -1))
+			lane.buckets.remove(bucket.eventId, bucket);
+		released();
+	}
+	private Runnable pollLane(Lane lane) {
+		for (Bucket bucket : lane.buckets.values()) {
+			Runnable task = bucket.tasks.poll();
+			if (task != null) {
+				removed(lane, bucket);
+				return task;
+			}
+		}
+		return null;
+	}
+	/*
+	 * Caller must hold a permit.
+	 */
+	private Runnable dequeue(boolean blocking) throws InterruptedException {
+		int period = this.period;
+		boolean preferBackground = period > 0 && takes.getAndIncrement() % period == 0;
+		Lane first = preferBackground ? background : interactive;
+		Lane second = preferBackground ? interactive : background;
+		while (true) {
+			Runnable task = pollLane(first);
+			if (task == null)
+				task = pollLane(second);
+			if (task != null)
+				return task;
+			/*
+			 * Task we were counting on was added to a bucket we have already scanned or it was removed via remove().
+			 * Return the permit and wait for another one. This will not block if there are other tasks.
+			 */
+			permits.release();
+			if (blocking)
+				permits.acquire();
+			else if (!permits.tryAcquire())
+				return null;
+		}
+	}
+	@Override
+	public Runnable poll() {
+		if (!permits.tryAcquire())
+			return null;
+		try {
+			return dequeue(false);
+		} catch (InterruptedException ex) {
+			/*
+			 * Cannot happen. Non-blocking dequeue is never interrupted.
+			 */
+			throw new IllegalStateException(ex);
+		}
+	}
+	@Override
+	public Runnable take() throws InterruptedException {
+		permits.acquire();
+		return dequeue(true);
+	}
+	/*
+	 * Timed poll may return null slightly early in rare cases, which ThreadPoolExecutor treats as a timeout.
+	 */
+	@Override
+	public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+		return permits.tryAcquire(timeout, unit) ? dequeue(false) : null;
+	}
+	@Override
+	public Runnable peek() {
+		for (Lane lane : lanes) {
+			for (Bucket bucket : lane.buckets.values()) {
+				Runnable task = bucket.tasks.peek();
+				if (task != null)
+					return task;
+			}
+		}
+		return null;
+	}
+	@Override
+	public void put(Runnable task) {
+		offer(task);
+	}
+	@Override
+	public boolean offer(Runnable task, long timeout, TimeUnit unit) {
+		return offer(task);
+	}
+	@Override
+	public int remainingCapacity() {
+		int capacity = this.capacity;
+		return capacity == Integer.MAX_VALUE ? Integer.MAX_VALUE : Math.max(0, capacity - queued.get());
+	}
+	/*
+	 * Used by ThreadPoolExecutor.remove() and purge().
+	 */
+	@Override
+	public boolean remove(Object task) {
+		Lane lane = lane(task);
+		Bucket bucket = lane.buckets.get(eventId(task));
+		if (bucket == null || !bucket.tasks.remove(task))
+			return false;
+		removed(lane, bucket);
+		permits.reduce();
+		return true;
+	}
+	/*
+	 * Size is approximate. It does not include tasks that are just being taken.
+	 */
+	@Override
+	public int size() {
+		return Math.max(0, permits.availablePermits());
+	}
+	@Override
+	public boolean isEmpty() {
+		return peek() == null;
+	}
+	@Override
+	public Iterator<Runnable> iterator() {
+		List<Runnable> snapshot = new ArrayList<>();
+		for (Lane lane : lanes)
+			for (Bucket bucket : lane.buckets.values())
+				snapshot.addAll(bucket.tasks);
+		Iterator<Runnable> iterator = snapshot.iterator();
+		return new Iterator<Runnable>() {
+			Runnable last;
+			@Override
+			public boolean hasNext() {
+				return iterator.hasNext();
+			}
+			@Override
+			public Runnable next() {
+				last = iterator.next();
+				return last;
+			}
+			@Override
+			public void remove() {
+				if (last == null)
+					throw new IllegalStateException();
+				ReactiveQueue.this.remove(last);
+				last = null;
+			}
+		};
+	}
+	@Override
+	public int drainTo(Collection<? super Runnable> collection) {
+		return drainTo(collection, Integer.MAX_VALUE);
+	}
+	@Override
+	public int drainTo(Collection<? super Runnable> collection, int max) {
+		Objects.requireNonNull(collection);
+		if (collection == this)
+			throw new IllegalArgumentException();
+		int count = 0;
+		while (count < max) {
+			Runnable task = poll();
+			if (task == null)
+				break;
+			collection.add(task);
+			++count;
+		}
+		return count;
+	}
+}
@@ -1,13 +1,11 @@
 // Part of Hookless: https://hookless.machinezoo.com
 package com.machinezoo.hookless;
 
-import static java.util.stream.Collectors.*;
 import java.util.*;
 import java.util.function.*;
 import com.machinezoo.closeablescope.*;
 import com.machinezoo.hookless.util.*;
 import com.machinezoo.stagean.*;
-import it.unimi.dsi.fastutil.objects.*;
 
 /*
  * This is the thread-local thing that is essential for hookless way of doing reactivity.
@@ -86,52 +84,176 @@ public class ReactiveScope {
 	}
 	/*
 	 * We can only depend on one version of every variable, which means we need a map from variables to their versions.
+	 * 
+	 * General-purpose hash map is however wasteful here. Computations run in large numbers and every one of them
+	 * would allocate new map and grow it while recording dependencies, only to throw it away when the computation ends.
+	 * We instead keep variables and versions in parallel arrays and we add open-addressed index once there are enough of them.
+	 * Small dependency lists are searched linearly, which is faster than hashing.
+	 * 
+	 * Dependency buffers are recycled via thread-local pool. Reactive thread and other internal users of the scope
+	 * release the buffer when they no longer need the scope. Scopes that are never released just leave the buffer to GC.
+	 */
+	static final class Dependencies {
+		/*
+		 * Linear search is faster than hashing for short dependency lists.
+		 */
+		private static final int LINEAR = 8;
+		/*
+		 * Don't keep huge buffers in the pool. They would waste memory and take long to clear.
+		 */
+		private static final int POOLED = 4096;
+		ReactiveVariable<?>[] variables = new ReactiveVariable<?>[LINEAR];
+		long[] versions = new long[LINEAR];
+		int count;
+		/*
+		 * Open-addressed index with linear probing. It stores positions in the arrays above, offset by one, so that zero means empty slot.
+		 * Variables have precomputed random hashCode(), so we don't need to scramble it.
+		 */
+		private int[] index;
+		private boolean indexed;
+		int find(ReactiveVariable<?> variable) {
+			if (!indexed) {
+				for (int i = 0; i < count; ++i)
+					if (variables[i] == variable)
+						return i;
+				return -1;
+			}
+			int mask = index.length - 1;
+			for (int slot = variable.hashCode() & mask; index[slot] != 0; slot = (slot + 1) & mask) {
+				int position = index[slot] - 1;
+				if (variables[position] == variable)
+					return position;
+			}
+			return -1;
+		}
+		void add(ReactiveVariable<?> variable, long version) {
+			if (count == variables.length) {
+				variables = Arrays.copyOf(variables, 2 * count);
+				versions = Arrays.copyOf(versions, 2 * count);
+			}
+			variables[count] = variable;
+			versions[count] = version;
+			++count;
+			if (indexed) {
+				if (2 * count > index.length)
+					reindex();
+				else
+					insert(count - 1);
+			} else if (count > LINEAR)
+				reindex();
+		}
+		private void insert(int position) {
+			int mask = index.length - 1;
+			int slot = variables[position].hashCode() & mask;
+			while (index[slot] != 0)
+				slot = (slot + 1) & mask;
+			index[slot] = position + 1;
+		}
+		private void reindex() {
+			/*
+			 * Index from recycled buffer can be reused, because it was cleared when recycled.
+			 * Index that is already in use is only ever replaced with a larger one.
+			 */
+			int size = Integer.highestOneBit(4 * count - 1);
+			if (indexed || index == null || index.length < size)
+				index = new int[size];
+			indexed = true;
+			for (int i = 0; i < count; ++i)
+				insert(i);
+		}
+		boolean recycle() {
+			if (variables.length > POOLED)
+				return false;
+			Arrays.fill(variables, 0, count, null);
+			count = 0;
+			if (indexed) {
+				Arrays.fill(index, 0);
+				indexed = false;
+			}
+			return true;
+		}
+	}
+	private Dependencies dependencies;
+	private static final ThreadLocal<Dependencies> pool = new ThreadLocal<>();
+	private Dependencies dependencies() {
+		if (dependencies == null) {
+			dependencies = pool.get();
+			if (dependencies != null)
+				pool.set(null);
+			else
+				dependencies = new Dependencies();
+		}
+		return dependencies;
+	}
+	/*
+	 * Package-private, because released scope forgets its dependencies and callers would be surprised by that.
+	 * Internal users call this after the scope has been used to arm a trigger or merged into parent scope.
 	 */
-	private Object2LongMap<ReactiveVariable<?>> dependencies = new Object2LongOpenHashMap<>();
+	void release() {
+		if (dependencies != null) {
+			if (dependencies.recycle())
+				pool.set(dependencies);
+			dependencies = null;
+		}
+	}
 	/*
 	 * However, we cannot expose a data structure like this through the API, because it can easily change.
 	 * We will instead let callers iterate over a sequence of version objects.
-	 * Efficiency is not that important. We can provide ReactiveTrigger with direct access if needed.
 	 * We most importantly care about clean API here.
+	 * ReactiveTrigger, which is the performance-sensitive consumer of dependencies, reads them directly via arm(ReactiveScope).
 	 */
 	public Collection<ReactiveVariable.Version> versions() {
-		/*
-		 * If there are invalidated pins from previous blocking computations,
-		 * we have to assume that our version list is incomplete, because pin dependencies have not been preserved.
-		 * We will return single out-of-date version in order to force reevaluation of the reactive computation,
-		 * which will hopefully complete without blocking and there will be therefore no more invalidated pins.
-		 * 
-		 * Invalidated pins do not invalidate blocking computations, because the next blocking computation will have the same pins.
-		 * If we invalidated blocking computations too, it would result in busy looping since the pins wouldn't get updated by more computations.
-		 * Blocking computations only need to wait for completion of their blocking reads in order to make progress.
-		 */
-		if (!blocked && pins != null && !pins.valid()) {
+		if (outdated())
 			return Collections.singletonList(new ReactiveVariable.Version(invalidated, invalidated.version() - 1));
-		}
-		/*
-		 * This is quite inefficient, but the API allows for very high efficiency. We could have a custom collection.
-		 */
-		List<ReactiveVariable.Version> versions = dependencies.object2LongEntrySet().stream()
-			.map(e -> new ReactiveVariable.Version(e.getKey(), e.getLongValue()))
-			.collect(toList());
+		if (dependencies == null)
+			return Collections.emptyList();
+		List<ReactiveVariable.Version> versions = new ArrayList<>(dependencies.count);
+		for (int i = 0; i < dependencies.count; ++i)
+			versions.add(new ReactiveVariable.Version(dependencies.variables[i], dependencies.versions[i]));
 		return Collections.unmodifiableCollection(versions);
 	}
-	private static ReactiveVariable<Object> invalidated = new ReactiveVariable<>();
+	/*
+	 * If there are invalidated pins from previous blocking computations,
+	 * we have to assume that our version list is incomplete, because pin dependencies have not been preserved.
+	 * We will return single out-of-date version in order to force reevaluation of the reactive computation,
+	 * which will hopefully complete without blocking and there will be therefore no more invalidated pins.
+	 * 
+	 * Invalidated pins do not invalidate blocking computations, because the next blocking computation will have the same pins.
+	 * If we invalidated blocking computations too, it would result in busy looping since the pins wouldn't get updated by more computations.
+	 * Blocking computations only need to wait for completion of their blocking reads in order to make progress.
+	 */
+	boolean outdated() {
+		return !blocked && pins != null && !pins.valid();
+	}
+	static final ReactiveVariable<Object> invalidated = new ReactiveVariable<>();
 	static {
 		invalidated.set(new Object());
 	}
+	/*
+	 * Direct access to dependencies for ReactiveTrigger. Returns null if there are no dependencies.
+	 */
+	Dependencies dependencyBuffer() {
+		return dependencies;
+	}
+	/*
+	 * Cheap dependency count for metrics. Unlike versions(), this does not allocate anything.
+	 */
+	int dependencyCount() {
+		return dependencies != null ? dependencies.count : 0;
+	}
 	/*
 	 * ReactiveVariable will call this method to add itself to the list of dependencies.
 	 * If the same variable is read twice, we want to remember version from the first access.
-	 * That's why we first check the dependency map for duplicates.
+	 * That's why we first check the dependency list for duplicates.
 	 * 
 	 * ReactiveVariable could have just as well called the method with explicit version,
 	 * but that one is a tiny bit smaller, because it cannot assume the supplied version is the latest one.
 	 */
 	public void watch(ReactiveVariable<?> variable) {
 		Objects.requireNonNull(variable);
-		if (!dependencies.containsKey(variable))
-			dependencies.put(variable, variable.version());
+		Dependencies dependencies = dependencies();
+		if (dependencies.find(variable) < 0)
+			dependencies.add(variable, variable.version());
 	}
 	/*
 	 * It is also possible to add specific version to the dependency list.
@@ -144,9 +266,12 @@ public class ReactiveScope {
 	 */
 	public void watch(ReactiveVariable<?> variable, long version) {
 		Objects.requireNonNull(variable);
-		long previous = dependencies.getLong(variable);
-		if (previous == 0 || version < previous)
-			dependencies.put(variable, version);
+		Dependencies dependencies = dependencies();
+		int position = dependencies.find(variable);
+		if (position < 0)
+			dependencies.add(variable, version);
+		else if (version < dependencies.versions[position])
+			dependencies.versions[position] = version;
 	}
 	/*
 	 * Blocking is necessary to prevent jerky display of incomplete results followed by complete results a split-second later.
@@ -223,10 +348,14 @@ public class ReactiveScope {
 			 * We must be careful here. Nested scope's versions() could return single out-of-date version due to invalidated pins.
 			 * Nevertheless, if pins have been invalidated, then nested scope must have been blocked.
 			 * If it was blocked, then checking of pin invalidation is disabled and versions() behaves normally.
-			 * All that means we can safely query versions() of the nested scope here and assume standard behavior.
+			 * All that means we can safely copy dependencies of the nested scope here and assume standard behavior.
 			 */
-			for (ReactiveVariable.Version version : scope.versions())
-				parent.watch(version.variable(), version.number());
+			Dependencies dependencies = scope.dependencies;
+			if (dependencies != null) {
+				for (int i = 0; i < dependencies.count; ++i)
+					parent.watch(dependencies.variables[i], dependencies.versions[i]);
+			}
+			scope.release();
 		};
 	}
 	/*
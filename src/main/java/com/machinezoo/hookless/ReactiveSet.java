@@ -0,0 +1,114 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import java.util.*;
+import com.machinezoo.hookless.util.*;
+import com.machinezoo.stagean.*;
+
+/*
+ * Set counterpart of ReactiveMap. Membership test depends only on the tested element.
+ * Size and iteration have their own dependencies like in ReactiveMap.
+ */
+/**
+ * Reactive hash set with per-element dependency tracking.
+ *
+ * @param <E>
+ *            type of elements
+ */
+@StubDocs
+public class ReactiveSet<E> {
+	private final Set<E> set = new HashSet<>();
+	private final ReactiveTokens elements = new ReactiveTokens(this, "element");
+	private final ReactiveVariable<Object> size = OwnerTrace.of(new ReactiveVariable<Object>(new Object()))
+		.parent(this)
+		.tag("role", "size")
+		.target();
+	private final ReactiveVariable<Object> content = OwnerTrace.of(new ReactiveVariable<Object>(new Object()))
+		.parent(this)
+		.tag("role", "content")
+		.target();
+	public ReactiveSet() {
+		OwnerTrace.of(this).alias("set");
+	}
+	public ReactiveSet(Collection<? extends E> collection) {
+		this();
+		set.addAll(collection);
+	}
+	public synchronized boolean contains(Object element) {
+		elements.watch(element);
+		return set.contains(element);
+	}
+	public synchronized int size() {
+		size.watch();
+		return set.size();
+	}
+	public boolean isEmpty() {
+		return size() == 0;
+	}
+	public synchronized Set<E> snapshot() {
+		content.watch();
+		return Collections.unmodifiableSet(new HashSet<>(set));
+	}
+	public boolean add(E element) {
+		List<ReactiveVariable<Object>> touched = new ArrayList<>();
+		synchronized (this) {
+			if (!set.add(element))
+				return false;
+			elements.touch(element, touched);
+			touched.add(size);
+			touched.add(content);
+		}
+		ReactiveTokens.change(touched);
+		return true;
+	}
+	public boolean addAll(Collection<? extends E> collection) {
+		List<ReactiveVariable<Object>> touched = new ArrayList<>();
+		synchronized (this) {
+			boolean changed = false;
+			for (E element : collection) {
+				if (set.add(element)) {
+					elements.touch(element, touched);
+					changed = true;
+				}
+			}
+			if (!changed)
+				return false;
+			touched.add(size);
+			touched.add(content);
+		}
+		ReactiveTokens.change(touched);
+		return true;
+	}
+	public boolean remove(Object element) {
+		List<ReactiveVariable<Object>> touched = new ArrayList<>();
+		synchronized (this) {
+			if (!set.remove(element))
+				return false;
+			elements.touch(element, touched);
+			touched.add(size);
+			touched.add(content);
+		}
+		ReactiveTokens.change(touched);
+		return true;
+	}
+	public void clear() {
+		List<ReactiveVariable<Object>> touched = new ArrayList<>();
+		synchronized (this) {
+			if (set.isEmpty())
+				return;
+			if (set.size() <= elements.size()) {
+				for (E element : set)
+					elements.touch(element, touched);
+			} else
+				elements.touch(set::contains, touched);
+			set.clear();
+			touched.add(size);
+			touched.add(content);
+		}
+		ReactiveTokens.change(touched);
+	}
+	@Override
+	public synchronized String toString() {
+		return OwnerTrace.of(this) + " = " + set;
+	}
+}
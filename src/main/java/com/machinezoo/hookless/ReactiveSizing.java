@@ -0,0 +1,112 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import org.slf4j.*;
+import com.machinezoo.noexception.slf4j.*;
+
+/*
+ * Adaptive sizing of reactive executor's thread pool.
+ *
+ * Reactive executor is compute-optimized. One thread per core is ideal as long as reactive computations do not block.
+ * Computations that occasionally block (e.g. when bridging futures) however leave cores idle while other tasks wait in the queue.
+ * Adaptive sizing periodically samples the pool and when tasks wait too long, it adds one thread for every blocked thread,
+ * so that the number of runnable threads stays close to core count. Extra threads are removed once they are no longer needed.
+ *
+ * Core count comes from Runtime.availableProcessors(), which is container-aware and reflects cgroup CPU quota.
+ * It is read on every sample, so that the pool follows quota changes instead of staying oversized.
+ *
+ * Blocked thread is a thread that is executing a task and it is not RUNNABLE. Thread state is only a heuristic.
+ * Threads blocked in native I/O appear RUNNABLE and short lock waits appear as blocking.
+ * Sampling and damping (the pool shrinks by one thread per sample) keep such noise from causing oscillations.
+ *
+ * This class is not public. It is configured and monitored via methods of ReactiveExecutor.
+ */
+class ReactiveSizing {
+	private static final Logger logger = LoggerFactory.getLogger(ReactiveSizing.class);
+	private static class Sampler {
+		static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "hookless-sizing");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+	private static final long PERIOD = 100;
+	/*
+	 * Pool grows only when the oldest queued task waits at least this long. Shorter waits are normal under load.
+	 */
+	private static final long THRESHOLD = TimeUnit.MILLISECONDS.toNanos(10);
+	private final ReactiveExecutor executor;
+	final int min;
+	final int max;
+	/*
+	 * Threads that are currently executing a task. Maintained by ReactiveExecutor's beforeExecute() and afterExecute().
+	 */
+	final Set<Thread> busy = ConcurrentHashMap.newKeySet();
+	private volatile int blocked;
+	int blocked() {
+		return blocked;
+	}
+	private volatile long latency;
+	long latency() {
+		return latency;
+	}
+	private final AtomicLong grown = new AtomicLong();
+	long grown() {
+		return grown.get();
+	}
+	private final AtomicLong shrunk = new AtomicLong();
+	long shrunk() {
+		return shrunk.get();
+	}
+	private final ScheduledFuture<?> future;
+	ReactiveSizing(ReactiveExecutor executor, int min, int max) {
+		if (min <= 0 || max < min)
+			throw new IllegalArgumentException();
+		this.executor = executor;
+		this.min = min;
+		this.max = max;
+		future = Sampler.timer.scheduleWithFixedDelay(ExceptionLogging.log(logger).runnable(this::sample), PERIOD, PERIOD, TimeUnit.MILLISECONDS);
+	}
+	void stop() {
+		future.cancel(false);
+	}
+	private void sample() {
+		if (executor.isShutdown()) {
+			stop();
+			return;
+		}
+		int blocked = 0;
+		for (Thread thread : busy)
+			if (thread.getState() != Thread.State.RUNNABLE)
+				++blocked;
+		this.blocked = blocked;
+		Runnable head = executor.getQueue().peek();
+		long queued = head instanceof ReactiveExecutor.ReactiveTask ? ((ReactiveExecutor.ReactiveTask)head).queued : 0;
+		long latency = queued != 0 ? Math.max(0, System.nanoTime() - queued) : 0;
+		this.latency = latency;
+		int size = executor.getCorePoolSize();
+		int target = Math.max(min, Math.min(max, Runtime.getRuntime().availableProcessors() + blocked));
+		if (target > size && latency >= THRESHOLD) {
+			resize(size, target);
+			grown.incrementAndGet();
+		} else if (target < size) {
+			resize(size, size - 1);
+			shrunk.incrementAndGet();
+		}
+	}
+	/*
+	 * ThreadPoolExecutor requires core size to never exceed maximum size, so the order of the two calls depends on direction.
+	 */
+	private void resize(int size, int target) {
+		if (target > size) {
+			executor.setMaximumPoolSize(target);
+			executor.setCorePoolSize(target);
+		} else {
+			executor.setCorePoolSize(target);
+			executor.setMaximumPoolSize(target);
+		}
+	}
+}
@@ -194,7 +194,8 @@ public class ReactiveStateMachine<T> {
 		 * Arming the trigger can cause it to fire immediately.
 		 * We don't worry about that, because our invalidation callback is very fast and non-conflicting.
 		 */
-		trigger.arm(scope.versions());
+		trigger.arm(scope);
+		scope.release();
 	}
 	private synchronized void invalidate() {
 		if (trigger != null) {
@@ -1,6 +1,7 @@
 // Part of Hookless: https://hookless.machinezoo.com
 package com.machinezoo.hookless;
 
+import java.time.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.function.*;
@@ -11,6 +12,7 @@ import com.machinezoo.hookless.utils.*;
 import com.machinezoo.noexception.slf4j.*;
 import com.machinezoo.stagean.*;
 import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.Clock;
 import io.micrometer.core.instrument.Timer;
 
 /*
@@ -110,6 +112,50 @@ public class ReactiveThread {
 	public synchronized Executor executor() {
 		return executor;
 	}
+	/*
+	 * Priority is only respected by ReactiveExecutor. Other executors ignore it.
+	 */
+	private ReactivePriority priority = ReactivePriority.INTERACTIVE;
+	public synchronized ReactiveThread priority(ReactivePriority priority) {
+		Objects.requireNonNull(priority);
+		ensureNotStarted();
+		this.priority = priority;
+		return this;
+	}
+	public synchronized ReactivePriority priority() {
+		return priority;
+	}
+	/*
+	 * Reactive threads that depend on high-churn inputs may recompute far more often than anyone can observe.
+	 * Minimum interval between iterations (debounce) lets them skip intermediate states.
+	 * Invalidation that arrives too early is delayed until the interval elapses.
+	 * Iterations are still coalesced, so the delayed iteration sees all changes made during the interval.
+	 * 
+	 * Zero interval (the default) means no delay.
+	 */
+	private Duration interval = Duration.ZERO;
+	public synchronized ReactiveThread interval(Duration interval) {
+		Objects.requireNonNull(interval);
+		if (interval.isNegative())
+			throw new IllegalArgumentException();
+		ensureNotStarted();
+		this.interval = interval;
+		return this;
+	}
+	public synchronized Duration interval() {
+		return interval;
+	}
+	/*
+	 * Delayed iterations are scheduled on single shared timer thread, which then forwards them to the configured executor.
+	 * The timer is only created when some reactive thread actually needs it.
+	 */
+	private static class Delays {
+		static final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+			Thread thread = new Thread(runnable, "hookless-timer");
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
 	/*
 	 * While most reactive objects are garbage-collected automatically, GCing running reactive threads would be counterintuitive.
 	 * We will therefore keep all running reactive threads reachable even if the application doesn't bother to keep a reference to them.
@@ -170,6 +216,30 @@ public class ReactiveThread {
 	 */
 	private Timer.Sample sample;
 	private static final Timer timer = Metrics.timer("hookless.thread.computations");
+	/*
+	 * Per-owner metrics help find reactive threads that depend on too many variables or that react slowly to changes.
+	 * They are tagged with owner path (chain of OwnerTrace aliases), which has low cardinality unlike full OwnerTrace with tags.
+	 * Meters are looked up lazily, because owner is usually configured after the constructor runs.
+	 * 
+	 * Invalidation latency is the time from trigger firing (typically a variable write) to start of the next iteration.
+	 * It covers executor queuing and minimum interval delay, but not the computation itself, which is covered by the timer above.
+	 */
+	private DistributionSummary dependencyMetric;
+	private Timer latencyMetric;
+	private long invalidated;
+	private void recordLatency() {
+		if (invalidated != 0) {
+			if (latencyMetric == null)
+				latencyMetric = Metrics.timer("hookless.thread.latency", "owner", OwnerTrace.of(this).path());
+			latencyMetric.record(System.nanoTime() - invalidated, TimeUnit.NANOSECONDS);
+			invalidated = 0;
+		}
+	}
+	private void recordDependencies(ReactiveScope scope) {
+		if (dependencyMetric == null)
+			dependencyMetric = Metrics.summary("hookless.scope.dependencies", "owner", OwnerTrace.of(this).path());
+		dependencyMetric.record(scope.dependencyCount());
+	}
 	/*
 	 * Suppress resource warnings caused by closeable trigger not being closed after being constructed.
 	 */
@@ -177,11 +247,17 @@ public class ReactiveThread {
 	private void iterate() {
 		ReactiveScope scope;
 		synchronized (this) {
+			/*
+			 * Invalidations arriving from now on require another iteration, because this one might have already missed the change.
+			 */
+			scheduled = false;
+			iterated = System.nanoTime();
 			/*
 			 * In case stop() was called while we were waiting in executor queue.
 			 */
 			if (stopped)
 				return;
+			recordLatency();
 			scope = OwnerTrace.of(new ReactiveScope())
 				.parent(this)
 				.target();
@@ -223,6 +299,7 @@ public class ReactiveThread {
 				return;
 			if (scope.blocked())
 				pins = scope.pins();
+			recordDependencies(scope);
 			/*
 			 * Include all prior blocking computations in total latency.
 			 */
@@ -239,11 +316,36 @@ public class ReactiveThread {
 			 * Normally we would arm outside of the synchronized block, but we have to watch out for concurrent stop().
 			 * Our invalidation callback might run during arm() call, but it doesn't do anything unsafe.
 			 */
-			trigger.arm(scope.versions());
+			trigger.arm(scope);
 		}
+		/*
+		 * Dependencies are now held by the trigger. Recycle scope's dependency buffer for the next computation on this thread.
+		 */
+		scope.release();
 	}
-	@DraftCode("handle RejectedExecutionException")
-	private void schedule() {
+	/*
+	 * Reactive thread never has more than one iteration queued. This coalesces bursts of invalidations into single iteration.
+	 * 
+	 * Coalescing mostly follows from the fact that the trigger is armed only at the end of iteration
+	 * and it is closed on first invalidation, so there cannot be a second invalidation while iteration is queued.
+	 * The flag makes the guarantee explicit and it covers invalidations that race with start()
+	 * as well as iterations delayed due to minimum interval.
+	 */
+	private boolean scheduled;
+	/*
+	 * Start time (System.nanoTime()) of the last iteration, used to enforce minimum interval. Zero if there was no iteration yet.
+	 */
+	private long iterated;
+	/*
+	 * Returns submission that the caller must run after releasing the lock or null if there is nothing to submit.
+	 * Submission may block under BLOCK overflow policy (see ReactiveExecutor.Overflow)
+	 * and blocked writer must not hold this thread's monitor, because pool tasks that call stop() or getters would then
+	 * never complete and free space in the queue.
+	 */
+	private Runnable schedule() {
+		if (scheduled)
+			return null;
+		scheduled = true;
 		/*
 		 * Include scheduling latency in execution time. Latency is what we care about in UIs.
 		 * Do not overwrite existing timer sample though, because blocking computations should be included in thread's latency.
@@ -255,33 +357,105 @@ public class ReactiveThread {
 		 * Method iterate() should never throw, but let's make sure.
 		 * Use weak Runnable to allow GCing of reactive threads that are only referenced from thread pool queue.
 		 */
-		executor.execute(ExceptionLogging.log(logger).runnable(new WeakRunnable<>(this, ReactiveThread::iterate)));
+		Runnable task = ExceptionLogging.log(logger).runnable(new WeakRunnable<>(this, ReactiveThread::iterate));
+		Executor executor = this.executor;
+		ReactivePriority priority = this.priority;
+		if (!interval.isZero() && iterated != 0) {
+			long delay = interval.toNanos() - (System.nanoTime() - iterated);
+			if (delay > 0) {
+				/*
+				 * The timer holds only weak reference to this reactive thread (via WeakRunnable), so daemon threads can be still GCed.
+				 */
+				Delays.timer.schedule(() -> offer(executor, priority, task, true, RETRY_MIN), delay, TimeUnit.NANOSECONDS);
+				return null;
+			}
+		}
+		return () -> submit(executor, priority, task);
 	}
-	private synchronized void invalidate() {
-		/*
-		 * We could receive invalidation callback after stop() was called.
-		 * In that case the trigger was already destroyed and we have nothing to do here.
-		 */
-		if (stopped)
+	/*
+	 * Bounded executor (see ReactiveExecutor.Overflow) may reject the iteration. Reactive thread would then never run again,
+	 * because the scheduled flag prevents further scheduling. We instead retry later with exponential backoff.
+	 * The flag stays set in the meantime, so invalidations arriving during backoff coalesce into the retried iteration.
+	 * Retries are not counted as rejections, so that rejection count reflects rejected iterations rather than backoff steps.
+	 * Executor that was shut down will never accept the task, so there is no point in retrying.
+	 */
+	private static final long RETRY_MIN = TimeUnit.MILLISECONDS.toNanos(1);
+	private static final long RETRY_MAX = TimeUnit.SECONDS.toNanos(1);
+	/*
+	 * Submission from the thread that invalidated the reactive thread. This is where BLOCK policy applies backpressure.
+	 */
+	private static void submit(Executor executor, ReactivePriority priority, Runnable task) {
+		try {
+			if (executor instanceof ReactiveExecutor)
+				((ReactiveExecutor)executor).execute(task, priority);
+			else
+				executor.execute(task);
+		} catch (RejectedExecutionException ex) {
+			retry(executor, priority, task, RETRY_MIN);
+		}
+	}
+	/*
+	 * Submission from the shared timer thread. It must never block, because the timer serves all reactive threads in the JVM.
+	 */
+	private static void offer(Executor executor, ReactivePriority priority, Runnable task, boolean counted, long backoff) {
+		boolean accepted;
+		if (executor instanceof ReactiveExecutor)
+			accepted = ((ReactiveExecutor)executor).tryExecute(task, priority, counted);
+		else {
+			try {
+				executor.execute(task);
+				accepted = true;
+			} catch (RejectedExecutionException ex) {
+				accepted = false;
+			}
+		}
+		if (!accepted)
+			retry(executor, priority, task, backoff);
+	}
+	private static void retry(Executor executor, ReactivePriority priority, Runnable task, long backoff) {
+		if (executor instanceof ExecutorService && ((ExecutorService)executor).isShutdown()) {
+			logger.debug("Reactive thread iteration was rejected by executor that was shut down.");
 			return;
-		trigger.close();
-		schedule();
+		}
+		Delays.timer.schedule(() -> offer(executor, priority, task, false, Math.min(2 * backoff, RETRY_MAX)), backoff, TimeUnit.NANOSECONDS);
 	}
-	public synchronized ReactiveThread start() {
-		/*
-		 * It is allowed to start the thread twice. The second call has no effect.
-		 */
-		if (started)
-			return this;
-		started = true;
-		/*
-		 * It is allowed to stop the thread before it is started. In that case we don't run even a single iteration.
-		 */
-		if (stopped)
-			return this;
-		if (!daemon)
-			running.add(this);
-		schedule();
+	private void invalidate() {
+		Runnable submission;
+		synchronized (this) {
+			/*
+			 * We could receive invalidation callback after stop() was called.
+			 * In that case the trigger was already destroyed and we have nothing to do here.
+			 */
+			if (stopped)
+				return;
+			trigger.close();
+			if (invalidated == 0)
+				invalidated = System.nanoTime();
+			submission = schedule();
+		}
+		if (submission != null)
+			submission.run();
+	}
+	public ReactiveThread start() {
+		Runnable submission;
+		synchronized (this) {
+			/*
+			 * It is allowed to start the thread twice. The second call has no effect.
+			 */
+			if (started)
+				return this;
+			started = true;
+			/*
+			 * It is allowed to stop the thread before it is started. In that case we don't run even a single iteration.
+			 */
+			if (stopped)
+				return this;
+			if (!daemon)
+				running.add(this);
+			submission = schedule();
+		}
+		if (submission != null)
+			submission.run();
 		return this;
 	}
 	public synchronized void stop() {
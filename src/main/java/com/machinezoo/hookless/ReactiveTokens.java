@@ -0,0 +1,103 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import java.lang.ref.*;
+import java.util.*;
+import java.util.function.*;
+import com.machinezoo.hookless.util.*;
+
+/*
+ * Per-key invalidation tokens of reactive collections.
+ *
+ * Collection that is stored in single reactive variable makes every reader depend on the whole collection.
+ * Reactive collections instead keep one token (reactive variable with meaningless value) per key that was read reactively.
+ * Readers depend on tokens of the keys they read. Writers change tokens of the keys they modify.
+ *
+ * Tokens are created only when the key is read from reactive computation, so non-reactive use costs nothing.
+ * They are referenced weakly. Token that no computation depends on can be collected,
+ * because the next reactive read simply creates new one and nobody is interested in changes of the old one.
+ * Reactive computations reference tokens strongly while they depend on them, so live tokens are never lost.
+ *
+ * Readers must watch the token before reading the data and writers must change the token after modifying the data.
+ * Reader that runs between the two steps of a writer will then see new data with old token version,
+ * which only causes harmless extra invalidation.
+ *
+ * This class is not synchronized. It is guarded by the lock of the owning collection.
+ * Tokens are however changed outside of the lock, because that fires triggers that may run callbacks inline.
+ */
+class ReactiveTokens {
+	private final Object owner;
+	private final String role;
+	private final Map<Object, WeakReference<ReactiveVariable<Object>>> tokens = new HashMap<>();
+	/*
+	 * Cleared references are purged when the map grows past this threshold. Threshold is a multiple of live tokens,
+	 * so the cost of purging is amortized like in ReactiveVariable.
+	 */
+	private static final int PURGE_MIN = 16;
+	private int purge = PURGE_MIN;
+	ReactiveTokens(Object owner, String role) {
+		this.owner = owner;
+		this.role = role;
+	}
+	/*
+	 * Records dependency on the key in current reactive scope if there is any.
+	 */
+	void watch(Object key) {
+		if (ReactiveScope.current() == null)
+			return;
+		ReactiveVariable<Object> token = find(key);
+		if (token == null) {
+			/*
+			 * Token keeps the collection alive, because computations that depend on it expect changes from this collection.
+			 */
+			token = OwnerTrace.of(new ReactiveVariable<Object>(new Object()))
+				.parent(owner)
+				.tag(role, key)
+				.target()
+				.keepalive(owner);
+			if (tokens.size() >= purge)
+				purge();
+			tokens.put(key, new WeakReference<>(token));
+		}
+		token.watch();
+	}
+	ReactiveVariable<Object> find(Object key) {
+		WeakReference<ReactiveVariable<Object>> reference = tokens.get(key);
+		return reference != null ? reference.get() : null;
+	}
+	/*
+	 * Adds token for the key to the list of tokens that should be changed. Nothing is added if the key is not watched.
+	 */
+	void touch(Object key, List<ReactiveVariable<Object>> touched) {
+		ReactiveVariable<Object> token = find(key);
+		if (token != null)
+			touched.add(token);
+	}
+	/*
+	 * Adds tokens of all watched keys that pass the filter. This is cheaper than calling touch() for every key
+	 * when the range of affected keys is large compared to the number of watched keys.
+	 */
+	void touch(Predicate<Object> filter, List<ReactiveVariable<Object>> touched) {
+		for (Map.Entry<Object, WeakReference<ReactiveVariable<Object>>> entry : tokens.entrySet()) {
+			if (filter.test(entry.getKey())) {
+				ReactiveVariable<Object> token = entry.getValue().get();
+				if (token != null)
+					touched.add(token);
+			}
+		}
+	}
+	int size() {
+		return tokens.size();
+	}
+	private void purge() {
+		tokens.values().removeIf(r -> r.get() == null);
+		purge = Math.max(PURGE_MIN, 2 * tokens.size());
+	}
+	/*
+	 * Called after the lock of the collection is released.
+	 */
+	static void change(List<ReactiveVariable<Object>> touched) {
+		for (ReactiveVariable<Object> token : touched)
+			token.set(new Object());
+	}
+}
@@ -0,0 +1,122 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import java.util.*;
+import com.machinezoo.hookless.util.*;
+import com.machinezoo.stagean.*;
+import io.opentracing.*;
+import io.opentracing.util.*;
+
+/*
+ * Writes to reactive variables normally fire dependent triggers immediately.
+ * When many related variables are written together, dependent computations are woken up repeatedly
+ * and they may observe intermediate states in which only some of the variables were changed.
+ *
+ * Transaction buffers writes and applies them all at once in commit().
+ * Triggers are fired only after all variables have been assigned.
+ * Every trigger fires at most once, because fire() is idempotent, so dependent computations run only once per commit
+ * and, when they run, they see all the writes from the transaction.
+ *
+ * Commit is not isolated from concurrent readers. Computation that happens to run during commit
+ * might see some variables already changed and others not yet changed.
+ * Such computation is however always invalidated by the commit, because it depends on an outdated version of some variable.
+ * Full isolation would require global locking, which would defeat the lock-free read path of reactive variables.
+ *
+ * Transaction is thread-safe, but it is expected to be used by single thread in most cases.
+ */
+/**
+ * Batch of writes to {@link ReactiveVariable}s that are applied together.
+ * Dependent reactive computations are notified only after all writes are applied
+ * and every {@link ReactiveTrigger} fires at most once per {@link #commit()}.
+ * Writes are invisible to readers of the {@link ReactiveVariable}s until {@link #commit()} is called.
+ *
+ * @see ReactiveVariable#value(ReactiveValue)
+ */
+@StubDocs
+public class ReactiveTransaction {
+	public ReactiveTransaction() {
+		OwnerTrace.of(this).alias("transaction");
+	}
+	/*
+	 * Linked map keeps writes in order, so that triggers fire in the order in which variables were first written.
+	 * Repeated writes to the same variable just overwrite buffered value. Only the last one is committed.
+	 */
+	private final Map<ReactiveVariable<?>, ReactiveValue<?>> writes = new LinkedHashMap<>();
+	private boolean committed;
+	public synchronized boolean committed() {
+		return committed;
+	}
+	public synchronized <T> void value(ReactiveVariable<T> variable, ReactiveValue<T> value) {
+		Objects.requireNonNull(variable);
+		Objects.requireNonNull(value);
+		if (committed)
+			throw new IllegalStateException("Transaction was already committed.");
+		writes.put(variable, value);
+	}
+	public <T> void set(ReactiveVariable<T> variable, T value) {
+		value(variable, new ReactiveValue<>(value));
+	}
+	/*
+	 * Reads see writes buffered in this transaction. Other variables are read directly.
+	 * Reactive dependency on the variable is created either way, because buffered value will be eventually written into it.
+	 */
+	@SuppressWarnings("unchecked")
+	public <T> ReactiveValue<T> value(ReactiveVariable<T> variable) {
+		Objects.requireNonNull(variable);
+		ReactiveValue<T> buffered;
+		synchronized (this) {
+			buffered = committed ? null : (ReactiveValue<T>)writes.get(variable);
+		}
+		ReactiveValue<T> current = variable.value();
+		return buffered != null ? buffered : current;
+	}
+	public <T> T get(ReactiveVariable<T> variable) {
+		return value(variable).get();
+	}
+	public void commit() {
+		List<Map.Entry<ReactiveVariable<?>, ReactiveValue<?>>> applied;
+		synchronized (this) {
+			if (committed)
+				throw new IllegalStateException("Transaction was already committed.");
+			committed = true;
+			applied = new ArrayList<>(writes.entrySet());
+			writes.clear();
+		}
+		/*
+		 * Assign all variables first. No trigger fires until all variables have their new values.
+		 */
+		List<ReactiveVariable<?>> changed = new ArrayList<>();
+		List<ReactiveVariable.Subscription> notified = new ArrayList<>();
+		for (Map.Entry<ReactiveVariable<?>, ReactiveValue<?>> write : applied) {
+			ReactiveVariable.Subscription subscriptions = assign(write.getKey(), write.getValue());
+			if (subscriptions != null) {
+				changed.add(write.getKey());
+				notified.add(subscriptions);
+			}
+		}
+		/*
+		 * Single tracing span covers all notifications, so that the trace shows what was invalidated by the whole transaction.
+		 * Triggers subscribed to several of the written variables are encountered several times,
+		 * but only the first fire() has any effect.
+		 */
+		if (!notified.isEmpty()) {
+			Span span = GlobalTracer.get().buildSpan("hookless.commit")
+				.withTag("component", "hookless")
+				.withTag("writes", applied.size())
+				.start();
+			OwnerTrace.of(this).fill(span);
+			try (Scope trace = GlobalTracer.get().activateSpan(span)) {
+				for (int i = 0; i < notified.size(); ++i)
+					changed.get(i).fanout(ReactiveVariable.fireAll(notified.get(i)));
+			}
+		}
+	}
+	@SuppressWarnings("unchecked")
+	private static <T> ReactiveVariable.Subscription assign(ReactiveVariable<T> variable, ReactiveValue<?> value) {
+		return variable.assign((ReactiveValue<T>)value);
+	}
+	@Override
+	public String toString() {
+		return OwnerTrace.of(this).toString();
+	}
+}
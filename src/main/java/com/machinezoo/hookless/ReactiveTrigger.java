@@ -41,12 +41,13 @@ public class ReactiveTrigger implements AutoCloseable {
 		OwnerTrace.of(this).alias("trigger");
 	}
 	/*
-	 * We will keep a list of reactive variables we have subscribed to, so that we can unsubscribe from them.
-	 * Null variable list in combination with 'armed' flag also indicates that subscription is still in progress.
+	 * We will keep a list of subscriptions in reactive variables, so that we can unsubscribe from them.
+	 * Subscriptions also hold strong references to the variables, keeping them alive while the trigger is armed.
+	 * Null subscription list in combination with 'armed' flag also indicates that subscription is still in progress.
 	 * 
-	 * Variable list is implemented as a plain array to save a little memory since triggers stay around for a long time.
+	 * Subscription list is implemented as a plain array to save a little memory since triggers stay around for a long time.
 	 */
-	private ReactiveVariable<?>[] variables;
+	private ReactiveVariable.Subscription[] subscriptions;
 	/*
 	 * Arming is separate from constructor, so that callback and tags can be set first.
 	 * The version list usually comes straight from reactive scope,
@@ -62,6 +63,34 @@ public class ReactiveTrigger implements AutoCloseable {
 	}
 	public void arm(Collection<ReactiveVariable.Version> versions) {
 		Objects.requireNonNull(versions);
+		ReactiveVariable<?>[] variables = new ReactiveVariable<?>[versions.size()];
+		long[] numbers = new long[variables.length];
+		int count = 0;
+		for (ReactiveVariable.Version version : versions) {
+			variables[count] = version.variable();
+			numbers[count] = version.number();
+			++count;
+		}
+		arm(variables, numbers, count);
+	}
+	/*
+	 * Arming directly from reactive scope is equivalent to arming with scope's versions(),
+	 * but it reads dependencies straight from scope's internal buffers without creating Version objects.
+	 * This is how all reactive computations in hookless arm their triggers.
+	 */
+	public void arm(ReactiveScope scope) {
+		Objects.requireNonNull(scope);
+		if (scope.outdated())
+			arm(new ReactiveVariable<?>[] { ReactiveScope.invalidated }, new long[] { ReactiveScope.invalidated.version() - 1 }, 1);
+		else {
+			ReactiveScope.Dependencies dependencies = scope.dependencyBuffer();
+			if (dependencies != null)
+				arm(dependencies.variables, dependencies.versions, dependencies.count);
+			else
+				arm(new ReactiveVariable<?>[0], new long[0], 0);
+		}
+	}
+	private void arm(ReactiveVariable<?>[] variables, long[] versions, int count) {
 		synchronized (this) {
 			/*
 			 * Contrary to fire() and close() calls, we put some constraints on when arm() can be called,
@@ -76,30 +105,29 @@ public class ReactiveTrigger implements AutoCloseable {
 		/*
 		 * Subscription runs unsynchronized, because it could take some time and we might need to fire() during it.
 		 */
-		List<ReactiveVariable<?>> subscribed = new ArrayList<>();
-		for (ReactiveVariable.Version version : versions) {
-			version.variable().subscribe(this);
-			subscribed.add(version.variable());
+		ReactiveVariable.Subscription[] subscribed = new ReactiveVariable.Subscription[count];
+		for (int i = 0; i < count; ++i) {
+			subscribed[i] = variables[i].subscribe(this);
 			/*
 			 * If the variable has already changed, fire immediately.
 			 * This check must be done only after subscription to avoid race rules.
 			 */
-			if (version.number() != version.variable().version()) {
+			if (versions[i] != variables[i].version()) {
 				fire();
+				subscribed = Arrays.copyOf(subscribed, i + 1);
 				break;
 			}
 		}
-		ReactiveVariable<?>[] compact = subscribed.toArray(new ReactiveVariable<?>[subscribed.size()]);
-		ReactiveVariable<?>[] unsubscribed = null;
+		ReactiveVariable.Subscription[] unsubscribed = null;
 		synchronized (this) {
 			/*
 			 * We have to immediately unsubscribe all variables if the trigger was closed meantime.
-			 * If we just fired without closing, we keep the variables until close() is called.
+			 * If we just fired without closing, we keep the subscriptions until close() is called.
 			 */
 			if (closed)
-				unsubscribed = compact;
+				unsubscribed = subscribed;
 			else
-				variables = compact;
+				subscriptions = subscribed;
 		}
 		/*
 		 * Unsubscription runs unsynchronized, because it could take some time.
@@ -108,8 +136,8 @@ public class ReactiveTrigger implements AutoCloseable {
 			unsubscribe(unsubscribed);
 	}
 	/*
-	 * Reactive variables keep a set of all subscribed triggers.
-	 * Lookups in this set are sped up a bit by precomputing hashCode().
+	 * Triggers are sometimes used as keys in hash-based collections.
+	 * Lookups are sped up a bit by precomputing hashCode().
 	 */
 	private final int hashCode = ThreadLocalRandom.current().nextInt();
 	@Override
@@ -197,7 +225,7 @@ public class ReactiveTrigger implements AutoCloseable {
 	}
 	@Override
 	public void close() {
-		ReactiveVariable<?>[] unsubscribed = null;
+		ReactiveVariable.Subscription[] unsubscribed = null;
 		synchronized (this) {
 			/*
 			 * Tolerate multiple close() calls. This can happen when cleanup is done "just in case".
@@ -205,14 +233,14 @@ public class ReactiveTrigger implements AutoCloseable {
 			if (!closed) {
 				closed = true;
 				/*
-				 * If the trigger wasn't closed yet and variable list is null,
+				 * If the trigger wasn't closed yet and subscription list is null,
 				 * it means that either arm() is in progress or that it was never called.
 				 * If it was never called, then merely setting the 'closed' flag will prevent future arm() calls.
 				 * If it is in progress, then setting the 'closed' flag will inform it that it has to unsubscribe when finished.
 				 */
-				if (variables != null) {
-					unsubscribed = variables;
-					variables = null;
+				if (subscriptions != null) {
+					unsubscribed = subscriptions;
+					subscriptions = null;
 				}
 			}
 		}
@@ -222,9 +250,13 @@ public class ReactiveTrigger implements AutoCloseable {
 		if (unsubscribed != null)
 			unsubscribe(unsubscribed);
 	}
-	private void unsubscribe(ReactiveVariable<?>[] unsubscribed) {
-		for (ReactiveVariable<?> variable : unsubscribed)
-			variable.unsubscribe(this);
+	/*
+	 * Unsubscription just clears the weak reference in the subscription. It never blocks.
+	 * Cleared subscriptions are removed from the variable lazily.
+	 */
+	private static void unsubscribe(ReactiveVariable.Subscription[] unsubscribed) {
+		for (ReactiveVariable.Subscription subscription : unsubscribed)
+			subscription.clear();
 	}
 	@Override
 	public String toString() {
@@ -1,7 +1,6 @@
 // Part of Hookless: https://hookless.machinezoo.com
 package com.machinezoo.hookless;
 
-import java.io.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.function.*;
@@ -174,8 +173,11 @@ public class ReactiveValue<T> {
 			 * Some code, especially tests, runs without reactive scope but still needs to capture blocking flag.
 			 * We will create temporary scope for such cases. Everything in the scope is discarded except the blocking flag.
 			 */
-			try (CloseableScope computation = new ReactiveScope().enter()) {
+			ReactiveScope scope = new ReactiveScope();
+			try (CloseableScope computation = scope.enter()) {
 				return captureScoped(supplier);
+			} finally {
+				scope.release();
 			}
 		}
 	}
@@ -191,7 +193,7 @@ public class ReactiveValue<T> {
 	}
 	/*
 	 * Equality testing is a difficult choice. Comparing the result objects may be too expensive.
-	 * Exceptions normally cannot be compared. We have to examine the full stack trace in order to compare them, which is expensive.
+	 * Exceptions normally cannot be compared. We have to examine the full stack trace in order to compare them.
 	 * The other option is to compare exceptions by reference only, but that is inconsistent.
 	 * But without equality comparisons, we would get too many invalidations everywhere.
 	 * So we support equality here and let callers decide whether to use it.
@@ -201,7 +203,7 @@ public class ReactiveValue<T> {
 	 * {@code ReactiveValue} can only equal another {@code ReactiveValue}.
 	 * Two {@code ReactiveValue} instances are equal if their {@link #result()}, {@link #exception()}, and {@link #blocking()} flags are equal.
 	 * Value equality is used for both {@link #result()} and {@link #exception()}.
-	 * Two exceptions are equal when their stringified form (including stack trace and causes) compares equal.
+	 * Two exceptions are equal when they have the same class, message, stack trace, causes, and suppressed exceptions.
 	 * <p>
 	 * Full value equality checking may be expensive or even undesirable.
 	 * Use {@link #same(ReactiveValue)} to compute shallow reference equality.
@@ -229,7 +231,12 @@ public class ReactiveValue<T> {
 			return false;
 		if ((result != null) != (other.result != null))
 			return false;
-		return Objects.equals(result, other.result) && Objects.equals(dump(exception), dump(other.exception));
+		/*
+		 * Cached exception hashes quickly reject different exceptions, which is the common case when failing computation is rerun.
+		 */
+		if (exception != null && exception != other.exception && exceptionHash() != other.exceptionHash())
+			return false;
+		return Objects.equals(result, other.result) && equalExceptions(exception, other.exception);
 	}
 	/**
 	 * Computes hash code of this {@code ReactiveValue}.
@@ -238,8 +245,8 @@ public class ReactiveValue<T> {
 	 * This makes {@code ReactiveValue} usable as a key in a {@link Map}.
 	 * <p>
 	 * Both {@link #result()} and {@link #exception()} are included in hash code calculation.
-	 * Exceptions are hashed in such a way that two exceptions with the same stringified form
-	 * (including stack traces and causes) will have the same hash code.
+	 * Exceptions are hashed in such a way that two exceptions with the same class, message,
+	 * stack trace, causes, and suppressed exceptions will have the same hash code.
 	 * 
 	 * @return hash code of this {@code ReactiveValue}
 	 * 
@@ -250,7 +257,7 @@ public class ReactiveValue<T> {
 		/*
 		 * Reactive value is unlikely to be used as a hash key. We are free to make this inefficient.
 		 */
-		return Objects.hash(result, dump(exception), blocking);
+		return Objects.hash(result, exceptionHash(), blocking);
 	}
 	/*
 	 * Some reactive computations only use fast reference equality.
@@ -274,16 +281,98 @@ public class ReactiveValue<T> {
 		return other != null && result == other.result && exception == other.exception && blocking == other.blocking;
 	}
 	/*
-	 * There are more efficient ways to compare exceptions, but this crude solution will work for now.
-	 * It has no impact on performance in case there is no exception.
-	 * If there is an exception, nobody expects stellar performance.
+	 * Exceptions are compared structurally: class, message, stack frames, causes, and suppressed exceptions.
+	 * This is the same information that is included in the output of printStackTrace(), which we used to compare,
+	 * but no formatting is done and no large strings are allocated. Stack frames are compared element-wise.
+	 * 
+	 * Cause chains can be circular. Comparison and hashing both track only exceptions on the current recursion path,
+	 * so shared exceptions that appear in several places are traversed every time and only true cycles are cut short.
+	 * Cycles must then close at the same depth in both exceptions. Identical instances are not short-circuited below the top,
+	 * because the same instance can close a cycle in one exception and not in the other.
+	 * The paths are only allocated when there are nested exceptions to compare.
 	 */
-	private static String dump(Throwable exception) {
+	private static boolean equalExceptions(Throwable left, Throwable right) {
+		if (left == right)
+			return true;
+		if (left == null || right == null)
+			return false;
+		return equalExceptions(left, right, null, null);
+	}
+	private static int depth(List<Throwable> path, Throwable exception) {
+		if (path != null)
+			for (int i = 0; i < path.size(); ++i)
+				if (path.get(i) == exception)
+					return i;
+		return -1;
+	}
+	private static boolean equalExceptions(Throwable left, Throwable right, List<Throwable> leftPath, List<Throwable> rightPath) {
+		if (left == null || right == null)
+			return left == right;
+		if (left.getClass() != right.getClass())
+			return false;
+		if (!Objects.equals(left.getLocalizedMessage(), right.getLocalizedMessage()))
+			return false;
+		if (!Arrays.equals(left.getStackTrace(), right.getStackTrace()))
+			return false;
+		Throwable[] leftSuppressed = left.getSuppressed();
+		Throwable[] rightSuppressed = right.getSuppressed();
+		if (leftSuppressed.length != rightSuppressed.length)
+			return false;
+		if (leftSuppressed.length == 0 && left.getCause() == null && right.getCause() == null)
+			return true;
+		/*
+		 * Exceptions that are already being compared higher up are assumed equal. That comparison will decide the result.
+		 */
+		int depth = depth(leftPath, left);
+		if (depth != depth(rightPath, right))
+			return false;
+		if (depth >= 0)
+			return true;
+		if (leftPath == null) {
+			leftPath = new ArrayList<>();
+			rightPath = new ArrayList<>();
+		}
+		leftPath.add(left);
+		rightPath.add(right);
+		try {
+			for (int i = 0; i < leftSuppressed.length; ++i)
+				if (!equalExceptions(leftSuppressed[i], rightSuppressed[i], leftPath, rightPath))
+					return false;
+			return equalExceptions(left.getCause(), right.getCause(), leftPath, rightPath);
+		} finally {
+			leftPath.remove(leftPath.size() - 1);
+			rightPath.remove(rightPath.size() - 1);
+		}
+	}
+	private static int hashException(Throwable exception, List<Throwable> path) {
+		if (exception == null || depth(path, exception) >= 0)
+			return 0;
+		int hash = exception.getClass().hashCode();
+		hash = 31 * hash + Objects.hashCode(exception.getLocalizedMessage());
+		hash = 31 * hash + Arrays.hashCode(exception.getStackTrace());
+		path.add(exception);
+		for (Throwable suppressed : exception.getSuppressed())
+			hash = 31 * hash + hashException(suppressed, path);
+		hash = 31 * hash + hashException(exception.getCause(), path);
+		path.remove(path.size() - 1);
+		return hash;
+	}
+	/*
+	 * Exception hash is cached, because it is relatively expensive and reactive values are immutable.
+	 * Zero means the hash has not been computed yet. Races are benign like in String.hashCode().
+	 */
+	private int exceptionHash;
+	private int exceptionHash() {
 		if (exception == null)
-			return null;
-		StringWriter writer = new StringWriter();
-		exception.printStackTrace(new PrintWriter(writer));
-		return writer.toString();
+			return 0;
+		int hash = exceptionHash;
+		if (hash == 0) {
+			hash = hashException(exception, new ArrayList<>());
+			if (hash == 0)
+				hash = 1;
+			exceptionHash = hash;
+		}
+		return hash;
 	}
 	/**
 	 * Returns a string representation of this {@code ReactiveValue}.
@@ -1,10 +1,15 @@
 // Part of Hookless: https://hookless.machinezoo.com
 package com.machinezoo.hookless;
 
+import java.lang.invoke.*;
+import java.lang.ref.*;
 import java.util.*;
 import java.util.concurrent.*;
+import java.util.function.*;
 import com.machinezoo.hookless.util.*;
+import com.machinezoo.noexception.*;
 import com.machinezoo.stagean.*;
+import io.micrometer.core.instrument.*;
 import io.opentracing.*;
 import io.opentracing.util.*;
 
@@ -239,10 +244,18 @@ public class ReactiveVariable<T> {
 	 * Since triggers subscribe long after variable read, the variable might have changed meantime.
 	 * That's why triggers must double-check version number after they subscribe to detect such changes.
 	 * 
-	 * Triggers are smart enough not to subscribe themselves twice. We don't need the set for subscriptions.
-	 * But triggers can unsubscribe in random order, which makes the set necessary for fast unsubscription.
+	 * Triggers are smart enough not to subscribe themselves twice, so we don't need a set for subscriptions.
+	 * Older versions of hookless nevertheless kept subscribed triggers in a synchronized weak hash set,
+	 * because triggers can unsubscribe in random order and the set made unsubscription fast.
+	 * That turned out to be a major contention point for hot variables that are read by thousands of reactive computations,
+	 * because every arm() and close() on every trigger had to take the variable's lock.
 	 * 
-	 * The set is weak, so that variables don't block garbage collection of triggers.
+	 * Subscriptions are now kept in a lock-free linked list (Treiber stack). New subscriptions are pushed via CAS on list head.
+	 * Unsubscription just clears the subscription object, which is a weak reference to the trigger.
+	 * Writes detach the whole list with single atomic swap, which makes firing triggers safe without any locking.
+	 * Triggers hold subscription objects, so they don't have to search for them when unsubscribing.
+	 * 
+	 * Subscription list is weak, so that variables don't block garbage collection of triggers.
 	 * In the hookless world, strong references only go in the direction from reactive consumers to reactive sources.
 	 * Weak references are always used in the opposite direction.
 	 * That means the trigger must be held alive by something. Subscription alone wouldn't protect it from GC.
@@ -260,16 +273,76 @@ public class ReactiveVariable<T> {
 	 * Such late notification is nearly useless, so it's better to not offer the API at all
 	 * and save ourselves some complexity and performance issues.
 	 */
-	private Set<ReactiveTrigger> triggers = newTriggerSet();
-	private static Set<ReactiveTrigger> newTriggerSet() {
-		return Collections.newSetFromMap(new WeakHashMap<ReactiveTrigger, Boolean>());
+	static final class Subscription extends WeakReference<ReactiveTrigger> {
+		/*
+		 * Triggers reference variables through their subscriptions.
+		 * This reference keeps the variable alive for as long as the trigger is subscribed.
+		 */
+		final ReactiveVariable<?> variable;
+		/*
+		 * The link is written before the subscription is published via CAS on list head.
+		 * It is later modified only by purge, which merely skips cleared subscriptions.
+		 * Racing readers thus see either the old or the new link and both lead to all live subscriptions,
+		 * which is why the field does not need to be volatile.
+		 */
+		Subscription next;
+		/*
+		 * Length of the list at the time this subscription was pushed. Used to schedule purges.
+		 */
+		final int depth;
+		Subscription(ReactiveVariable<?> variable, ReactiveTrigger trigger, Subscription next) {
+			super(trigger);
+			this.variable = variable;
+			this.next = next;
+			depth = next != null ? next.depth + 1 : 1;
+		}
 	}
-	synchronized void subscribe(ReactiveTrigger result) {
-		Objects.requireNonNull(result);
-		triggers.add(result);
+	private volatile Subscription subscriptions;
+	private static final VarHandle SUBSCRIPTIONS = Exceptions.sneak().get(() -> MethodHandles.lookup()
+		.findVarHandle(ReactiveVariable.class, "subscriptions", Subscription.class));
+	Subscription subscribe(ReactiveTrigger trigger) {
+		Objects.requireNonNull(trigger);
+		Subscription subscription;
+		Subscription head;
+		do {
+			head = subscriptions;
+			subscription = new Subscription(this, trigger, head);
+		} while (!SUBSCRIPTIONS.compareAndSet(this, head, subscription));
+		if (subscription.depth >= purge)
+			purge(subscription);
+		return subscription;
 	}
-	synchronized void unsubscribe(ReactiveTrigger result) {
-		triggers.remove(result);
+	/*
+	 * Cleared subscriptions stay in the list until the next change of the variable detaches the whole list.
+	 * Variables that change rarely while being subscribed to frequently would thus accumulate garbage indefinitely.
+	 * We therefore occasionally purge the list when it grows too long.
+	 * 
+	 * Purge threshold is always set to a multiple of current number of live subscriptions.
+	 * Cost of the purge is then amortized over the subscriptions added since the last purge
+	 * and the number of cleared subscriptions in the list is bounded by the number of live ones.
+	 * 
+	 * Races on the threshold are benign. They can at worst cause purge to happen a little earlier or later.
+	 */
+	private static final int PURGE_MIN = 8;
+	private volatile int purge = PURGE_MIN;
+	private void purge(Subscription head) {
+		/*
+		 * The head is always live, because it was just pushed by the calling trigger.
+		 * We only ever modify links in live subscriptions. Subscriptions that are once cleared never come back to life.
+		 * Concurrent purges and concurrent subscriptions are therefore safe.
+		 */
+		Subscription last = head;
+		int live = 1;
+		for (Subscription current = head.next; current != null; current = current.next) {
+			if (current.get() != null) {
+				if (last.next != current)
+					last.next = current;
+				last = current;
+				++live;
+			}
+		}
+		last.next = null;
+		purge = head.depth + Math.max(live, PURGE_MIN);
 	}
 	/*
 	 * Storing reactive value in the reactive variable has the advantage
@@ -309,14 +382,21 @@ public class ReactiveVariable<T> {
 		 * and there could be a concurrent write before the variable is tracked (and version read) and reading the value.
 		 * If that happens, the tracked version will be old and trigger will detect it when it is armed.
 		 */
-		ReactiveScope current = ReactiveScope.current();
-		if (current != null)
-			current.watch(this);
+		watch();
 		/*
 		 * Unsynchronized field read relies on volatile flag on the field.
 		 */
 		return value;
 	}
+	/*
+	 * Records this variable as a dependency in current reactive scope if there is any.
+	 * This is shared with primitive variables, which must also call it before reading their value field.
+	 */
+	void watch() {
+		ReactiveScope current = ReactiveScope.current();
+		if (current != null)
+			current.watch(this);
+	}
 	/**
 	 * Sets current {@link ReactiveValue} of this {@link ReactiveVariable} and notifies dependent reactive computations.
 	 * This is the more general version of {@link #set(Object)} that allows setting arbitrary {@link ReactiveValue}.
@@ -344,6 +424,22 @@ public class ReactiveVariable<T> {
 	 */
 	public void value(ReactiveValue<T> value) {
 		Objects.requireNonNull(value);
+		/*
+		 * Writes are split in two phases, so that ReactiveTransaction can first assign many variables
+		 * and only then fire triggers subscribed to all of them.
+		 * 
+		 * We are firing triggers immediately here even though this write might be a part of a larger batch of changes.
+		 * Older versions of hookless applied transactions implicitly to all writes.
+		 * That turned out to be of little use in most code while it spread complexity everywhere.
+		 * Batching is therefore explicit and opt-in via ReactiveTransaction.
+		 * Ordinary writes rely on executor's FIFO processing to limit double invalidations.
+		 */
+		fire(assign(value));
+	}
+	/*
+	 * Returns list of triggers that should be notified about the change or null if there is nothing to notify.
+	 */
+	Subscription assign(ReactiveValue<T> value) {
 		/*
 		 * Since full equality checking can be slow, we will perform it outside of any synchronized section to avoid blocking.
 		 * 
@@ -357,63 +453,100 @@ public class ReactiveVariable<T> {
 		 * but we have to make a copy of 'value' field, because we are going to access it several times.
 		 */
 		ReactiveValue<T> previous = this.value;
-		if (!(equality ? previous.equals(value) : previous.same(value))) {
-			Set<ReactiveTrigger> notified = null;
-			synchronized (this) {
-				/*
-				 * It is important to avoid assigning new value when equality test is positive.
-				 * Value change must happen only if there is corresponding version change.
-				 * Otherwise consecutive reads from the variable could return different objects for the same version.
-				 * This would cause numerous such objects to be cached in dependent caches for a long time, wasting memory.
-				 * 
-				 * The worst case scenario is a 100MB value that is subsequently cached by thousands of dependent caches.
-				 * If every one of those caches reads different (but equal) instance of the value, a terabyte of RAM could be wasted.
-				 * Changing the value only when version changes ensures that all these caches hold reference to the same value.
-				 */
-				this.value = value;
-				++version;
-				if (!triggers.isEmpty()) {
-					/*
-					 * Completely replacing the set lets us fire triggers below without synchronization.
-					 * It also resets set capacity to zero, so oversized trigger sets don't linger around.
-					 */
-					notified = triggers;
-					triggers = newTriggerSet();
-				}
-			}
+		if (equality ? previous.equals(value) : previous.same(value))
+			return null;
+		synchronized (this) {
 			/*
-			 * This is where reactivity happens. We will notify reactive triggers about the change in this variable.
-			 * 
-			 * We are firing triggers immediately even though this write might be a part of a larger batch of changes.
-			 * Older versions of hookless had the concept of "transactions" that would fire all triggers at the very end.
-			 * This was intended to prevent invalidating the same cache twice with the same high-level write.
-			 * It turns out this is not very useful. It doesn't improve throughput much, but it spreads complexity everywhere.
-			 * We are now firing triggers without delay and rely on executor's FIFO processing to limit double invalidations.
+			 * It is important to avoid assigning new value when equality test is positive.
+			 * Value change must happen only if there is corresponding version change.
+			 * Otherwise consecutive reads from the variable could return different objects for the same version.
+			 * This would cause numerous such objects to be cached in dependent caches for a long time, wasting memory.
 			 * 
-			 * Fire triggers outside of the synchronized block. Triggers might run their callbacks inline,
-			 * which might take a lot of time and these callbacks may perform writes back to the variable.
+			 * The worst case scenario is a 100MB value that is subsequently cached by thousands of dependent caches.
+			 * If every one of those caches reads different (but equal) instance of the value, a terabyte of RAM could be wasted.
+			 * Changing the value only when version changes ensures that all these caches hold reference to the same value.
+			 */
+			this.value = value;
+			return advance();
+		}
+	}
+	/*
+	 * Increments version and detaches triggers that should be notified. Caller must hold the lock on this variable.
+	 * This is shared with primitive variables, which store their value in their own field.
+	 */
+	Subscription advance() {
+		++version;
+		/*
+		 * Detaching the whole subscription list lets us fire triggers later without synchronization.
+		 * Version must be incremented before the list is detached.
+		 * Triggers that subscribe after the swap will then see the new version and fire themselves.
+		 * 
+		 * The lock only serializes writers. Subscribers never take it.
+		 */
+		Subscription notified = (Subscription)SUBSCRIPTIONS.getAndSet(this, null);
+		purge = PURGE_MIN;
+		/*
+		 * Skip cleared subscriptions at the beginning of the list, so that we know whether there is anything to fire.
+		 */
+		while (notified != null && notified.get() == null)
+			notified = notified.next;
+		return notified;
+	}
+	/*
+	 * This is where reactivity happens. We will notify reactive triggers about the change in this variable.
+	 * 
+	 * Triggers are fired outside of the synchronized block. Triggers might run their callbacks inline,
+	 * which might take a lot of time and these callbacks may perform writes back to the variable.
+	 */
+	void fire(Subscription notified) {
+		if (notified != null) {
+			/*
+			 * We don't want to trace every variable write, because tracing is expensive.
+			 * We only enable it here when we are sure that at least trigger will fire.
+			 * This is not a problem, because the tracing is intended primarily for callback graph anyway.
+			 */
+			Span span = GlobalTracer.get().buildSpan("hookless.change")
+				.withTag("component", "hookless")
+				.start();
+			OwnerTrace.of(this).fill(span);
+			try (Scope trace = GlobalTracer.get().activateSpan(span)) {
+				fanout(fireAll(notified));
+			}
+		}
+	}
+	/*
+	 * Returns the number of fired triggers.
+	 */
+	static int fireAll(Subscription notified) {
+		int count = 0;
+		for (Subscription subscription = notified; subscription != null; subscription = subscription.next) {
+			/*
+			 * Normally, we would wrap callbacks in Exceptions.log(), but calling reactive trigger is safe.
+			 * It is our code and we know it wouldn't throw exceptions.
 			 */
-			if (notified != null) {
-				/*
-				 * We don't want to trace every variable write, because tracing is expensive.
-				 * We only enable it here when we are sure that at least trigger will fire.
-				 * This is not a problem, because the tracing is intended primarily for callback graph anyway.
-				 */
-				Span span = GlobalTracer.get().buildSpan("hookless.change")
-					.withTag("component", "hookless")
-					.start();
-				OwnerTrace.of(this).fill(span);
-				try (Scope trace = GlobalTracer.get().activateSpan(span)) {
-					for (ReactiveTrigger trigger : notified) {
-						/*
-						 * Normally, we would wrap callbacks in Exceptions.log(), but calling reactive trigger is safe.
-						 * It is our code and we know it wouldn't throw exceptions.
-						 */
-						trigger.fire();
-					}
-				}
+			ReactiveTrigger trigger = subscription.get();
+			if (trigger != null) {
+				trigger.fire();
+				++count;
 			}
 		}
+		return count;
+	}
+	/*
+	 * Fan-out shows how many dependent computations are invalidated by one change.
+	 * Like tracing, it is only recorded when at least one trigger fires.
+	 * Tagging with owner path shows which kinds of variables cause invalidation storms.
+	 * 
+	 * Looking up the meter and building owner path is expensive, so the meter is cached in the variable like in ReactiveThread.
+	 * The field is not volatile. Racing writers at worst look up the same meter twice.
+	 * Owner path is captured on first change, which is fine, because owner information is normally set right after construction.
+	 */
+	private DistributionSummary fanoutMetric;
+	void fanout(int count) {
+		DistributionSummary metric = fanoutMetric;
+		if (metric == null)
+			fanoutMetric = metric = Metrics.summary("hookless.variable.fanout", "owner", OwnerTrace.of(this).path());
+		metric.record(count);
 	}
 	/*
 	 * We are registering the variable in reactive scope before every read.
@@ -493,6 +626,172 @@ public class ReactiveVariable<T> {
 	public void set(T value) {
 		value(new ReactiveValue<>(value));
 	}
+	/*
+	 * Read-modify-write operations. Code like set(get() + 1) is racy and, when run in reactive computation,
+	 * it also makes the computation depend on the variable it is writing, which causes the computation to invalidate itself.
+	 * 
+	 * Methods below read the stored value directly without recording a dependency and they perform the whole update
+	 * while holding the same lock that serializes ordinary writes. Triggers are fired once after the lock is released.
+	 * Equality check is done under the lock, because we have to decide about version change atomically with the read.
+	 * 
+	 * Update functions are called with the lock held. They should be fast and free of side effects.
+	 * Unlike AtomicReference, we never retry, so the function is called exactly once.
+	 */
+	/*
+	 * Primitive variables (ReactiveLongVariable, ReactiveIntVariable, ReactiveDoubleVariable, ReactiveBooleanVariable)
+	 * exist, because this class boxes the value and wraps it in ReactiveValue on every write
+	 * and it performs equality check via ReactiveValue.equals(), which is several virtual calls deep.
+	 * Counters, flags, and other frequently written state would pay for this on every write.
+	 * 
+	 * Primitive variable keeps the value in primitive field. Primitive getter and setter allocate nothing and compare values directly.
+	 * Subscriptions, versions, and dependency tracking are inherited from this class,
+	 * so primitive variable can be used anywhere ReactiveVariable is expected, including ReactiveScope and ReactiveTransaction.
+	 * Generic writes are unpacked into the primitive field by overriding assign() and replace().
+	 * Boxed reads return cached ReactiveValue, which is rebuilt only after the value changes, so that repeated reads allocate nothing
+	 * and callers comparing values with same() see the same instance. Cached value is checked against the primitive field
+	 * rather than cleared by writes, because concurrent reader might otherwise cache a value that was overwritten in the meantime.
+	 * 
+	 * Primitive variable cannot hold exceptions, blocking flag, or null.
+	 * Values are always compared by value, including in boxed compareAndSet().
+	 * Setting of equality() has no effect, because primitives have no identity.
+	 * 
+	 * Read-modify-write methods of primitive variables pass the operand separately, so that operators need not capture it and nothing is allocated.
+	 * There are no primitive variants of getAndUpdate() and updateAndGet(), because overloads taking UnaryOperator
+	 * and its primitive counterpart would make calls with implicitly typed lambdas ambiguous.
+	 * Primitive accumulateAndGet() is not ambiguous, because primitive operand selects the overload before boxing is considered.
+	 */
+	/*
+	 * Returns stored value without recording a dependency. Primitive variables override this to box their field.
+	 */
+	ReactiveValue<T> stored() {
+		return value;
+	}
+	/*
+	 * Equality-checked write. Caller must hold the lock. Primitive variables override this to unpack the value.
+	 */
+	Subscription replace(ReactiveValue<T> value) {
+		if (equality ? this.value.equals(value) : this.value.same(value))
+			return null;
+		this.value = value;
+		return advance();
+	}
+	/*
+	 * Like ReactiveValue.get(), but blocking flag is not propagated, because no dependency is recorded either.
+	 */
+	private static <T> T unpack(ReactiveValue<T> value) {
+		if (value.exception() != null)
+			throw new CompletionException(value.exception());
+		return value.result();
+	}
+	private T modify(UnaryOperator<T> function, boolean previous) {
+		Objects.requireNonNull(function);
+		T before;
+		T after;
+		Subscription notified;
+		synchronized (this) {
+			before = unpack(stored());
+			after = function.apply(before);
+			notified = replace(new ReactiveValue<>(after));
+		}
+		fire(notified);
+		return previous ? before : after;
+	}
+	/**
+	 * Atomically sets the value to {@code value} if current value is equal to {@code expected}.
+	 * Values are compared according to {@link #equality()} setting.
+	 * Stored {@link ReactiveValue} that is blocking or holds an exception never matches.
+	 * No reactive dependency is recorded.
+	 * 
+	 * @param expected
+	 *            expected current value
+	 * @param value
+	 *            new value
+	 * @return {@code true} if current value matched {@code expected}, {@code false} otherwise
+	 */
+	public boolean compareAndSet(T expected, T value) {
+		Subscription notified;
+		synchronized (this) {
+			ReactiveValue<T> current = stored();
+			ReactiveValue<T> wanted = new ReactiveValue<>(expected);
+			if (!(equality ? current.equals(wanted) : current.same(wanted)))
+				return false;
+			notified = replace(new ReactiveValue<>(value));
+		}
+		fire(notified);
+		return true;
+	}
+	/**
+	 * Atomically sets new value and returns the previous one.
+	 * No reactive dependency is recorded.
+	 * 
+	 * @param value
+	 *            new value
+	 * @return previous value
+	 * @throws CompletionException
+	 *             if previously stored {@link ReactiveValue} holds an exception
+	 */
+	public T getAndSet(T value) {
+		return modify(v -> value, true);
+	}
+	/**
+	 * Atomically applies {@code function} to current value and stores the result.
+	 * The function is called exactly once while holding the lock of this {@link ReactiveVariable}.
+	 * No reactive dependency is recorded and triggers are fired at most once.
+	 * 
+	 * @param function
+	 *            side-effect-free function computing new value from the current one
+	 * @return previous value
+	 * @throws CompletionException
+	 *             if stored {@link ReactiveValue} holds an exception
+	 */
+	public T getAndUpdate(UnaryOperator<T> function) {
+		return modify(function, true);
+	}
+	/**
+	 * Atomically applies {@code function} to current value and stores the result.
+	 * This is the same as {@link #getAndUpdate(UnaryOperator)} except that new value is returned.
+	 * 
+	 * @param function
+	 *            side-effect-free function computing new value from the current one
+	 * @return new value
+	 * @throws CompletionException
+	 *             if stored {@link ReactiveValue} holds an exception
+	 */
+	public T updateAndGet(UnaryOperator<T> function) {
+		return modify(function, false);
+	}
+	/**
+	 * Atomically combines current value with {@code operand} and stores the result.
+	 * Current value is passed to the {@code function} as its first parameter.
+	 * 
+	 * @param operand
+	 *            second parameter of the {@code function}
+	 * @param function
+	 *            side-effect-free function combining current value with {@code operand}
+	 * @return previous value
+	 * @throws CompletionException
+	 *             if stored {@link ReactiveValue} holds an exception
+	 */
+	public T getAndAccumulate(T operand, BinaryOperator<T> function) {
+		Objects.requireNonNull(function);
+		return modify(v -> function.apply(v, operand), true);
+	}
+	/**
+	 * Atomically combines current value with {@code operand} and stores the result.
+	 * This is the same as {@link #getAndAccumulate(Object, BinaryOperator)} except that new value is returned.
+	 * 
+	 * @param operand
+	 *            second parameter of the {@code function}
+	 * @param function
+	 *            side-effect-free function combining current value with {@code operand}
+	 * @return new value
+	 * @throws CompletionException
+	 *             if stored {@link ReactiveValue} holds an exception
+	 */
+	public T accumulateAndGet(T operand, BinaryOperator<T> function) {
+		Objects.requireNonNull(function);
+		return modify(v -> function.apply(v, operand), false);
+	}
 	/*
 	 * We provide some convenience constructors. Besides convenience, they are also faster than writing the variable after construction.
 	 */
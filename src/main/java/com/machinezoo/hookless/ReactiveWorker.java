@@ -1,6 +1,7 @@
 // Part of Hookless: https://hookless.machinezoo.com
 package com.machinezoo.hookless;
 
+import java.time.*;
 import java.util.*;
 import java.util.concurrent.*;
 import java.util.function.*;
@@ -254,7 +255,7 @@ public class ReactiveWorker<T> implements Supplier<T> {
 		.parent(this)
 		.target();
 	/*
-	 * We will not expose the thread, because it's an implementation detail. We will just forward executor setting to it.
+	 * We will not expose the thread, because it's an implementation detail. We will just forward executor, priority, and interval settings to it.
 	 */
 	public ReactiveWorker<T> executor(Executor executor) {
 		thread.executor(executor);
@@ -263,6 +264,20 @@ public class ReactiveWorker<T> implements Supplier<T> {
 	public Executor executor() {
 		return thread.executor();
 	}
+	public ReactiveWorker<T> priority(ReactivePriority priority) {
+		thread.priority(priority);
+		return this;
+	}
+	public ReactivePriority priority() {
+		return thread.priority();
+	}
+	public ReactiveWorker<T> interval(Duration interval) {
+		thread.interval(interval);
+		return this;
+	}
+	public Duration interval() {
+		return thread.interval();
+	}
 	/*
 	 * Synchronized to ensure correct state transitions for output+ping+ack trio.
 	 */
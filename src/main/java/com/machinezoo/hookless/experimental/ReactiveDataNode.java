@@ -18,9 +18,28 @@ public interface ReactiveDataNode extends ReactiveObjectNode {
 	 * For diagnostic purposes only.
 	 */
 	Collection<ReactiveComputationNode> subscribers();
+	/*
+	 * Cheap check whether there are any subscribers. Caches call it under their own lock, so it must not block.
+	 * Result may be stale. It may also be conservative, e.g. count subscribers that were already garbage-collected.
+	 */
+	default boolean subscribed() {
+		return !subscribers().isEmpty();
+	}
+	/*
+	 * Called by caches before they drop this node. Returns false if the node has subscribers and it must be kept.
+	 * Computation may subscribe some time after it has read the node, for example when it finishes its iteration.
+	 * If the node was evicted in the meantime, cache hands out new instance to writers and changes would never reach the subscriber.
+	 * Evicted node therefore invalidates every subscriber that arrives late, so that it reruns and materializes the new instance.
+	 * 
+	 * Caches call this under their own lock, so it must not block. The default implementation does not handle late subscribers.
+	 */
+	default boolean evict() {
+		return !subscribed();
+	}
 	/*
 	 * If the version is wrong, invalidation is triggered immediately.
 	 * Throws if the subscriber is already subscribed. Both old and new subscription is removed in that case.
+	 * Subscription of another node instance with the same key is silently replaced, because such instance was dropped by its cache.
 	 * This node holds only weak reference to the subscriber.
 	 */
 	void subscribe(ReactiveComputationNode subscriber, long iteration, ReactiveVersion version);
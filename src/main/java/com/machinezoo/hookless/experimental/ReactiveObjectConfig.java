@@ -8,4 +8,11 @@ public interface ReactiveObjectConfig {
 	 * To be used by reactive caches only. App code should use ReactiveNode.of(key).
 	 */
 	ReactiveObjectNode instantiate();
+	/*
+	 * Algorithm used by nodes of this object to combine versions of dependencies or other versions.
+	 * SHA-256 is the safe default. Objects that combine many versions from trusted sources can opt into faster mixing.
+	 */
+	default ReactiveVersionHashing hashing() {
+		return ReactiveVersionHashing.SECURE;
+	}
 }
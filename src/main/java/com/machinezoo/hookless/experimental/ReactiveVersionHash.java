@@ -59,10 +59,29 @@ public record ReactiveVersionHash(long word3, long word2, long word1, long word0
 		random.nextBytes(bytes);
 		return ReactiveVersionHash.fromBytes(bytes);
 	}
+	/*
+	 * MessageDigest.getInstance() performs provider lookup, which is surprisingly expensive.
+	 * Hashers are therefore cached per thread and reset by digest().
+	 * Thread-local buffer holds serialized words, so that we don't have to allocate byte arrays for every hash.
+	 */
+	private static final ThreadLocal<MessageDigest> hashers = ThreadLocal.withInitial(() -> Exceptions.sneak().get(() -> MessageDigest.getInstance("SHA-256")));
+	private static final ThreadLocal<ByteBuffer> buffers = ThreadLocal.withInitial(() -> ByteBuffer.allocate(64));
+	private void write(ByteBuffer buffer) {
+		buffer.putLong(word3);
+		buffer.putLong(word2);
+		buffer.putLong(word1);
+		buffer.putLong(word0);
+	}
+	private static ReactiveVersionHash digest(MessageDigest hasher, ByteBuffer buffer) {
+		Exceptions.sneak().run(() -> hasher.digest(buffer.array(), 0, 32));
+		return new ReactiveVersionHash(buffer.getLong(0), buffer.getLong(8), buffer.getLong(16), buffer.getLong(24));
+	}
 	public static ReactiveVersionHash hash(byte[] data) {
 		if (data == null)
 			return ZERO;
-		return fromBytes(Exceptions.sneak().get(() -> MessageDigest.getInstance("SHA-256")).digest(data));
+		var hasher = hashers.get();
+		hasher.update(data);
+		return digest(hasher, buffers.get());
 	}
 	public static ReactiveVersionHash hash(String text) {
 		return hash(text != null ? text.getBytes(StandardCharsets.UTF_8) : null);
@@ -85,18 +104,24 @@ public record ReactiveVersionHash(long word3, long word2, long word1, long word0
 	}
 	public ReactiveVersionHash combine(ReactiveVersionHash other) {
 		Objects.requireNonNull(other);
-		var hasher = Exceptions.sneak().get(() -> MessageDigest.getInstance("SHA-256"));
-		hasher.update(toBytes());
-		hasher.update(other.toBytes());
-		return fromBytes(hasher.digest());
+		var hasher = hashers.get();
+		var buffer = buffers.get();
+		buffer.clear();
+		write(buffer);
+		other.write(buffer);
+		hasher.update(buffer.array(), 0, 64);
+		return digest(hasher, buffer);
 	}
 	public ReactiveVersionHash combine(byte[] data) {
-		var hasher = Exceptions.sneak().get(() -> MessageDigest.getInstance("SHA-256"));
-		hasher.update(toBytes());
-		hasher.update(new byte[] { data != null ? (byte)1 : (byte)0 });
+		var hasher = hashers.get();
+		var buffer = buffers.get();
+		buffer.clear();
+		write(buffer);
+		buffer.put(data != null ? (byte)1 : (byte)0);
+		hasher.update(buffer.array(), 0, 33);
 		if (data != null)
 			hasher.update(data);
-		return fromBytes(hasher.digest());
+		return digest(hasher, buffer);
 	}
 	public ReactiveVersionHash combine(String text) {
 		return combine(text != null ? text.getBytes(StandardCharsets.UTF_8) : null);
@@ -104,6 +129,45 @@ public record ReactiveVersionHash(long word3, long word2, long word1, long word0
 	public ReactiveVersionHash combine(Object object) {
 		return combine(hash(object));
 	}
+	/*
+	 * Fast non-cryptographic alternative to combine(ReactiveVersionHash). It is several times faster than SHA-256
+	 * and it does not allocate anything except the result, which JIT can often eliminate.
+	 * 
+	 * This hash is 4 parallel lanes of multiply-rotate rounds (as in xxHash) followed by cross-lane finalization.
+	 * Every output bit depends on every input bit and the function is order-sensitive, so mix(a, b) differs from mix(b, a).
+	 * Results look random, so accidental collisions are as unlikely as with SHA-256,
+	 * but collisions can be constructed deliberately. This is only safe for versions that cannot be influenced by untrusted input.
+	 * 
+	 * Results are incompatible with combine(ReactiveVersionHash). Versions combined with one method must not be compared
+	 * with versions combined with the other method. ReactiveVersionHashing ensures that by making the choice per object type.
+	 */
+	private static final long PRIME1 = 0x9E3779B185EBCA87L;
+	private static final long PRIME2 = 0xC2B2AE3D27D4EB4FL;
+	private static final long PRIME3 = 0x165667B19E3779F9L;
+	private static long round(long lane, long input) {
+		return Long.rotateLeft(lane + input * PRIME2, 31) * PRIME1;
+	}
+	private static long avalanche(long x) {
+		x ^= x >>> 33;
+		x *= PRIME2;
+		x ^= x >>> 29;
+		x *= PRIME3;
+		x ^= x >>> 32;
+		return x;
+	}
+	public ReactiveVersionHash mix(ReactiveVersionHash other) {
+		Objects.requireNonNull(other);
+		long lane0 = round(round(PRIME1, word0), other.word0);
+		long lane1 = round(round(PRIME2, word1), other.word1);
+		long lane2 = round(round(PRIME3, word2), other.word2);
+		long lane3 = round(round(-PRIME1, word3), other.word3);
+		long cross = Long.rotateLeft(lane0, 1) + Long.rotateLeft(lane1, 7) + Long.rotateLeft(lane2, 12) + Long.rotateLeft(lane3, 18);
+		return new ReactiveVersionHash(
+			avalanche(lane3 ^ cross),
+			avalanche(lane2 + cross),
+			avalanche(lane1 ^ Long.rotateLeft(cross, 29)),
+			avalanche(lane0 + Long.rotateLeft(cross, 43)));
+	}
 	@Override
 	public ReactiveVersionHash toHash() {
 		return this;
@@ -0,0 +1,26 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental;
+
+/*
+ * Algorithm used to combine version hashes, for example when computing hash of all dependencies of a computation.
+ * 
+ * SECURE uses SHA-256, which is collision-resistant even when some of the versions are derived from untrusted input.
+ * FAST uses non-cryptographic mixing, which avoids SHA-256 rounds and all byte array round-trips.
+ * It is intended for computations that combine many versions, all of which are produced by trusted code.
+ * 
+ * Hashes combined with different algorithms are not comparable. This is not a problem as long as every object type
+ * always uses the same algorithm, which is why the choice is made in ReactiveObjectConfig.
+ */
+public enum ReactiveVersionHashing {
+	SECURE,
+	FAST;
+	public ReactiveVersionHash combine(ReactiveVersionHash first, ReactiveVersionHash second) {
+		return switch (this) {
+			case SECURE -> first.combine(second);
+			case FAST -> first.mix(second);
+		};
+	}
+	public ReactiveVersionHash combine(ReactiveVersion first, ReactiveVersion second) {
+		return combine(first.toHash(), second.toHash());
+	}
+}
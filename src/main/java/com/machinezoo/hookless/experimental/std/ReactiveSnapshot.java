@@ -0,0 +1,45 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std;
+
+import java.io.*;
+import java.util.*;
+import com.machinezoo.hookless.experimental.*;
+
+/*
+ * Serializable state of a computed node that can be reused in another process.
+ *
+ * Dependency versions are stored as hashes, because hashes are the cross-run representation of versions.
+ * Restored node is trusted only after all dependencies are verified to still have the same version hash.
+ * Node version is stored as a hash too. Nodes that want to be persisted must use versions that are unique across runs
+ * (content hashes, dependency hashes, or random hashes), because counters would be reused with different outputs after restart.
+ *
+ * Output is arbitrary serializable object. Nodes whose output is not serializable simply do not produce snapshots.
+ */
+public record ReactiveSnapshot(
+	ReactiveObject key,
+	ReactiveVersionHash version,
+	List<Dependency> dependencies,
+	Serializable output) implements Serializable {
+	public record Dependency(ReactiveData key, ReactiveVersionHash version) implements Serializable {
+		public Dependency {
+			Objects.requireNonNull(key);
+			Objects.requireNonNull(version);
+		}
+	}
+	public ReactiveSnapshot {
+		Objects.requireNonNull(key);
+		Objects.requireNonNull(version);
+		dependencies = List.copyOf(dependencies);
+	}
+	/*
+	 * Hash of the version and all dependency versions. Snapshots with equal signatures restore the same state,
+	 * so persistent caches do not have to write them again. Versions are combined with the algorithm configured for the key.
+	 */
+	public ReactiveVersionHash signature() {
+		var hashing = key.reactiveConfig().hashing();
+		var hash = version;
+		for (var dependency : dependencies)
+			hash = hashing.combine(hash, dependency.version());
+		return hash;
+	}
+}
@@ -0,0 +1,19 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std;
+
+import com.machinezoo.hookless.experimental.*;
+
+/*
+ * Node that can save its state and restore it in another process. Used by persistent caches and cache snapshots.
+ */
+public interface ReactiveSnapshotNode extends ReactiveObjectNode {
+	/*
+	 * Returns null if there is nothing worth saving, for example when the node is outdated or its output is not serializable.
+	 */
+	ReactiveSnapshot snapshot();
+	/*
+	 * Must be called on freshly instantiated node before it is used. Restoring must not materialize other nodes,
+	 * because it usually runs while the cache is materializing this node. Dependencies are verified lazily on first refresh.
+	 */
+	void restore(ReactiveSnapshot snapshot);
+}
@@ -0,0 +1,304 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std;
+
+import java.util.*;
+import java.util.concurrent.locks.*;
+import java.util.stream.*;
+import com.machinezoo.closeablescope.*;
+import com.machinezoo.hookless.experimental.*;
+
+/*
+ * Incremental recompute engine shared by all standard computations.
+ *
+ * Invalidation only marks the computation as possibly outdated. Nothing is recomputed until refresh() is called.
+ * Refresh first verifies dependencies from the last iteration in the order they were first tracked.
+ * Verification asks every dependency for its current version, which brings intermediary dependencies up to date.
+ * If all versions still match, the computation is considered current again without running it (early cutoff).
+ * This way, a change that does not propagate through an intermediary (e.g. intermediary that produces the same value)
+ * does not cause recomputation of anything downstream.
+ *
+ * Refresh is serialized with a lock that is held while the computation is running.
+ * Invalidations only use short synchronized blocks on the node, so they never wait for the computation to finish.
+ * Dependency cycles would deadlock, but they are an error anyway.
+ */
+public abstract class StandardReactiveComputationNode implements ReactiveComputationNode {
+	/*
+	 * The computation itself. It runs with this node on top of ReactiveStack.
+	 * Implementations should not throw. Exceptions should be captured as output or logged.
+	 */
+	protected abstract void compute();
+	/*
+	 * Called after the computation was marked outdated. Runs outside of any lock.
+	 * Sinks schedule refresh here. Intermediaries propagate invalidation to their subscribers.
+	 */
+	protected abstract void invalidated();
+	private final ReentrantLock computing = new ReentrantLock();
+	private long iteration;
+	/*
+	 * Outputs are consistent with current versions of dependencies. Always false before the first iteration.
+	 */
+	private boolean valid;
+	/*
+	 * Set by explicit invalidate(). It disables early cutoff for the next refresh.
+	 */
+	private boolean forced;
+	private boolean running;
+	/*
+	 * Linked map preserves order in which dependencies were first tracked, which is the order in which they are verified.
+	 * Verifying in the original order avoids refreshing intermediaries that the computation would not read anymore.
+	 */
+	private Map<ReactiveDataNode, ReactiveVersion> dependencies = new LinkedHashMap<>();
+	private Map<ReactiveDataNode, ReactiveVersion> tracked;
+	private Map<ReactiveSideEffectKey, ReactiveSideEffect> effects = new HashMap<>();
+	/*
+	 * Dependencies restored from a snapshot. They have to be verified before restored output can be trusted.
+	 */
+	private List<ReactiveSnapshot.Dependency> restored;
+	/*
+	 * Returns null if the computation is not current, because dependencies of outdated computation would not describe its output.
+	 */
+	protected synchronized List<ReactiveSnapshot.Dependency> dependencySnapshot() {
+		if (!valid)
+			return null;
+		var snapshot = new ArrayList<ReactiveSnapshot.Dependency>(dependencies.size());
+		for (var dependency : dependencies.entrySet())
+			snapshot.add(new ReactiveSnapshot.Dependency(dependency.getKey().key(), dependency.getValue().toHash()));
+		return snapshot;
+	}
+	/*
+	 * Restored output is trusted when all dependencies report the persisted version hash.
+	 * This is only safe if versions of dependencies are unique across runs (content hashes or random hashes).
+	 * Standard data nodes satisfy that. Custom data nodes must not use counters that restart with every run.
+	 */
+	protected synchronized void restoreDependencies(List<ReactiveSnapshot.Dependency> dependencies) {
+		Objects.requireNonNull(dependencies);
+		if (iteration > 0 || running)
+			throw new IllegalStateException("Only fresh computation can be restored.");
+		restored = dependencies;
+	}
+	/*
+	 * Materializes restored dependencies and compares their current version hashes with the recorded ones.
+	 * Returns current versions if they all match or null otherwise.
+	 */
+	private static Map<ReactiveDataNode, ReactiveVersion> verify(List<ReactiveSnapshot.Dependency> restored) {
+		var verified = new LinkedHashMap<ReactiveDataNode, ReactiveVersion>();
+		for (var dependency : restored) {
+			var node = (ReactiveDataNode)ReactiveObjectNode.of(dependency.key());
+			var version = node.version();
+			if (!version.toHash().equals(dependency.version()))
+				return null;
+			verified.putIfAbsent(node, version);
+		}
+		return verified;
+	}
+	private ReactiveVersionHashing hashing;
+	/*
+	 * Algorithm for combining versions, chosen by config of this computation's object type.
+	 * Cached, because configs are usually allocated on every call.
+	 */
+	protected synchronized ReactiveVersionHashing hashing() {
+		if (hashing == null)
+			hashing = key().reactiveConfig().hashing();
+		return hashing;
+	}
+	/*
+	 * Versions of all dependencies combined in the order they were first tracked. Returns null if the computation is not current.
+	 * Equal dependency hashes mean that the computation observed the same inputs, so it can serve as a version of derived output.
+	 */
+	protected ReactiveVersionHash dependencyHash() {
+		var hashing = hashing();
+		synchronized (this) {
+			if (!valid)
+				return null;
+			var hash = ReactiveVersionHash.ZERO;
+			for (var version : dependencies.values())
+				hash = hashing.combine(hash, version.toHash());
+			return hash;
+		}
+	}
+	@Override
+	public synchronized long iteration() {
+		return iteration;
+	}
+	protected synchronized boolean valid() {
+		return valid;
+	}
+	@Override
+	public synchronized void track(ReactiveDataNode dependency, ReactiveVersion version) {
+		Objects.requireNonNull(dependency);
+		Objects.requireNonNull(version);
+		if (!running)
+			throw new IllegalStateException("Computation is not running.");
+		/*
+		 * Keep the first version. If the dependency changed since, subscription will detect it.
+		 */
+		tracked.putIfAbsent(dependency, version);
+	}
+	@Override
+	public synchronized void consume(ReactiveSideEffect effect) {
+		if (!running)
+			throw new IllegalStateException("Computation is not running.");
+		if (effect != null)
+			effects.merge(effect.key(), effect, ReactiveSideEffect::merge);
+	}
+	@Override
+	public synchronized ReactiveSideEffect effect(ReactiveSideEffectKey key) {
+		return effects.get(key);
+	}
+	@Override
+	public synchronized Stream<ReactiveSideEffect> effects() {
+		return new ArrayList<>(effects.values()).stream();
+	}
+	@Override
+	public void invalidate(long iteration) {
+		synchronized (this) {
+			if (iteration != this.iteration || !valid)
+				return;
+			valid = false;
+		}
+		invalidated();
+	}
+	@Override
+	public void invalidate() {
+		synchronized (this) {
+			forced = true;
+			/*
+			 * Running computation will notice the flag when it completes.
+			 */
+			if (!valid)
+				return;
+			valid = false;
+		}
+		invalidated();
+	}
+	private static boolean unchanged(Map<ReactiveDataNode, ReactiveVersion> dependencies) {
+		for (var dependency : dependencies.entrySet())
+			if (!dependency.getKey().version().equals(dependency.getValue()))
+				return false;
+		return true;
+	}
+	private void subscribe(Map<ReactiveDataNode, ReactiveVersion> dependencies, long iteration) {
+		for (var dependency : dependencies.entrySet())
+			dependency.getKey().subscribe(this, iteration, dependency.getValue());
+	}
+	private void unsubscribe(Map<ReactiveDataNode, ReactiveVersion> dependencies) {
+		for (var dependency : dependencies.keySet())
+			dependency.unsubscribe(this);
+	}
+	/*
+	 * Drops subscriptions and forgets dependencies, so that stopped computation does not keep its dependencies alive.
+	 * Next refresh() then runs the computation from scratch.
+	 * 
+	 * This does not wait for running computation, because it would subscribe to its new dependencies when it completes.
+	 * Returns false in that case and the caller must call release() again after the running refresh() returns.
+	 */
+	protected boolean release() {
+		if (!computing.tryLock())
+			return false;
+		try {
+			Map<ReactiveDataNode, ReactiveVersion> previous;
+			synchronized (this) {
+				previous = dependencies;
+				dependencies = new LinkedHashMap<>();
+				restored = null;
+				valid = false;
+				/*
+				 * Empty dependency map would otherwise pass verification.
+				 */
+				forced = true;
+			}
+			unsubscribe(previous);
+			return true;
+		} finally {
+			computing.unlock();
+		}
+	}
+	/*
+	 * Brings the computation up to date, running it only if some dependency has actually changed.
+	 * Returns immediately if the computation is current.
+	 */
+	protected void refresh() {
+		computing.lock();
+		try {
+			Map<ReactiveDataNode, ReactiveVersion> previous;
+			List<ReactiveSnapshot.Dependency> restored;
+			boolean verify;
+			synchronized (this) {
+				if (valid)
+					return;
+				previous = dependencies;
+				restored = forced ? null : this.restored;
+				this.restored = null;
+				verify = iteration > 0 && !forced;
+				forced = false;
+			}
+			/*
+			 * Restored computation is accepted as if it was the first iteration, so that subscriptions have some iteration number.
+			 */
+			if (restored != null) {
+				var verified = verify(restored);
+				if (verified != null) {
+					synchronized (this) {
+						dependencies = verified;
+						iteration = 1;
+						valid = true;
+					}
+					subscribe(verified, 1);
+					return;
+				}
+			}
+			/*
+			 * Subscriptions of the previous iteration are removed, because data nodes do not allow duplicate subscriptions.
+			 * Changes that happen before we subscribe again are detected by version check in subscribe().
+			 */
+			unsubscribe(previous);
+			if (verify && unchanged(previous)) {
+				long current;
+				synchronized (this) {
+					valid = true;
+					current = iteration;
+				}
+				subscribe(previous, current);
+				return;
+			}
+			synchronized (this) {
+				running = true;
+				tracked = new LinkedHashMap<>();
+				effects = new HashMap<>();
+			}
+			/*
+			 * Exceptions are not expected here, but if there is one, we still have to finish the iteration,
+			 * so that the computation is not left in running state without subscriptions.
+			 */
+			RuntimeException exception = null;
+			try (CloseableScope scope = ReactiveStack.push(this)) {
+				compute();
+			} catch (RuntimeException ex) {
+				exception = ex;
+			}
+			Map<ReactiveDataNode, ReactiveVersion> current;
+			long completed;
+			boolean rerun;
+			synchronized (this) {
+				running = false;
+				current = tracked;
+				tracked = null;
+				dependencies = current;
+				completed = ++iteration;
+				rerun = forced;
+				valid = !forced;
+			}
+			subscribe(current, completed);
+			if (rerun)
+				invalidated();
+			if (exception != null)
+				throw exception;
+		} finally {
+			computing.unlock();
+		}
+	}
+	@Override
+	public String toString() {
+		return key().toString();
+	}
+}
@@ -9,6 +9,16 @@ public abstract class StandardReactiveDataNode implements ReactiveDataNode {
 	private ReactiveVersion version;
 	private record Subscriber(WeakReference<ReactiveComputationNode> computation, long iteration) {}
 	private Map<ReactiveObject, Subscriber> subscribers = new HashMap<>();
+	/*
+	 * Mirrors non-emptiness of the subscriber map, so that subscribed() can be answered without taking the lock.
+	 * Updated whenever the map changes.
+	 */
+	private volatile boolean subscribed;
+	/*
+	 * Set by evict(). Both flags are volatile and they are written before the other one is read,
+	 * so that evict() and concurrent subscribe() cannot both miss each other.
+	 */
+	private volatile boolean evicted;
 	protected StandardReactiveDataNode(ReactiveVersion version) {
 		this.version = version;
 	}
@@ -26,11 +36,25 @@ public abstract class StandardReactiveDataNode implements ReactiveDataNode {
 	@Override
 	public void subscribe(ReactiveComputationNode subscriber, long iteration, ReactiveVersion version) {
 		boolean invalidate = false;
+		boolean stale = false;
 		synchronized (this) {
 			if (this.version.equals(version)) {
-				if (subscribers.remove(subscriber.key()) != null)
+				/*
+				 * Subscription with the same key might belong to another instance of the computation,
+				 * for example one that was evicted from its cache. Such subscription is stale and it is replaced.
+				 */
+				var existing = subscribers.remove(subscriber.key());
+				if (existing != null && existing.computation().get() == subscriber) {
+					subscribed = !subscribers.isEmpty();
 					throw new IllegalStateException("Computation is already subscribed.");
+				}
 				subscribers.put(subscriber.key(), new Subscriber(new WeakReference<>(subscriber), iteration));
+				subscribed = true;
+				if (evicted) {
+					subscribers.remove(subscriber.key());
+					subscribed = !subscribers.isEmpty();
+					stale = true;
+				}
 			} else
 				invalidate = true;
 		}
@@ -39,10 +63,38 @@ public abstract class StandardReactiveDataNode implements ReactiveDataNode {
 		 */
 		if (invalidate)
 			subscriber.invalidate(iteration);
+		/*
+		 * Version of evicted node does not change anymore, so early cutoff would accept it again. Force full rerun instead.
+		 */
+		if (stale)
+			subscriber.invalidate();
 	}
 	@Override
 	public synchronized void unsubscribe(ReactiveComputationNode subscriber) {
-		subscribers.remove(subscriber.key());
+		/*
+		 * Do not remove subscription of another instance with the same key.
+		 */
+		var existing = subscribers.get(subscriber.key());
+		if (existing != null && existing.computation().get() == subscriber) {
+			subscribers.remove(subscriber.key());
+			subscribed = !subscribers.isEmpty();
+		}
+	}
+	@Override
+	public boolean subscribed() {
+		return subscribed;
+	}
+	/*
+	 * Eviction is cancelled if there is a subscriber. Concurrent subscriber might then invalidate itself needlessly, which is harmless.
+	 */
+	@Override
+	public boolean evict() {
+		evicted = true;
+		if (subscribed) {
+			evicted = false;
+			return false;
+		}
+		return true;
 	}
 	/*
 	 * Must be called from the same synchronized context that reads data
@@ -65,6 +117,7 @@ public abstract class StandardReactiveDataNode implements ReactiveDataNode {
 				return null;
 			var invalidated = subscribers;
 			subscribers = new HashMap<>();
+			subscribed = false;
 			return () -> {
 				for (var subscriber : invalidated.values()) {
 					var computation = subscriber.computation().get();
@@ -0,0 +1,144 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std;
+
+import java.lang.ref.*;
+import java.util.*;
+import com.machinezoo.hookless.experimental.*;
+
+/*
+ * Intermediary is refreshed lazily, when its version is requested. Invalidation is propagated to subscribers immediately,
+ * but subscribers only mark themselves as possibly outdated. When they verify their dependencies,
+ * they refresh this intermediary, which may discover that its output did not change, in which case its version stays the same
+ * and subscribers do not have to run either.
+ *
+ * Subscriber bookkeeping is the same as in StandardReactiveDataNode except that subscribers are invalidated
+ * whenever this node becomes outdated, not only when its version changes.
+ */
+public abstract class StandardReactiveIntermediaryNode extends StandardReactiveComputationNode implements ReactiveIntermediaryNode {
+	private ReactiveVersion version;
+	private record Subscriber(WeakReference<ReactiveComputationNode> computation, long iteration) {}
+	private Map<ReactiveObject, Subscriber> subscribers = new HashMap<>();
+	/*
+	 * Mirrors non-emptiness of the subscriber map, so that subscribed() can be answered without taking the lock.
+	 * Updated whenever the map changes.
+	 */
+	private volatile boolean subscribed;
+	/*
+	 * Set by evict(). Both flags are volatile and they are written before the other one is read,
+	 * so that evict() and concurrent subscribe() cannot both miss each other.
+	 */
+	private volatile boolean evicted;
+	protected StandardReactiveIntermediaryNode(ReactiveVersion version) {
+		Objects.requireNonNull(version);
+		this.version = version;
+	}
+	/*
+	 * Called from compute() to publish version of the new output.
+	 * Implementations should keep the previous version if the output has not changed.
+	 */
+	protected synchronized void publish(ReactiveVersion version) {
+		Objects.requireNonNull(version);
+		this.version = version;
+	}
+	/*
+	 * Non-reactive read of the version. Caller must call refresh() first if the version should be current.
+	 * This is used when version must be read atomically with the output.
+	 */
+	protected synchronized ReactiveVersion published() {
+		return version;
+	}
+	@Override
+	public ReactiveVersion version() {
+		refresh();
+		return published();
+	}
+	@Override
+	public synchronized Collection<ReactiveComputationNode> subscribers() {
+		return subscribers.values().stream()
+			.map(s -> s.computation.get())
+			.filter(Objects::nonNull)
+			.toList();
+	}
+	@Override
+	public void subscribe(ReactiveComputationNode subscriber, long iteration, ReactiveVersion version) {
+		boolean invalidate = false;
+		boolean stale = false;
+		synchronized (this) {
+			/*
+			 * If this node is outdated, we cannot tell whether the version will change. Subscriber has to verify again.
+			 */
+			if (valid() && this.version.equals(version)) {
+				/*
+				 * Subscription with the same key might belong to another instance of the computation,
+				 * for example one that was evicted from its cache. Such subscription is stale and it is replaced.
+				 */
+				var existing = subscribers.remove(subscriber.key());
+				if (existing != null && existing.computation().get() == subscriber) {
+					subscribed = !subscribers.isEmpty();
+					throw new IllegalStateException("Computation is already subscribed.");
+				}
+				subscribers.put(subscriber.key(), new Subscriber(new WeakReference<>(subscriber), iteration));
+				subscribed = true;
+				if (evicted) {
+					subscribers.remove(subscriber.key());
+					subscribed = !subscribers.isEmpty();
+					stale = true;
+				}
+			} else
+				invalidate = true;
+		}
+		if (invalidate)
+			subscriber.invalidate(iteration);
+		/*
+		 * Version of evicted node does not change anymore, so early cutoff would accept it again. Force full rerun instead.
+		 */
+		if (stale)
+			subscriber.invalidate();
+	}
+	@Override
+	public synchronized void unsubscribe(ReactiveComputationNode subscriber) {
+		/*
+		 * Do not remove subscription of another instance with the same key.
+		 */
+		var existing = subscribers.get(subscriber.key());
+		if (existing != null && existing.computation().get() == subscriber) {
+			subscribers.remove(subscriber.key());
+			subscribed = !subscribers.isEmpty();
+		}
+	}
+	@Override
+	public boolean subscribed() {
+		return subscribed;
+	}
+	/*
+	 * Eviction is cancelled if there is a subscriber. Concurrent subscriber might then invalidate itself needlessly, which is harmless.
+	 */
+	@Override
+	public boolean evict() {
+		evicted = true;
+		if (subscribed) {
+			evicted = false;
+			return false;
+		}
+		return true;
+	}
+	@Override
+	protected void invalidated() {
+		Map<ReactiveObject, Subscriber> invalidated;
+		synchronized (this) {
+			if (subscribers.isEmpty())
+				return;
+			invalidated = subscribers;
+			subscribers = new HashMap<>();
+			subscribed = false;
+		}
+		/*
+		 * Run invalidation unlocked, because it is a call in reverse stack order.
+		 */
+		for (var subscriber : invalidated.values()) {
+			var computation = subscriber.computation().get();
+			if (computation != null)
+				computation.invalidate(subscriber.iteration());
+		}
+	}
+}
@@ -1,16 +1,25 @@
 // Part of Hookless: https://hookless.machinezoo.com
 package com.machinezoo.hookless.experimental.std.bells;
 
+import java.util.concurrent.*;
+import com.machinezoo.hookless.experimental.*;
 import com.machinezoo.hookless.experimental.std.*;
-import com.machinezoo.hookless.experimental.std.versions.*;
 
+/*
+ * Version is a random hash that is replaced on every ring, like in memos.
+ * Counter would restart with every run and persisted computation that depends on the bell
+ * would then find matching version after restart and restore stale output.
+ */
 public class ReactiveBellNode extends StandardReactiveDataNode {
 	private final ReactiveBell key;
-	private long iteration = 1;
 	public ReactiveBellNode(ReactiveBell key) {
-		super(new ReactiveVersionNumber(1));
+		super(randomVersion());
 		this.key = key;
 	}
+	private static ReactiveVersionHash randomVersion() {
+		var random = ThreadLocalRandom.current();
+		return new ReactiveVersionHash(random.nextLong(), random.nextLong(), random.nextLong(), random.nextLong());
+	}
 	@Override
 	public ReactiveBell key() {
 		return key;
@@ -21,7 +30,7 @@ public class ReactiveBellNode extends StandardReactiveDataNode {
 	public void ring() {
 		Runnable invalidation;
 		synchronized (this) {
-			invalidation = commit(new ReactiveVersionNumber(++iteration));
+			invalidation = commit(randomVersion());
 		}
 		if (invalidation != null)
 			invalidation.run();
@@ -0,0 +1,135 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.caches;
+
+import java.util.*;
+import java.util.function.*;
+import com.machinezoo.hookless.experimental.*;
+import io.micrometer.core.instrument.*;
+
+/*
+ * LRU cache bounded by total weight of cached nodes. Weight of every node is 1 by default, which bounds node count.
+ *
+ * Nodes with live subscribers are never evicted, because their subscribers expect to be invalidated by this particular node instance.
+ * If such node was evicted, next materialization would create new node instance and data changes applied to it
+ * would never reach subscribers of the evicted instance. Such nodes are given second chance by moving them to the MRU end.
+ * Cache can therefore temporarily exceed its capacity if all nodes are subscribed.
+ * Computation that has read the node but not subscribed yet (e.g. because it is still running) does not prevent eviction.
+ * Evicted node instead invalidates such computation when it subscribes, so that it reruns against the new instance.
+ *
+ * Everything is guarded by single lock. Cache operations are short compared to reactive computations,
+ * so contention should not be a problem. Nodes are instantiated outside of the lock, because instantiation can be slow
+ * and it can recursively materialize other nodes.
+ */
+public class BoundedReactiveCache implements ReactiveCache {
+	private record Entry(ReactiveObjectNode node, long weight) {}
+	private final long capacity;
+	private final ToLongFunction<ReactiveObjectNode> weigher;
+	private final LinkedHashMap<ReactiveObject, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+	private long weight;
+	private long hits;
+	private long misses;
+	private long evictions;
+	public BoundedReactiveCache(String name, long capacity, ToLongFunction<ReactiveObjectNode> weigher) {
+		Objects.requireNonNull(name);
+		Objects.requireNonNull(weigher);
+		if (capacity <= 0)
+			throw new IllegalArgumentException();
+		this.capacity = capacity;
+		this.weigher = weigher;
+		/*
+		 * Meters hold only weak reference to the cache, so registering them does not prevent garbage collection.
+		 */
+		var tags = Tags.of("cache", name);
+		FunctionCounter.builder("hookless.cache.hits", this, BoundedReactiveCache::hits).tags(tags).register(Metrics.globalRegistry);
+		FunctionCounter.builder("hookless.cache.misses", this, BoundedReactiveCache::misses).tags(tags).register(Metrics.globalRegistry);
+		FunctionCounter.builder("hookless.cache.evictions", this, BoundedReactiveCache::evictions).tags(tags).register(Metrics.globalRegistry);
+		Gauge.builder("hookless.cache.size", this, BoundedReactiveCache::size).tags(tags).register(Metrics.globalRegistry);
+		Gauge.builder("hookless.cache.weight", this, BoundedReactiveCache::weight).tags(tags).register(Metrics.globalRegistry);
+	}
+	public BoundedReactiveCache(String name, long capacity) {
+		this(name, capacity, n -> 1);
+	}
+	public long capacity() {
+		return capacity;
+	}
+	public synchronized long hits() {
+		return hits;
+	}
+	public synchronized long misses() {
+		return misses;
+	}
+	public synchronized long evictions() {
+		return evictions;
+	}
+	public synchronized int size() {
+		return entries.size();
+	}
+	public synchronized long weight() {
+		return weight;
+	}
+	/*
+	 * Data nodes decide themselves. Standard data nodes answer without taking locks, because taking node locks
+	 * while we hold the cache lock could stall the whole cache. They also invalidate computations that subscribe after eviction.
+	 */
+	private static boolean evictable(ReactiveObjectNode node) {
+		return !(node instanceof ReactiveDataNode data) || data.evict();
+	}
+	/*
+	 * Number of subscribed nodes skipped in one eviction. When most nodes are subscribed, unbounded scan would make every miss O(n).
+	 * Cache then stays over capacity a little longer, but subsequent misses continue where this one stopped,
+	 * because skipped nodes were moved to the MRU end.
+	 */
+	private static final int MAX_SKIPS = 16;
+	/*
+	 * Must be called with the lock held.
+	 */
+	private void evict() {
+		/*
+		 * Every node is examined at most once, so that fully subscribed cache does not loop forever.
+		 */
+		int remaining = Math.min(entries.size(), MAX_SKIPS);
+		while (weight > capacity && remaining > 0) {
+			var iterator = entries.entrySet().iterator();
+			var eldest = iterator.next();
+			if (!evictable(eldest.getValue().node())) {
+				/*
+				 * Access-ordered map moves the entry to the MRU end.
+				 */
+				entries.get(eldest.getKey());
+				--remaining;
+			} else {
+				iterator.remove();
+				weight -= eldest.getValue().weight();
+				++evictions;
+			}
+		}
+	}
+	@Override
+	public ReactiveObjectNode materialize(ReactiveObject key) {
+		synchronized (this) {
+			var entry = entries.get(key);
+			if (entry != null) {
+				++hits;
+				return entry.node();
+			}
+			++misses;
+		}
+		var node = key.reactiveConfig().instantiate();
+		var created = new Entry(node, weigher.applyAsLong(node));
+		synchronized (this) {
+			/*
+			 * Another thread might have materialized the same key in the meantime. First node wins.
+			 */
+			var entry = entries.putIfAbsent(key, created);
+			if (entry != null)
+				return entry.node();
+			weight += created.weight();
+			evict();
+			return node;
+		}
+	}
+	@Override
+	public synchronized Collection<ReactiveObjectNode> nodes() {
+		return entries.values().stream().map(Entry::node).toList();
+	}
+}
@@ -1,16 +1,32 @@
 // Part of Hookless: https://hookless.machinezoo.com
 package com.machinezoo.hookless.experimental.std.caches;
 
+import java.nio.file.*;
 import java.util.*;
 import java.util.concurrent.*;
 import com.machinezoo.hookless.experimental.*;
+import com.machinezoo.hookless.experimental.std.*;
 
 public class PermanentReactiveCache implements ReactiveCache {
 	public static final PermanentReactiveCache DEFAULT = new PermanentReactiveCache();
 	private final ConcurrentMap<ReactiveObject, ReactiveObjectNode> nodes = new ConcurrentHashMap<>();
+	/*
+	 * Snapshots loaded by restore() that were not materialized yet.
+	 * Nodes are restored lazily, because most applications only need a fraction of cached nodes soon after startup.
+	 */
+	private final ConcurrentMap<ReactiveObject, ReactiveSnapshot> restored = new ConcurrentHashMap<>();
 	@Override
 	public ReactiveObjectNode materialize(ReactiveObject key) {
-		return nodes.computeIfAbsent(key, k -> k.reactiveConfig().instantiate());
+		return nodes.computeIfAbsent(key, k -> {
+			var node = k.reactiveConfig().instantiate();
+			/*
+			 * It is safe to restore the node here, because restoring does not materialize other nodes.
+			 */
+			var snapshot = restored.remove(k);
+			if (snapshot != null && node instanceof ReactiveSnapshotNode restorable)
+				restorable.restore(snapshot);
+			return node;
+		});
 	}
 	@Override
 	public Collection<ReactiveObjectNode> nodes() {
@@ -19,4 +35,21 @@ public class PermanentReactiveCache implements ReactiveCache {
 		 */
 		return new ArrayList<>(nodes.values());
 	}
+	/*
+	 * Saves snapshots of all current nodes. Returns the number of saved snapshots.
+	 * Snapshots that were restored but not materialized yet are lost. Call snapshot() after the cache is warmed up.
+	 */
+	public int snapshot(Path path) {
+		return ReactiveCacheSnapshots.save(nodes(), path);
+	}
+	/*
+	 * Loads snapshots for lazy restoration. Should be called at startup before the cache is used.
+	 * Keys that are already materialized are not affected. Returns the number of loaded snapshots.
+	 */
+	public int restore(Path path) {
+		var snapshots = ReactiveCacheSnapshots.load(path);
+		snapshots.keySet().removeAll(nodes.keySet());
+		restored.putAll(snapshots);
+		return snapshots.size();
+	}
 }
@@ -0,0 +1,304 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.caches;
+
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.*;
+import com.machinezoo.hookless.experimental.*;
+import com.machinezoo.hookless.experimental.std.*;
+import com.machinezoo.noexception.*;
+import sun.misc.*;
+
+/*
+ * Permanent cache that also saves snapshots of its nodes into a memory-mapped file, so that restarted process can reuse them.
+ *
+ * The file is an append-only log of records. Every record consists of serialized key and serialized ReactiveSnapshot.
+ * Snapshot is protected by checksum, which is verified when the snapshot is loaded, so that corrupted records are recomputed.
+ * Only keys are deserialized when the file is opened. Snapshots are deserialized lazily when their key is materialized.
+ * Restored node verifies version hashes of its dependencies before it trusts the restored output,
+ * so stale records are harmless. They are just recomputed.
+ *
+ * Snapshots are written by flush() and close(). Nodes are not written on every change, because that would slow down computations.
+ * Superseded records are removed by compact(), which is called automatically when the file is opened.
+ * Compaction writes new file and moves it into place, so that crash never leaves partially rewritten log behind.
+ * Record that fails to deserialize (e.g. after code change) is ignored.
+ *
+ * Java serialization is used, because keys, versions, and side effects are already required to be serializable.
+ * The file must be trusted, because deserialization of untrusted data is a security risk.
+ */
+public class PersistentReactiveCache implements ReactiveCache, Closeable {
+	private static final long MAGIC = 0x484F4F4B4C455353L;
+	/*
+	 * Header consists of magic number and end of the log.
+	 */
+	private static final int HEADER = 16;
+	private static final int INITIAL = 1 << 20;
+	private final Path path;
+	private FileChannel channel;
+	/*
+	 * Null after close().
+	 */
+	private MappedByteBuffer buffer;
+	private long end;
+	private record Location(int offset, int length) {}
+	private final Map<ReactiveObject, Location> index = new HashMap<>();
+	/*
+	 * Signatures (version and dependencies) of snapshots already in the file, so that unchanged nodes are not written again.
+	 */
+	private final Map<ReactiveObject, ReactiveVersionHash> written = new HashMap<>();
+	private int records;
+	private final ConcurrentMap<ReactiveObject, ReactiveObjectNode> nodes = new ConcurrentHashMap<>();
+	public PersistentReactiveCache(Path path) {
+		Objects.requireNonNull(path);
+		this.path = path;
+		long size = open();
+		if (size < HEADER || buffer.getLong(0) != MAGIC || buffer.getLong(8) < HEADER) {
+			buffer.putLong(0, MAGIC);
+			buffer.putLong(8, HEADER);
+		}
+		/*
+		 * File might have been truncated. Keep the complete records. Scan drops the partial one.
+		 */
+		end = Math.min(buffer.getLong(8), Math.max(size, HEADER));
+		scan();
+		compact();
+	}
+	/*
+	 * Returns size of the file before it was mapped.
+	 */
+	private long open() {
+		channel = Exceptions.sneak().get(() -> FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE));
+		long size = Exceptions.sneak().getAsLong(channel::size);
+		if (size > Integer.MAX_VALUE)
+			throw new IllegalStateException("Persistent cache is too large.");
+		map(Math.max(size, INITIAL));
+		return size;
+	}
+	/*
+	 * Mapping is otherwise released only when the buffer is garbage-collected, which keeps the file open
+	 * and on some platforms prevents it from being deleted or replaced. Java 17 has no public API for unmapping.
+	 */
+	private static final Unsafe unsafe = Exceptions.sneak().get(() -> {
+		var field = Unsafe.class.getDeclaredField("theUnsafe");
+		field.setAccessible(true);
+		return (Unsafe)field.get(null);
+	});
+	/*
+	 * Buffer must not be used after this. All access happens under the lock, so there is no concurrent reader.
+	 */
+	private void unmap() {
+		if (buffer != null) {
+			unsafe.invokeCleaner(buffer);
+			buffer = null;
+		}
+	}
+	private void map(long size) {
+		unmap();
+		buffer = Exceptions.sneak().get(() -> channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+	}
+	private byte[] read(int offset, int length) {
+		var bytes = new byte[length];
+		buffer.get(offset, bytes);
+		return bytes;
+	}
+	/*
+	 * Record layout: key length, key, body length, body checksum, body.
+	 */
+	private static final int OVERHEAD = 12;
+	private static int checksum(byte[] body) {
+		var checksum = new CRC32C();
+		checksum.update(body);
+		return (int)checksum.getValue();
+	}
+	private static ByteBuffer encode(byte[] key, byte[] body) {
+		var record = ByteBuffer.allocate(OVERHEAD + key.length + body.length);
+		record.putInt(key.length);
+		record.put(key);
+		record.putInt(body.length);
+		record.putInt(checksum(body));
+		record.put(body);
+		return record;
+	}
+	private void scan() {
+		int position = HEADER;
+		while (position + 4 <= end) {
+			int keyLength = buffer.getInt(position);
+			if (keyLength < 0 || position + (long)OVERHEAD + keyLength > end)
+				break;
+			int bodyLength = buffer.getInt(position + 4 + keyLength);
+			int body = position + OVERHEAD + keyLength;
+			if (bodyLength < 0 || (long)body + bodyLength > end)
+				break;
+			try {
+				index.put((ReactiveObject)ReactiveCacheSnapshots.deserialize(read(position + 4, keyLength)), new Location(body, bodyLength));
+			} catch (IOException | ClassNotFoundException | ClassCastException ex) {
+				/*
+				 * Key class was probably removed or changed. Skip the record.
+				 */
+			}
+			++records;
+			position = body + bodyLength;
+		}
+		/*
+		 * Truncate any trailing garbage, e.g. partially written record.
+		 */
+		end = position;
+	}
+	private void reserve(int length) {
+		if (end + length > Integer.MAX_VALUE)
+			throw new IllegalStateException("Persistent cache is too large.");
+		if (end + length > buffer.capacity())
+			map(Math.min(Integer.MAX_VALUE, Math.max(2L * buffer.capacity(), end + length)));
+	}
+	private Location append(byte[] key, byte[] body) {
+		var record = encode(key, body);
+		reserve(record.capacity());
+		int position = (int)end;
+		buffer.put(position, record.array());
+		end = position + record.capacity();
+		++records;
+		return new Location(position + OVERHEAD + key.length, body.length);
+	}
+	private void commit() {
+		buffer.putLong(8, end);
+		buffer.force();
+	}
+	private synchronized ReactiveSnapshot load(ReactiveObject key) {
+		var location = index.get(key);
+		if (location == null || buffer == null)
+			return null;
+		try {
+			var body = read(location.offset(), location.length());
+			if (buffer.getInt(location.offset() - 4) != checksum(body)) {
+				index.remove(key);
+				return null;
+			}
+			var snapshot = (ReactiveSnapshot)ReactiveCacheSnapshots.deserialize(body);
+			if (!snapshot.key().equals(key))
+				return null;
+			written.put(key, snapshot.signature());
+			return snapshot;
+		} catch (IOException | ClassNotFoundException | ClassCastException ex) {
+			index.remove(key);
+			return null;
+		}
+	}
+	@Override
+	public ReactiveObjectNode materialize(ReactiveObject key) {
+		var node = nodes.get(key);
+		if (node != null)
+			return node;
+		/*
+		 * Instantiate and restore outside of the map, because restored node can be large and deserialization is slow.
+		 */
+		node = key.reactiveConfig().instantiate();
+		if (node instanceof ReactiveSnapshotNode restorable) {
+			var snapshot = load(key);
+			if (snapshot != null)
+				restorable.restore(snapshot);
+		}
+		var existing = nodes.putIfAbsent(key, node);
+		return existing != null ? existing : node;
+	}
+	@Override
+	public Collection<ReactiveObjectNode> nodes() {
+		return new ArrayList<>(nodes.values());
+	}
+	/*
+	 * Appends snapshots of all nodes that changed since they were last written.
+	 */
+	public synchronized void flush() {
+		if (buffer == null)
+			throw new IllegalStateException("Persistent cache is closed.");
+		for (var node : nodes.values()) {
+			if (!(node instanceof ReactiveSnapshotNode persistent))
+				continue;
+			var snapshot = persistent.snapshot();
+			if (snapshot == null)
+				continue;
+			var key = snapshot.key();
+			var signature = snapshot.signature();
+			var previous = written.get(key);
+			if (signature.equals(previous))
+				continue;
+			try {
+				index.put(key, append(ReactiveCacheSnapshots.serialize(key), ReactiveCacheSnapshots.serialize(snapshot)));
+				written.put(key, signature);
+			} catch (IOException ex) {
+				/*
+				 * Output contains something that is not serializable. Such node is simply not persisted.
+				 */
+			}
+		}
+		commit();
+	}
+	private static void write(FileChannel channel, ByteBuffer data) throws IOException {
+		data.flip();
+		while (data.hasRemaining())
+			channel.write(data);
+	}
+	/*
+	 * Rewrites the log to contain only the latest record for every key. Does nothing if there is not enough garbage.
+	 * Compacted log is written to temporary file, which then atomically replaces the original file,
+	 * like in ReactiveCacheSnapshots. Crash during compaction leaves the original file intact.
+	 */
+	public synchronized void compact() {
+		if (buffer == null)
+			throw new IllegalStateException("Persistent cache is closed.");
+		if (records <= 2 * index.size() + 16)
+			return;
+		record Live(ReactiveObject key, byte[] serialized, byte[] body) {}
+		var live = new ArrayList<Live>();
+		long length = HEADER;
+		for (var entry : index.entrySet()) {
+			try {
+				var serialized = ReactiveCacheSnapshots.serialize(entry.getKey());
+				var body = read(entry.getValue().offset(), entry.getValue().length());
+				live.add(new Live(entry.getKey(), serialized, body));
+				length += OVERHEAD + serialized.length + body.length;
+			} catch (IOException ex) {
+				/*
+				 * Key cannot be serialized anymore. Drop the record.
+				 */
+			}
+		}
+		var temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		var relocated = new HashMap<ReactiveObject, Location>();
+		try (var output = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			write(output, ByteBuffer.allocate(HEADER).putLong(MAGIC).putLong(length));
+			long position = HEADER;
+			for (var entry : live) {
+				var record = encode(entry.serialized(), entry.body());
+				write(output, record);
+				relocated.put(entry.key(), new Location((int)(position + OVERHEAD + entry.serialized().length), entry.body().length));
+				position += record.capacity();
+			}
+			output.force(true);
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		/*
+		 * Release the old file before replacing it, because some platforms do not allow replacing mapped files.
+		 */
+		unmap();
+		Exceptions.sneak().run(channel::close);
+		Exceptions.sneak().run(() -> Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE));
+		open();
+		index.clear();
+		index.putAll(relocated);
+		end = length;
+		records = live.size();
+	}
+	@Override
+	public synchronized void close() {
+		if (buffer == null)
+			return;
+		flush();
+		unmap();
+		Exceptions.sneak().run(channel::close);
+	}
+}
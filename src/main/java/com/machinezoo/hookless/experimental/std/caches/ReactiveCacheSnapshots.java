@@ -0,0 +1,111 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.caches;
+
+import java.io.*;
+import java.nio.file.*;
+import java.util.*;
+import com.machinezoo.hookless.experimental.*;
+import com.machinezoo.hookless.experimental.std.*;
+import com.machinezoo.noexception.*;
+
+/*
+ * Saving and loading of cache contents, used to warm up caches after restart.
+ *
+ * File format is a sequence of length-prefixed serialized snapshots. Every snapshot is serialized separately,
+ * so that snapshot that cannot be deserialized (e.g. after code change) can be skipped without losing the rest.
+ * File is written to temporary location and then moved into place, so that crash never leaves partially written snapshot file.
+ *
+ * Loaded snapshots are not trusted. Nodes verify their dependencies before they use restored output.
+ * Java deserialization is used, so the file must come from a trusted source.
+ */
+public class ReactiveCacheSnapshots {
+	static byte[] serialize(Object object) throws IOException {
+		var bytes = new ByteArrayOutputStream();
+		try (var output = new ObjectOutputStream(bytes)) {
+			output.writeObject(object);
+		}
+		return bytes.toByteArray();
+	}
+	static Object deserialize(byte[] bytes) throws IOException, ClassNotFoundException {
+		try (var input = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+			return input.readObject();
+		}
+	}
+	/*
+	 * Returns the number of saved snapshots. Nodes that do not support snapshots or that are outdated are skipped.
+	 */
+	public static int save(Collection<ReactiveObjectNode> nodes, Path path) {
+		Objects.requireNonNull(path);
+		var temporary = path.resolveSibling(path.getFileName() + ".tmp");
+		int count = 0;
+		try (var output = new DataOutputStream(new BufferedOutputStream(Exceptions.sneak().get(() -> Files.newOutputStream(temporary))))) {
+			for (var node : nodes) {
+				if (!(node instanceof ReactiveSnapshotNode persistent))
+					continue;
+				var snapshot = persistent.snapshot();
+				if (snapshot == null)
+					continue;
+				/*
+				 * Failure to serialize one snapshot (e.g. non-serializable value or failing custom writeObject()) only skips that snapshot.
+				 * Errors while writing the file still abort the save.
+				 */
+				byte[] serialized;
+				try {
+					serialized = serialize(snapshot);
+				} catch (IOException ex) {
+					continue;
+				}
+				output.writeInt(serialized.length);
+				output.write(serialized);
+				++count;
+			}
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		Exceptions.sneak().run(() -> Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE));
+		return count;
+	}
+	/*
+	 * Missing file is treated as empty. Truncated file yields all complete snapshots.
+	 * Length prefix is checked against the rest of the file, so that corrupted prefix stops loading
+	 * instead of allocating huge or negative array. Nothing after corrupted prefix can be trusted, because record boundaries are lost.
+	 */
+	public static Map<ReactiveObject, ReactiveSnapshot> load(Path path) {
+		Objects.requireNonNull(path);
+		var snapshots = new HashMap<ReactiveObject, ReactiveSnapshot>();
+		if (!Files.exists(path))
+			return snapshots;
+		try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			long remaining = Files.size(path);
+			while (true) {
+				int length;
+				try {
+					length = input.readInt();
+				} catch (EOFException ex) {
+					break;
+				}
+				remaining -= Integer.BYTES;
+				if (length < 0 || length > remaining)
+					break;
+				var serialized = new byte[length];
+				input.readFully(serialized);
+				remaining -= length;
+				try {
+					var snapshot = (ReactiveSnapshot)deserialize(serialized);
+					snapshots.put(snapshot.key(), snapshot);
+				} catch (IOException | ClassNotFoundException | ClassCastException ex) {
+					/*
+					 * Skip snapshots of classes that were removed or changed incompatibly.
+					 */
+				}
+			}
+		} catch (EOFException ex) {
+			/*
+			 * Truncated file. Keep what we have.
+			 */
+		} catch (IOException ex) {
+			throw new UncheckedIOException(ex);
+		}
+		return snapshots;
+	}
+}
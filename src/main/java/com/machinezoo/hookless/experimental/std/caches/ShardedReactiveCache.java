@@ -0,0 +1,185 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.caches;
+
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import com.machinezoo.hookless.experimental.*;
+import com.machinezoo.hookless.experimental.std.*;
+import io.micrometer.core.instrument.*;
+
+/*
+ * Permanent cache that never instantiates nodes under a lock.
+ *
+ * PermanentReactiveCache uses ConcurrentHashMap.computeIfAbsent(), which holds bin lock while the node is instantiated.
+ * Slow instantiation then blocks unrelated keys that happen to share the bin.
+ * This cache instead inserts a placeholder, instantiates the node without holding any lock, and then replaces the placeholder.
+ * Threads that request the same key in the meantime wait for the placeholder. No other keys are affected.
+ *
+ * Keys are spread over shards, each with its own map and statistics. Shards do not reduce contention much by themselves,
+ * because ConcurrentHashMap is already fine-grained, but per-shard metrics show whether load is balanced
+ * and how often threads wait for each other's instantiation (contention).
+ */
+public class ShardedReactiveCache implements ReactiveCache {
+	private static class Placeholder {
+		final Thread owner = Thread.currentThread();
+		final CompletableFuture<ReactiveObjectNode> node = new CompletableFuture<>();
+	}
+	private static class Shard {
+		/*
+		 * Values are either ReactiveObjectNode or Placeholder.
+		 */
+		final ConcurrentMap<ReactiveObject, Object> nodes = new ConcurrentHashMap<>();
+		final LongAdder hits = new LongAdder();
+		final LongAdder misses = new LongAdder();
+		final LongAdder waits = new LongAdder();
+		/*
+		 * Number of instantiated nodes, i.e. map size without placeholders. Nodes are never removed, so it only grows.
+		 */
+		final LongAdder size = new LongAdder();
+	}
+	private final Shard[] shards;
+	private final ConcurrentMap<ReactiveObject, ReactiveSnapshot> restored = new ConcurrentHashMap<>();
+	public ShardedReactiveCache(String name, int shards) {
+		Objects.requireNonNull(name);
+		if (shards <= 0 || Integer.bitCount(shards) != 1)
+			throw new IllegalArgumentException("Shard count must be a power of two.");
+		this.shards = new Shard[shards];
+		for (int i = 0; i < shards; ++i) {
+			var shard = new Shard();
+			this.shards[i] = shard;
+			var tags = Tags.of("cache", name, "shard", Integer.toString(i));
+			FunctionCounter.builder("hookless.cache.hits", shard, s -> s.hits.sum()).tags(tags).register(Metrics.globalRegistry);
+			FunctionCounter.builder("hookless.cache.misses", shard, s -> s.misses.sum()).tags(tags).register(Metrics.globalRegistry);
+			FunctionCounter.builder("hookless.cache.waits", shard, s -> s.waits.sum()).tags(tags).register(Metrics.globalRegistry);
+			Gauge.builder("hookless.cache.size", shard, s -> s.size.sum()).tags(tags).register(Metrics.globalRegistry);
+		}
+	}
+	/*
+	 * Default shard count is a power of two at least as large as core count.
+	 */
+	public ShardedReactiveCache(String name) {
+		this(name, Integer.highestOneBit(Math.max(1, Runtime.getRuntime().availableProcessors() - 1)) << 1);
+	}
+	private Shard shard(ReactiveObject key) {
+		/*
+		 * Spread hash bits like HashMap does, so that keys with poor hashCode() are still distributed.
+		 */
+		int hash = key.hashCode();
+		return shards[(hash ^ (hash >>> 16)) & (shards.length - 1)];
+	}
+	@Override
+	public ReactiveObjectNode materialize(ReactiveObject key) {
+		var shard = shard(key);
+		var existing = shard.nodes.get(key);
+		if (existing instanceof ReactiveObjectNode node) {
+			shard.hits.increment();
+			return node;
+		}
+		if (existing == null) {
+			var placeholder = new Placeholder();
+			existing = shard.nodes.putIfAbsent(key, placeholder);
+			if (existing == null) {
+				shard.misses.increment();
+				return instantiate(shard, key, placeholder);
+			}
+			if (existing instanceof ReactiveObjectNode node) {
+				shard.hits.increment();
+				return node;
+			}
+		}
+		var placeholder = (Placeholder)existing;
+		/*
+		 * Waiting for our own placeholder would deadlock. This happens when node's instantiation materializes the node itself.
+		 */
+		if (placeholder.owner == Thread.currentThread())
+			throw new IllegalStateException("Recursive materialization of " + key);
+		shard.waits.increment();
+		var thread = Thread.currentThread();
+		waiting.put(thread, placeholder);
+		try {
+			if (cyclic(placeholder))
+				throw new IllegalStateException("Cyclic materialization of " + key + " across threads");
+			return placeholder.node.join();
+		} catch (CompletionException ex) {
+			/*
+			 * Instantiation failed in another thread. Placeholder was removed, so retry in this thread.
+			 */
+			return materialize(key);
+		} finally {
+			waiting.remove(thread);
+		}
+	}
+	/*
+	 * Cyclic instantiation can also span threads. Thread A instantiating X materializes Y while thread B instantiating Y materializes X.
+	 * Both threads would wait for each other's placeholder forever. We therefore keep a wait-for graph.
+	 * Every waiting thread registers the placeholder it waits for and then follows the chain of placeholder owners.
+	 * If the chain leads back to the current thread, waiting would deadlock.
+	 * Since threads register before they check, the last thread to close the cycle always sees it.
+	 * Failed instantiation then releases its placeholder, which makes the other threads fail in turn.
+	 * 
+	 * Only cycles within this cache are detected. Cycles spanning several caches still deadlock.
+	 * Chain length is bounded, because the graph can change while we follow it.
+	 */
+	private final ConcurrentMap<Thread, Placeholder> waiting = new ConcurrentHashMap<>();
+	private boolean cyclic(Placeholder placeholder) {
+		var current = Thread.currentThread();
+		int limit = waiting.size() + 1;
+		for (var next = placeholder; next != null && limit-- > 0; next = waiting.get(next.owner))
+			if (next.owner == current)
+				return true;
+		return false;
+	}
+	private ReactiveObjectNode instantiate(Shard shard, ReactiveObject key, Placeholder placeholder) {
+		ReactiveObjectNode node;
+		try {
+			node = key.reactiveConfig().instantiate();
+			var snapshot = restored.remove(key);
+			if (snapshot != null && node instanceof ReactiveSnapshotNode restorable)
+				restorable.restore(snapshot);
+		} catch (Throwable ex) {
+			shard.nodes.remove(key, placeholder);
+			placeholder.node.completeExceptionally(ex);
+			throw ex;
+		}
+		if (shard.nodes.replace(key, placeholder, node))
+			shard.size.increment();
+		placeholder.node.complete(node);
+		return node;
+	}
+	/*
+	 * Live view of the cache. Iteration is weakly consistent and it skips nodes that are still being instantiated.
+	 * Size does not count nodes being instantiated either, so that it agrees with iteration.
+	 * Nothing is copied, so iterating over large cache does not allocate large arrays.
+	 */
+	@Override
+	public Collection<ReactiveObjectNode> nodes() {
+		return new AbstractCollection<ReactiveObjectNode>() {
+			@Override
+			public Iterator<ReactiveObjectNode> iterator() {
+				return Arrays.stream(shards)
+					.flatMap(s -> s.nodes.values().stream())
+					.filter(ReactiveObjectNode.class::isInstance)
+					.map(ReactiveObjectNode.class::cast)
+					.iterator();
+			}
+			@Override
+			public int size() {
+				long size = 0;
+				for (var shard : shards)
+					size += shard.size.sum();
+				return (int)Math.min(size, Integer.MAX_VALUE);
+			}
+		};
+	}
+	public int snapshot(Path path) {
+		return ReactiveCacheSnapshots.save(nodes(), path);
+	}
+	public int restore(Path path) {
+		var snapshots = ReactiveCacheSnapshots.load(path);
+		snapshots.keySet().removeIf(k -> shard(k).nodes.containsKey(k));
+		restored.putAll(snapshots);
+		return snapshots.size();
+	}
+}
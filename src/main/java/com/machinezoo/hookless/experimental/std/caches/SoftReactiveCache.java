@@ -0,0 +1,31 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.caches;
+
+import java.util.*;
+import com.google.common.cache.*;
+import com.machinezoo.hookless.experimental.*;
+
+/*
+ * Like WeakReactiveCache, but unreferenced nodes are kept until the garbage collector needs memory.
+ * This retains recently used intermediaries, which would be otherwise recomputed whenever they are read again,
+ * at the cost of larger heap and longer garbage collection pauses.
+ * Soft references are cleared only for nodes that are not strongly reachable,
+ * so subscribed data nodes are kept alive by their subscribers exactly as in WeakReactiveCache.
+ */
+public class SoftReactiveCache implements ReactiveCache {
+	public static final SoftReactiveCache DEFAULT = new SoftReactiveCache();
+	private final Cache<ReactiveObject, ReactiveObjectNode> nodes = CacheBuilder.newBuilder()
+		.softValues()
+		.build();
+	@Override
+	public ReactiveObjectNode materialize(ReactiveObject key) {
+		var node = nodes.getIfPresent(key);
+		if (node != null)
+			return node;
+		return nodes.asMap().computeIfAbsent(key, k -> k.reactiveConfig().instantiate());
+	}
+	@Override
+	public Collection<ReactiveObjectNode> nodes() {
+		return new ArrayList<>(nodes.asMap().values());
+	}
+}
@@ -0,0 +1,40 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.caches;
+
+import java.util.*;
+import com.google.common.cache.*;
+import com.machinezoo.hookless.experimental.*;
+
+/*
+ * Cache that keeps nodes only as long as they are strongly reachable from elsewhere.
+ * Memory then scales with live working set rather than with the set of all keys ever materialized.
+ *
+ * Nodes are kept alive by application code that holds them and by computations that depend on them.
+ * Standard computation nodes strongly reference their dependencies while data nodes reference their subscribers only weakly,
+ * so the whole dependency graph stays reachable from its sinks (e.g. running processes) and it is collected when the sinks go away.
+ * Data node with live subscribers is therefore never collected and its subscribers are always invalidated by the right node instance.
+ * This holds even while refresh() temporarily unsubscribes, because the computation keeps its previous dependencies
+ * in a local variable until it subscribes again. Only unsubscribed data nodes can be collected,
+ * and computations that read them again compare versions of the replacements when they subscribe.
+ * Subscriber itself can be collected and materialized again, in which case the new instance replaces the stale subscription.
+ *
+ * Weak values in Guava cache use reference equality, which is fine, because we never compare values.
+ * Guava cache is also synchronized per key, so concurrent materialization of the same key instantiates only one node.
+ */
+public class WeakReactiveCache implements ReactiveCache {
+	public static final WeakReactiveCache DEFAULT = new WeakReactiveCache();
+	private final Cache<ReactiveObject, ReactiveObjectNode> nodes = CacheBuilder.newBuilder()
+		.weakValues()
+		.build();
+	@Override
+	public ReactiveObjectNode materialize(ReactiveObject key) {
+		var node = nodes.getIfPresent(key);
+		if (node != null)
+			return node;
+		return nodes.asMap().computeIfAbsent(key, k -> k.reactiveConfig().instantiate());
+	}
+	@Override
+	public Collection<ReactiveObjectNode> nodes() {
+		return new ArrayList<>(nodes.asMap().values());
+	}
+}
@@ -0,0 +1,23 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.memos;
+
+import com.machinezoo.hookless.experimental.*;
+
+/*
+ * Cached result of a computation, recomputed only when some of its dependencies change.
+ * Memos can depend on other memos, forming a graph of intermediaries with early cutoff.
+ */
+public interface ReactiveMemo<T> extends ReactiveIntermediary {
+	@Override
+	default ReactiveMemoConfig<T> reactiveConfig() {
+		return new ReactiveMemoConfig<>(this);
+	}
+	T compute();
+	@SuppressWarnings("unchecked")
+	private ReactiveMemoNode<T> node() {
+		return (ReactiveMemoNode<T>)ReactiveObjectNode.of(this);
+	}
+	default T get() {
+		return node().get();
+	}
+}
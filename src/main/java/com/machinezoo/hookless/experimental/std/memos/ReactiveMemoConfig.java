@@ -0,0 +1,26 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.memos;
+
+import java.util.*;
+import com.machinezoo.hookless.experimental.*;
+import com.machinezoo.hookless.experimental.std.caches.*;
+
+public class ReactiveMemoConfig<T> implements ReactiveObjectConfig {
+	private final ReactiveMemo<T> key;
+	public ReactiveMemoConfig(ReactiveMemo<T> key) {
+		Objects.requireNonNull(key);
+		this.key = key;
+	}
+	@Override
+	public ReactiveMemo<T> key() {
+		return key;
+	}
+	@Override
+	public ReactiveCache cache() {
+		return PermanentReactiveCache.DEFAULT;
+	}
+	@Override
+	public ReactiveMemoNode<T> instantiate() {
+		return new ReactiveMemoNode<>(key);
+	}
+}
@@ -0,0 +1,105 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.memos;
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+import com.machinezoo.hookless.experimental.*;
+import com.machinezoo.hookless.experimental.std.*;
+import com.machinezoo.hookless.experimental.std.blocking.*;
+
+/*
+ * Version is a random hash that is replaced whenever output changes. Random versions are unique across runs,
+ * which makes memos safe to persist. Counter would be restarted after restart and it could then match persisted version
+ * of different output. ThreadLocalRandom is good enough here. We just need to avoid accidental collisions.
+ * Output is considered unchanged if the value is equal and the exception is the same instance.
+ * Exceptions are not compared by value, because that would be expensive and computations rarely throw the same exception instance twice,
+ * so every exception is treated as a change.
+ */
+public class ReactiveMemoNode<T> extends StandardReactiveIntermediaryNode implements ReactiveSnapshotNode {
+	private final ReactiveMemo<T> key;
+	/*
+	 * False until there is some output (computed or restored) to compare new output with.
+	 */
+	private boolean initialized;
+	private T value;
+	private RuntimeException exception;
+	private boolean blocking;
+	public ReactiveMemoNode(ReactiveMemo<T> key) {
+		super(ReactiveVersionHash.ZERO);
+		this.key = key;
+	}
+	@Override
+	public ReactiveMemo<T> key() {
+		return key;
+	}
+	@Override
+	protected void compute() {
+		T value = null;
+		RuntimeException exception = null;
+		try {
+			value = key.compute();
+		} catch (RuntimeException ex) {
+			exception = ex;
+		}
+		boolean blocking = effect(ReactiveBlockingKey.INSTANCE) != null;
+		synchronized (this) {
+			if (!initialized || !Objects.equals(value, this.value) || exception != this.exception || blocking != this.blocking) {
+				initialized = true;
+				this.value = value;
+				this.exception = exception;
+				this.blocking = blocking;
+				var random = ThreadLocalRandom.current();
+				publish(new ReactiveVersionHash(random.nextLong(), random.nextLong(), random.nextLong(), random.nextLong()));
+			}
+		}
+	}
+	public T get() {
+		refresh();
+		T value;
+		RuntimeException exception;
+		boolean blocking;
+		synchronized (this) {
+			/*
+			 * Track inside synchronized block to ensure tracked version matches returned output.
+			 */
+			var computation = ReactiveStack.top();
+			if (computation != null)
+				computation.track(this, published());
+			value = this.value;
+			exception = this.exception;
+			blocking = this.blocking;
+		}
+		if (blocking)
+			ReactiveBlocking.block();
+		if (exception != null)
+			throw exception;
+		return value;
+	}
+	/*
+	 * Only successfully computed non-blocking serializable values are persisted.
+	 */
+	@Override
+	public synchronized ReactiveSnapshot snapshot() {
+		if (!initialized || exception != null || blocking || !(value == null || value instanceof Serializable))
+			return null;
+		var dependencies = dependencySnapshot();
+		if (dependencies == null)
+			return null;
+		return new ReactiveSnapshot(key, (ReactiveVersionHash)published(), dependencies, (Serializable)value);
+	}
+	@SuppressWarnings("unchecked")
+	@Override
+	public synchronized void restore(ReactiveSnapshot snapshot) {
+		if (!snapshot.key().equals(key))
+			throw new IllegalArgumentException();
+		restoreDependencies(snapshot.dependencies());
+		initialized = true;
+		value = (T)snapshot.output();
+		publish(snapshot.version());
+	}
+	@Override
+	public synchronized String toString() {
+		return key + " = " + (exception != null ? exception : value);
+	}
+}
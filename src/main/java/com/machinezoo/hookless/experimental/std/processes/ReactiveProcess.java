@@ -0,0 +1,25 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.processes;
+
+import com.machinezoo.hookless.experimental.*;
+
+/*
+ * Counterpart of ReactiveThread in the keyed graph. Once started, it reruns whenever some of its dependencies change.
+ * Dependencies are verified before every rerun, so changes that are cut off by intermediaries do not cause reruns.
+ */
+public interface ReactiveProcess extends ReactiveComputation {
+	@Override
+	default ReactiveProcessConfig reactiveConfig() {
+		return new ReactiveProcessConfig(this);
+	}
+	void run();
+	private ReactiveProcessNode node() {
+		return (ReactiveProcessNode)ReactiveObjectNode.of(this);
+	}
+	default void start() {
+		node().start();
+	}
+	default void stop() {
+		node().stop();
+	}
+}
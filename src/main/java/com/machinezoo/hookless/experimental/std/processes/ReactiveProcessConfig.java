@@ -0,0 +1,34 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.processes;
+
+import java.util.*;
+import java.util.concurrent.*;
+import com.machinezoo.hookless.*;
+import com.machinezoo.hookless.experimental.*;
+import com.machinezoo.hookless.experimental.std.caches.*;
+
+public class ReactiveProcessConfig implements ReactiveObjectConfig {
+	private final ReactiveProcess key;
+	public ReactiveProcessConfig(ReactiveProcess key) {
+		Objects.requireNonNull(key);
+		this.key = key;
+	}
+	@Override
+	public ReactiveProcess key() {
+		return key;
+	}
+	/*
+	 * Running processes must stay reachable like running reactive threads.
+	 */
+	@Override
+	public ReactiveCache cache() {
+		return PermanentReactiveCache.DEFAULT;
+	}
+	public Executor executor() {
+		return ReactiveExecutor.common();
+	}
+	@Override
+	public ReactiveProcessNode instantiate() {
+		return new ReactiveProcessNode(key);
+	}
+}
@@ -0,0 +1,73 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.processes;
+
+import java.util.concurrent.*;
+import org.slf4j.*;
+import com.machinezoo.hookless.experimental.std.*;
+import com.machinezoo.noexception.slf4j.*;
+
+public class ReactiveProcessNode extends StandardReactiveComputationNode {
+	private static final Logger logger = LoggerFactory.getLogger(ReactiveProcessNode.class);
+	private final ReactiveProcess key;
+	private final Executor executor;
+	private boolean running;
+	public ReactiveProcessNode(ReactiveProcess key) {
+		this.key = key;
+		executor = key.reactiveConfig().executor();
+	}
+	@Override
+	public ReactiveProcess key() {
+		return key;
+	}
+	/*
+	 * Exceptions are logged and the process keeps running, because it will run again when dependencies change.
+	 */
+	@Override
+	protected void compute() {
+		ExceptionLogging.log(logger).run(key::run);
+	}
+	private synchronized boolean running() {
+		return running;
+	}
+	/*
+	 * Process stopped while it was refreshing subscribes to its dependencies when the refresh completes.
+	 * We therefore release the subscriptions again after every refresh of stopped process.
+	 */
+	private void schedule() {
+		executor.execute(ExceptionLogging.log(logger).runnable(() -> {
+			if (!running())
+				return;
+			refresh();
+			if (!running())
+				release();
+		}));
+	}
+	@Override
+	protected void invalidated() {
+		if (running())
+			schedule();
+	}
+	/*
+	 * Starting twice has no effect. Stopped process can be started again. It then runs from scratch.
+	 */
+	public void start() {
+		synchronized (this) {
+			if (running)
+				return;
+			running = true;
+		}
+		schedule();
+	}
+	/*
+	 * Stopped process releases subscriptions, so that it does not keep its dependencies alive.
+	 * If it is refreshing right now, subscriptions are released when the refresh completes.
+	 */
+	public void stop() {
+		synchronized (this) {
+			if (!running)
+				return;
+			running = false;
+		}
+		release();
+	}
+}
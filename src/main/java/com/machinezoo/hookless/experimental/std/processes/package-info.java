@@ -0,0 +1,2 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.processes;
\ No newline at end of file
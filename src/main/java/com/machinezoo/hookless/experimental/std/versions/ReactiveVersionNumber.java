@@ -4,6 +4,11 @@ package com.machinezoo.hookless.experimental.std.versions;
 import com.google.common.primitives.*;
 import com.machinezoo.hookless.experimental.*;
 
+/*
+ * The number must be derived from content, e.g. a computed constant. It must not be a counter that restarts with every run,
+ * because persisted computations (see ReactiveSnapshot) would then match dependency versions from previous run
+ * and restore stale output. Counters should be replaced with random hashes.
+ */
 public record ReactiveVersionNumber(long number) implements ReactiveVersion {
 	private static final ReactiveVersionHash PREFIX = ReactiveVersionHash.hash(ReactiveVersionNumber.class.getName());
 	@Override
@@ -70,8 +70,22 @@ public class OwnerTrace<T> {
 	private static LoadingCache<Object, OwnerTraceData> all = CacheBuilder.newBuilder()
 		.weakKeys()
 		.build(CacheLoader.from(OwnerTraceData::new));
+	/*
+	 * The weak map is a global synchronized structure that allocates weak reference and map entry for every traced object.
+	 * Hookless creates short-lived scopes and triggers in every reactive computation, so this is a measurable overhead.
+	 * Applications that do not need owner information can disable owner tracing at startup
+	 * by setting system property hookless.ownertrace to "disabled".
+	 * 
+	 * When disabled, OwnerTrace is a stateless builder that ignores all configuration.
+	 * Spans are left without owner tags, toString() falls back to class name, and metrics are tagged with class name.
+	 * The setting is read once into a static final field, so that JIT can eliminate the disabled code paths.
+	 */
+	private static final boolean enabled = !"disabled".equals(System.getProperty("hookless.ownertrace"));
+	public static boolean enabled() {
+		return enabled;
+	}
 	public static <T> OwnerTrace<T> of(T target) {
-		return new OwnerTrace<T>(target, all.getUnchecked(target));
+		return new OwnerTrace<T>(target, enabled ? all.getUnchecked(target) : null);
 	}
 	private final T target;
 	public T target() {
@@ -111,7 +125,8 @@ public class OwnerTrace<T> {
 	 * Aliasing allows using neat short namespaces for ancestor tags instead of the lengthy class name.
 	 */
 	public OwnerTrace<T> alias(String alias) {
-		data.alias = alias;
+		if (data != null)
+			data.alias = alias;
 		return this;
 	}
 	/*
@@ -140,7 +155,7 @@ public class OwnerTrace<T> {
 		/*
 		 * Silently ignore null tag values. This simplifies code that would otherwise have to perform null check.
 		 */
-		if (value != null) {
+		if (value != null && data != null) {
 			OwnerTag head = data.tags;
 			for (OwnerTag tag = head; tag != null; tag = tag.next) {
 				if (tag.key.equals(key)) {
@@ -160,6 +175,8 @@ public class OwnerTrace<T> {
 	 */
 	private static final AtomicLong counter = new AtomicLong();
 	public OwnerTrace<T> generateId() {
+		if (data == null)
+			return this;
 		return tag("id", counter.incrementAndGet());
 	}
 	/*
@@ -167,6 +184,8 @@ public class OwnerTrace<T> {
 	 * even if there's no parent scope in the trace.
 	 */
 	public OwnerTrace<T> parent(Object parent) {
+		if (data == null)
+			return this;
 		if (parent instanceof OwnerTrace)
 			data.parent = ((OwnerTrace<?>)parent).data;
 		else if (parent == null)
@@ -220,6 +239,18 @@ public class OwnerTrace<T> {
 		}
 		return namespaces;
 	}
+	/*
+	 * Dot-separated chain of ancestor aliases. This is the same string that is used as "owner" tag in tracing spans.
+	 * Since it does not include tag values, it has low cardinality and it is suitable for tagging metrics.
+	 */
+	public String path() {
+		if (data == null)
+			return simpleName();
+		return path(namespaces());
+	}
+	private static String path(List<Namespace> namespaces) {
+		return namespaces.stream().map(ns -> ns.name).collect(joining("."));
+	}
 	/*
 	 * We can now use the constructed ownership hierarchy and tags to create informative tracing span.
 	 * 
@@ -230,8 +261,10 @@ public class OwnerTrace<T> {
 	 */
 	public Span fill(Span span) {
 		Objects.requireNonNull(span);
+		if (data == null)
+			return span;
 		List<Namespace> namespaces = namespaces();
-		span.setTag("owner", namespaces.stream().map(ns -> ns.name).collect(joining(".")));
+		span.setTag("owner", path(namespaces));
 		for (Namespace ns : namespaces) {
 			for (OwnerTag tag = ns.data.tags; tag != null; tag = tag.next) {
 				String key = ns.name + "." + tag.key;
@@ -264,11 +297,16 @@ public class OwnerTrace<T> {
 		 * This is not performance-critical code, so we aim for code simplicity rather than performance.
 		 * We are constructing a TreeMap in order to force display in sorted order.
 		 */
+		if (data == null)
+			return simpleName();
 		Map<String, Object> sorted = new TreeMap<>();
 		List<Namespace> namespaces = namespaces();
 		for (Namespace ns : namespaces)
 			for (OwnerTag tag = ns.data.tags; tag != null; tag = tag.next)
 				sorted.put(ns.name + "." + tag.key, tag.value);
-		return namespaces.stream().map(ns -> ns.name).collect(joining(".")) + sorted;
+		return path(namespaces) + sorted;
+	}
+	private String simpleName() {
+		return target instanceof Class ? ((Class<?>)target).getSimpleName() : target.getClass().getSimpleName();
 	}
 }
@@ -33,4 +33,8 @@ module com.machinezoo.hookless {
     requires io.opentracing.util;
     requires it.unimi.dsi.fastutil;
     requires micrometer.core;
+    /*
+     * Used to unmap memory-mapped files. Java 17 has no public API for that.
+     */
+    requires jdk.unsupported;
 }
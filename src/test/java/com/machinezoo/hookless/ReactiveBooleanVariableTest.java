@@ -0,0 +1,114 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import org.junit.jupiter.api.*;
+import com.machinezoo.closeablescope.*;
+
+public class ReactiveBooleanVariableTest {
+	@Test
+	public void crud() {
+		// Construct default.
+		ReactiveBooleanVariable v = new ReactiveBooleanVariable();
+		assertEquals(false, v.getAsBoolean());
+		// Write and read.
+		v.set(true);
+		assertEquals(true, v.getAsBoolean());
+		v.set(false);
+		assertEquals(false, v.getAsBoolean());
+		// Construct non-default.
+		v = new ReactiveBooleanVariable(true);
+		assertEquals(true, v.getAsBoolean());
+		// Boxed API is equivalent.
+		v.set(Boolean.valueOf(false));
+		assertEquals(Boolean.valueOf(false), v.get());
+		assertEquals(new ReactiveValue<>(Boolean.valueOf(false)), v.value());
+	}
+	@Test
+	public void versions() {
+		ReactiveBooleanVariable v = new ReactiveBooleanVariable(true);
+		assertEquals(1, v.version());
+		v.set(false);
+		assertEquals(2, v.version());
+		// Writing the same value does not change the version.
+		v.set(false);
+		assertEquals(2, v.version());
+		v.set(Boolean.valueOf(false));
+		assertEquals(2, v.version());
+	}
+	@Test
+	public void fireOnChange() {
+		ReactiveBooleanVariable v = new ReactiveBooleanVariable(true);
+		AtomicInteger c = new AtomicInteger();
+		try (ReactiveTrigger t = new ReactiveTrigger()) {
+			t.callback(c::incrementAndGet);
+			t.arm(Arrays.asList(new ReactiveVariable.Version(v)));
+			// Equal write does not fire the trigger.
+			v.set(true);
+			assertEquals(0, c.get());
+			v.set(false);
+			assertEquals(1, c.get());
+		}
+	}
+	@Test
+	public void trackAccess() {
+		ReactiveBooleanVariable v = new ReactiveBooleanVariable(true);
+		ReactiveScope s = new ReactiveScope();
+		try (CloseableScope c = s.enter()) {
+			assertEquals(true, v.getAsBoolean());
+			assertSame(v, s.versions().stream().findFirst().get().variable());
+		}
+	}
+	@Test
+	public void transaction() {
+		ReactiveBooleanVariable v = new ReactiveBooleanVariable(true);
+		ReactiveTransaction t = new ReactiveTransaction();
+		t.set(v, false);
+		assertEquals(true, v.getAsBoolean());
+		t.commit();
+		assertEquals(false, v.getAsBoolean());
+		assertEquals(2, v.version());
+	}
+	@Test
+	public void rejectNonPrimitive() {
+		ReactiveBooleanVariable v = new ReactiveBooleanVariable(true);
+		assertThrows(IllegalArgumentException.class, () -> v.set((Boolean)null));
+		assertThrows(IllegalArgumentException.class, () -> v.value(new ReactiveValue<>(new RuntimeException())));
+		assertThrows(IllegalArgumentException.class, () -> v.value(new ReactiveValue<>(Boolean.valueOf(false), true)));
+		assertEquals(1, v.version());
+	}
+	@Test
+	public void readModifyWrite() {
+		ReactiveBooleanVariable v = new ReactiveBooleanVariable();
+		assertFalse(v.compareAndSet(true, false));
+		assertTrue(v.compareAndSet(false, true));
+		assertTrue(v.getAndSet(false));
+		assertFalse(v.getAndSet(false));
+		assertEquals(3, v.version());
+	}
+	@Test
+	public void cachedValue() {
+		ReactiveBooleanVariable v = new ReactiveBooleanVariable(false);
+		// Repeated reads return the same instance until the value changes.
+		ReactiveValue<?> first = v.value();
+		assertSame(first, v.value());
+		v.set(false);
+		assertSame(first, v.value());
+		v.set(true);
+		assertNotSame(first, v.value());
+		assertEquals(Boolean.valueOf(true), v.value().result());
+	}
+	@Test
+	public void boxedCompareAndSet() {
+		ReactiveBooleanVariable v = new ReactiveBooleanVariable(false);
+		// Values are compared by value even if equality is turned off.
+		v.equality(false);
+		assertTrue(v.compareAndSet(Boolean.valueOf(false), Boolean.valueOf(true)));
+		assertEquals(true, v.getAsBoolean());
+		assertFalse(v.compareAndSet(Boolean.valueOf(false), Boolean.valueOf(false)));
+		assertFalse(v.compareAndSet(null, Boolean.valueOf(false)));
+		assertThrows(IllegalArgumentException.class, () -> v.compareAndSet(Boolean.valueOf(true), null));
+	}
+}
@@ -0,0 +1,123 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import org.junit.jupiter.api.*;
+import com.machinezoo.closeablescope.*;
+
+public class ReactiveCollectionsTest {
+	private static ReactiveTrigger watch(Runnable read) {
+		ReactiveScope s = new ReactiveScope();
+		try (CloseableScope c = s.enter()) {
+			read.run();
+		}
+		ReactiveTrigger t = new ReactiveTrigger();
+		t.arm(s);
+		return t;
+	}
+	@Test
+	public void map() {
+		ReactiveMap<String, Integer> source = new ReactiveMap<>(Map.of("a", 1, "b", 2));
+		AtomicInteger calls = new AtomicInteger();
+		ReactiveMap<String, Integer> view = ReactiveCollections.map(source, v -> {
+			calls.incrementAndGet();
+			return v * 10;
+		});
+		assertEquals(Map.of("a", 10, "b", 20), view.snapshot());
+		calls.set(0);
+		try (ReactiveTrigger t = watch(() -> view.get("a"))) {
+			// Only the changed entry is recomputed.
+			source.put("b", 3);
+			assertEquals(1, calls.get());
+			assertEquals(30, view.get("b"));
+			// Readers of other keys are not invalidated.
+			assertFalse(t.fired());
+			source.put("a", 5);
+			assertTrue(t.fired());
+			assertEquals(50, view.get("a"));
+		}
+		source.remove("a");
+		assertFalse(view.containsKey("a"));
+		source.clear();
+		assertTrue(view.isEmpty());
+	}
+	@Test
+	public void filter() {
+		ReactiveMap<String, Integer> source = new ReactiveMap<>(Map.of("a", 1, "b", 2));
+		ReactiveMap<String, Integer> view = ReactiveCollections.filter(source, (k, v) -> v % 2 == 0);
+		assertEquals(Map.of("b", 2), view.snapshot());
+		source.put("a", 4);
+		source.put("b", 3);
+		assertEquals(Map.of("a", 4), view.snapshot());
+		source.put("c", 6);
+		assertEquals(Map.of("a", 4, "c", 6), view.snapshot());
+	}
+	@Test
+	public void groupBy() {
+		ReactiveMap<String, Integer> source = new ReactiveMap<>(Map.of("a", 1, "b", 2, "c", 3));
+		ReactiveMap<Boolean, ReactiveSet<String>> view = ReactiveCollections.groupBy(source, v -> v % 2 == 0);
+		assertEquals(Set.of("a", "c"), view.get(false).snapshot());
+		assertEquals(Set.of("b"), view.get(true).snapshot());
+		ReactiveSet<String> odd = view.get(false);
+		try (ReactiveTrigger t = watch(() -> odd.contains("a"))) {
+			// Moving another key between groups does not invalidate membership of this key.
+			source.put("c", 4);
+			assertFalse(t.fired());
+			assertEquals(Set.of("b", "c"), view.get(true).snapshot());
+			source.put("a", 6);
+			assertTrue(t.fired());
+		}
+		// Empty groups are removed.
+		assertFalse(view.containsKey(false));
+		source.remove("a");
+		source.remove("b");
+		source.remove("c");
+		assertTrue(view.isEmpty());
+	}
+	@Test
+	public void join() {
+		ReactiveMap<String, Integer> left = new ReactiveMap<>(Map.of("a", 1, "b", 2));
+		ReactiveMap<String, String> right = new ReactiveMap<>(Map.of("b", "x", "c", "y"));
+		ReactiveMap<String, String> view = ReactiveCollections.join(left, right, (l, r) -> l + r);
+		assertEquals(Map.of("b", "2x"), view.snapshot());
+		right.put("a", "z");
+		left.put("c", 3);
+		assertEquals(Map.of("a", "1z", "b", "2x", "c", "3y"), view.snapshot());
+		left.remove("b");
+		right.remove("c");
+		assertEquals(Map.of("a", "1z"), view.snapshot());
+	}
+	@Test
+	public void chain() {
+		ReactiveMap<String, Integer> source = new ReactiveMap<>();
+		ReactiveMap<String, Integer> view = ReactiveCollections.filter(ReactiveCollections.map(source, v -> v + 1), (k, v) -> v > 1);
+		source.put("a", 0);
+		source.put("b", 1);
+		assertEquals(Map.of("b", 2), view.snapshot());
+	}
+	@Test
+	public void failure() {
+		ReactiveMap<String, Integer> source = new ReactiveMap<>(Map.of("a", 1));
+		ReactiveMap<String, Integer> view = ReactiveCollections.map(source, v -> 10 / v);
+		assertEquals(10, view.get("a"));
+		// Failed entry is removed and other writes still work.
+		source.put("a", 0);
+		assertFalse(view.containsKey("a"));
+		source.put("b", 5);
+		assertEquals(2, view.get("b"));
+	}
+	@Test
+	public void nonreactiveOperators() {
+		ReactiveMap<String, Integer> source = new ReactiveMap<>();
+		ReactiveMap<String, Integer> view = ReactiveCollections.map(source, v -> v);
+		// Writer's scope does not pick up dependencies from operators.
+		ReactiveScope s = new ReactiveScope();
+		try (CloseableScope c = s.enter()) {
+			source.put("a", 1);
+		}
+		assertTrue(s.versions().isEmpty());
+		assertEquals(1, view.get("a"));
+	}
+}
@@ -0,0 +1,125 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import org.junit.jupiter.api.*;
+import com.machinezoo.closeablescope.*;
+
+public class ReactiveDoubleVariableTest {
+	@Test
+	public void crud() {
+		// Construct default.
+		ReactiveDoubleVariable v = new ReactiveDoubleVariable();
+		assertEquals(0.0, v.getAsDouble());
+		// Write and read.
+		v.set(1.5);
+		assertEquals(1.5, v.getAsDouble());
+		v.set(2.5);
+		assertEquals(2.5, v.getAsDouble());
+		// Construct non-default.
+		v = new ReactiveDoubleVariable(1.5);
+		assertEquals(1.5, v.getAsDouble());
+		// Boxed API is equivalent.
+		v.set(Double.valueOf(2.5));
+		assertEquals(Double.valueOf(2.5), v.get());
+		assertEquals(new ReactiveValue<>(Double.valueOf(2.5)), v.value());
+	}
+	@Test
+	public void versions() {
+		ReactiveDoubleVariable v = new ReactiveDoubleVariable(1.5);
+		assertEquals(1, v.version());
+		v.set(2.5);
+		assertEquals(2, v.version());
+		// Writing the same value does not change the version.
+		v.set(2.5);
+		assertEquals(2, v.version());
+		v.set(Double.valueOf(2.5));
+		assertEquals(2, v.version());
+	}
+	@Test
+	public void fireOnChange() {
+		ReactiveDoubleVariable v = new ReactiveDoubleVariable(1.5);
+		AtomicInteger c = new AtomicInteger();
+		try (ReactiveTrigger t = new ReactiveTrigger()) {
+			t.callback(c::incrementAndGet);
+			t.arm(Arrays.asList(new ReactiveVariable.Version(v)));
+			// Equal write does not fire the trigger.
+			v.set(1.5);
+			assertEquals(0, c.get());
+			v.set(2.5);
+			assertEquals(1, c.get());
+		}
+	}
+	@Test
+	public void trackAccess() {
+		ReactiveDoubleVariable v = new ReactiveDoubleVariable(1.5);
+		ReactiveScope s = new ReactiveScope();
+		try (CloseableScope c = s.enter()) {
+			assertEquals(1.5, v.getAsDouble());
+			assertSame(v, s.versions().stream().findFirst().get().variable());
+		}
+	}
+	@Test
+	public void transaction() {
+		ReactiveDoubleVariable v = new ReactiveDoubleVariable(1.5);
+		ReactiveTransaction t = new ReactiveTransaction();
+		t.set(v, 2.5);
+		assertEquals(1.5, v.getAsDouble());
+		t.commit();
+		assertEquals(2.5, v.getAsDouble());
+		assertEquals(2, v.version());
+	}
+	@Test
+	public void rejectNonPrimitive() {
+		ReactiveDoubleVariable v = new ReactiveDoubleVariable(1.5);
+		assertThrows(IllegalArgumentException.class, () -> v.set((Double)null));
+		assertThrows(IllegalArgumentException.class, () -> v.value(new ReactiveValue<>(new RuntimeException())));
+		assertThrows(IllegalArgumentException.class, () -> v.value(new ReactiveValue<>(Double.valueOf(2.5), true)));
+		assertEquals(1, v.version());
+	}
+	@Test
+	public void deduplicateNaN() {
+		ReactiveDoubleVariable v = new ReactiveDoubleVariable(Double.NaN);
+		v.set(Double.NaN);
+		assertEquals(1, v.version());
+		// Negative zero is a different value.
+		v.set(0.0);
+		v.set(-0.0);
+		assertEquals(3, v.version());
+	}
+	@Test
+	public void readModifyWrite() {
+		ReactiveDoubleVariable v = new ReactiveDoubleVariable(1.5);
+		assertFalse(v.compareAndSet(2.5, 3.5));
+		assertTrue(v.compareAndSet(1.5, 2.5));
+		assertEquals(3.5, v.addAndGet(1));
+		assertEquals(3.5, v.getAndAccumulate(2, (a, b) -> a * b));
+		assertEquals(7.0, v.getAndSet(0));
+		assertEquals(5, v.version());
+	}
+	@Test
+	public void cachedValue() {
+		ReactiveDoubleVariable v = new ReactiveDoubleVariable(1000.5);
+		// Repeated reads return the same instance until the value changes.
+		ReactiveValue<?> first = v.value();
+		assertSame(first, v.value());
+		v.set(1000.5);
+		assertSame(first, v.value());
+		v.set(2000.5);
+		assertNotSame(first, v.value());
+		assertEquals(Double.valueOf(2000.5), v.value().result());
+	}
+	@Test
+	public void boxedCompareAndSet() {
+		ReactiveDoubleVariable v = new ReactiveDoubleVariable(1000.5);
+		// Values are compared by value even if equality is turned off.
+		v.equality(false);
+		assertTrue(v.compareAndSet(Double.valueOf(1000.5), Double.valueOf(2000.5)));
+		assertEquals(2000.5, v.getAsDouble());
+		assertFalse(v.compareAndSet(Double.valueOf(1000.5), Double.valueOf(3000.5)));
+		assertFalse(v.compareAndSet(null, Double.valueOf(3000.5)));
+		assertThrows(IllegalArgumentException.class, () -> v.compareAndSet(Double.valueOf(2000.5), null));
+	}
+}
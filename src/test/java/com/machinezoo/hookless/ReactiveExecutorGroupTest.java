@@ -0,0 +1,152 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import static org.awaitility.Awaitility.*;
+import static org.hamcrest.MatcherAssert.*;
+import static org.hamcrest.Matchers.*;
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import org.junit.jupiter.api.*;
+import com.machinezoo.noexception.*;
+import io.micrometer.core.instrument.*;
+
+public class ReactiveExecutorGroupTest extends TestBase {
+	ReactiveExecutorGroup g = new ReactiveExecutorGroup(1);
+	@AfterEach
+	public void cleanup() throws Exception {
+		g.shutdown();
+		assertTrue(g.awaitTermination(1, TimeUnit.MINUTES));
+	}
+	@Test
+	public void execute() throws Exception {
+		ReactiveExecutor x = g.tenant("a");
+		// Tenant is the current executor in its tasks.
+		assertSame(x, x.submit(() -> ReactiveExecutor.current()).get());
+		// Child tasks stay in the tenant.
+		CompletableFuture<ReactiveExecutor> child = new CompletableFuture<>();
+		x.execute(() -> x.execute(() -> child.complete(ReactiveExecutor.current())));
+		assertSame(x, child.get(1, TimeUnit.MINUTES));
+		// Tenant has no threads of its own.
+		assertEquals(0, x.getPoolSize());
+		assertThrows(UnsupportedOperationException.class, () -> x.setAdaptiveSizing(1, 2));
+	}
+	private static void spin() {
+		long end = System.nanoTime() + TimeUnit.MICROSECONDS.toNanos(200);
+		while (System.nanoTime() < end)
+			;
+	}
+	@Test
+	public void weights() {
+		// Compile spin() before measurement, so that compilation does not distort execution times of the first tasks.
+		for (int i = 0; i < 100; ++i)
+			spin();
+		ReactiveExecutor light = g.tenant("light", 1);
+		ReactiveExecutor heavy = g.tenant("heavy", 3);
+		// Occupy the only carrier, so that both tenants queue up tasks.
+		CountDownLatch latch = new CountDownLatch(1);
+		g.tenant("blocker").execute(() -> Exceptions.sneak().run(latch::await));
+		AtomicInteger nl = new AtomicInteger();
+		AtomicInteger nh = new AtomicInteger();
+		List<Integer> sample = new ArrayList<>();
+		for (int i = 0; i < 500; ++i) {
+			light.execute(() -> {
+				spin();
+				nl.incrementAndGet();
+			});
+			heavy.execute(() -> {
+				spin();
+				if (nh.incrementAndGet() == 300) {
+					synchronized (sample) {
+						sample.add(nl.get());
+					}
+				}
+			});
+		}
+		latch.countDown();
+		await().until(() -> nl.get() == 500 && nh.get() == 500);
+		// Heavy tenant gets about three times more carrier time while both tenants have tasks.
+		// Expected value is 100. The bound is loose, because task costs are measured in wall-clock time.
+		assertThat(sample.get(0), lessThan(250));
+		assertThat(sample.get(0), greaterThan(0));
+	}
+	@Test
+	public void shutdown() throws Exception {
+		ReactiveExecutor x = g.tenant("a");
+		AtomicInteger n = new AtomicInteger();
+		CountDownLatch latch = new CountDownLatch(1);
+		x.execute(() -> {
+			Exceptions.sneak().run(latch::await);
+			n.incrementAndGet();
+		});
+		await().until(() -> x.getQueue().isEmpty());
+		x.shutdown();
+		// Tenant does not terminate while its last task is still running.
+		assertFalse(x.awaitTermination(100, TimeUnit.MILLISECONDS));
+		assertFalse(x.isTerminated());
+		latch.countDown();
+		assertTrue(x.awaitTermination(1, TimeUnit.MINUTES));
+		assertEquals(1, n.get());
+		// Shut down tenant rejects tasks.
+		assertThrows(RejectedExecutionException.class, () -> x.execute(n::incrementAndGet));
+		// Shut down group shuts down all its tenants.
+		ReactiveExecutor y = g.tenant("b");
+		g.shutdown();
+		assertTrue(y.awaitTermination(1, TimeUnit.MINUTES));
+		assertThrows(RejectedExecutionException.class, () -> y.execute(n::incrementAndGet));
+		assertThrows(IllegalStateException.class, () -> g.tenant("c"));
+	}
+	@Test
+	public void names() throws Exception {
+		ReactiveExecutor x = g.tenant("a");
+		// Metrics are tagged with group and tenant name, so tenant names must be unique within the group.
+		assertThrows(IllegalArgumentException.class, () -> g.tenant("a"));
+		assertNotNull(Metrics.globalRegistry.find("hookless.tenant.tasks").tag("group", g.name()).tag("tenant", "a").timer());
+		x.shutdown();
+		assertTrue(x.awaitTermination(1, TimeUnit.MINUTES));
+		// Terminated tenant releases its name and metrics.
+		assertNull(Metrics.globalRegistry.find("hookless.tenant.tasks").tag("group", g.name()).tag("tenant", "a").timer());
+		g.tenant("a").shutdown();
+	}
+	@Test
+	public void groups() throws Exception {
+		ReactiveExecutorGroup other = new ReactiveExecutorGroup("test-groups", 1);
+		try {
+			assertNotEquals(g.name(), other.name());
+			// Tenants of different groups can have the same name. Their metrics are kept apart by group tag.
+			ReactiveExecutor x = g.tenant("a");
+			ReactiveExecutor y = other.tenant("a");
+			assertNotNull(Metrics.globalRegistry.find("hookless.tenant.tasks").tag("group", g.name()).tag("tenant", "a").timer());
+			assertNotNull(Metrics.globalRegistry.find("hookless.tenant.tasks").tag("group", "test-groups").tag("tenant", "a").timer());
+			// Terminated tenant removes only its own metrics.
+			x.shutdown();
+			assertTrue(x.awaitTermination(1, TimeUnit.MINUTES));
+			assertNull(Metrics.globalRegistry.find("hookless.tenant.tasks").tag("group", g.name()).tag("tenant", "a").timer());
+			assertNotNull(Metrics.globalRegistry.find("hookless.tenant.tasks").tag("group", "test-groups").tag("tenant", "a").timer());
+			assertEquals(42, (int)y.submit(() -> 42).get());
+		} finally {
+			other.shutdown();
+			assertTrue(other.awaitTermination(1, TimeUnit.MINUTES));
+		}
+	}
+	@Test
+	public void interrupt() throws Exception {
+		List<Thread> carriers = new ArrayList<>();
+		ReactiveExecutorGroup group = new ReactiveExecutorGroup(1, r -> {
+			Thread thread = new Thread(r);
+			carriers.add(thread);
+			return thread;
+		});
+		ReactiveExecutor x = group.tenant("a");
+		// Carrier may be idle or still finishing the task when interrupted. Both must be handled.
+		x.submit(() -> {}).get();
+		carriers.get(0).interrupt();
+		// Interrupted carrier keeps running tasks and tasks do not see the interrupt.
+		assertFalse(x.submit(() -> Thread.currentThread().isInterrupted()).get());
+		x.execute(() -> Thread.currentThread().interrupt());
+		assertFalse(x.submit(() -> Thread.currentThread().isInterrupted()).get());
+		group.shutdown();
+		assertTrue(group.awaitTermination(1, TimeUnit.MINUTES));
+	}
+}
@@ -6,6 +6,7 @@ import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.*;
 import java.time.*;
+import java.util.*;
 import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
 import org.junit.jupiter.api.*;
@@ -130,6 +131,115 @@ public class ReactiveExecutorTest extends TestBase {
 		assertThat(ms, lessThan(225L));
 	}
 	@Test
+	public void priority() throws Exception {
+		ReactiveExecutor x = new ReactiveExecutor(1);
+		try {
+			x.setBackgroundShare(0);
+			CountDownLatch blocker = new CountDownLatch(1);
+			x.execute(() -> {
+				try {
+					blocker.await();
+				} catch (InterruptedException ex) {
+				}
+			});
+			List<String> order = Collections.synchronizedList(new ArrayList<>());
+			x.execute(() -> {
+				order.add("background");
+				// Child tasks inherit priority, so the child runs after interactive task submitted later.
+				x.execute(() -> order.add("child"));
+				x.execute(() -> order.add("late"), ReactivePriority.INTERACTIVE);
+			}, ReactivePriority.BACKGROUND);
+			x.execute(() -> order.add("interactive"), ReactivePriority.INTERACTIVE);
+			blocker.countDown();
+			await().until(() -> order.size() == 4);
+			assertEquals(List.of("interactive", "background", "late", "child"), order);
+		} finally {
+			x.shutdown();
+		}
+	}
+	@Test
+	public void bounded() throws Exception {
+		ReactiveExecutor x = new ReactiveExecutor(1);
+		try {
+			// Unbounded by default.
+			assertEquals(Integer.MAX_VALUE, x.getCapacity());
+			assertEquals(ReactiveExecutor.Overflow.REJECT, x.getOverflow());
+			x.setCapacity(1);
+			CountDownLatch blocker = new CountDownLatch(1);
+			x.execute(() -> {
+				try {
+					blocker.await();
+				} catch (InterruptedException ex) {
+				}
+			});
+			// Wait for the blocker to leave the queue.
+			await().until(() -> x.getQueue().isEmpty() && x.getActiveCount() == 1);
+			AtomicInteger n = new AtomicInteger();
+			x.execute(n::incrementAndGet);
+			// Full queue rejects submissions.
+			assertThrows(RejectedExecutionException.class, () -> x.execute(n::incrementAndGet));
+			assertEquals(1, x.getRejectedCount());
+			blocker.countDown();
+			await().untilAtomic(n, equalTo(1));
+		} finally {
+			x.shutdown();
+		}
+	}
+	@Test
+	public void backpressure() throws Exception {
+		ReactiveExecutor x = new ReactiveExecutor(1);
+		try {
+			x.setCapacity(1);
+			x.setOverflow(ReactiveExecutor.Overflow.BLOCK);
+			AtomicInteger n = new AtomicInteger();
+			// Pool threads are not blocked, so cascades cannot deadlock.
+			x.execute(() -> {
+				for (int i = 0; i < 10; ++i)
+					x.execute(n::incrementAndGet);
+			});
+			// Outside submitters wait for space instead of being rejected.
+			for (int i = 0; i < 10; ++i)
+				x.execute(n::incrementAndGet);
+			await().untilAtomic(n, equalTo(20));
+			assertEquals(0, x.getRejectedCount());
+		} finally {
+			x.shutdown();
+		}
+	}
+	@Test
+	public void adaptive() throws Exception {
+		ReactiveExecutor x = new ReactiveExecutor(1);
+		try {
+			// Disabled by default.
+			assertFalse(x.isAdaptiveSizing());
+			x.setAdaptiveSizing(1, 4);
+			CountDownLatch blocker = new CountDownLatch(1);
+			for (int i = 0; i < 3; ++i) {
+				x.execute(() -> {
+					try {
+						blocker.await();
+					} catch (InterruptedException ex) {
+					}
+				});
+			}
+			AtomicInteger n = new AtomicInteger();
+			x.execute(n::incrementAndGet);
+			// Pool grows around blocked threads, so that queued task eventually runs.
+			await().untilAtomic(n, equalTo(1));
+			assertThat(x.getPoolSize(), greaterThan(1));
+			assertThat(x.getGrowCount(), greaterThan(0L));
+			assertThat(x.getMaximumPoolSize(), lessThanOrEqualTo(4));
+			blocker.countDown();
+			// Pool shrinks back once threads stop blocking.
+			int target = Math.min(4, Runtime.getRuntime().availableProcessors());
+			await().until(() -> x.getBlockedCount() == 0 && x.getCorePoolSize() == target);
+			x.disableAdaptiveSizing();
+			assertFalse(x.isAdaptiveSizing());
+		} finally {
+			x.shutdown();
+		}
+	}
+	@Test
 	public void current() throws Exception {
 		assertSame(x, x.submit(() -> ReactiveExecutor.current()).get());
 	}
@@ -0,0 +1,120 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import org.junit.jupiter.api.*;
+import com.machinezoo.closeablescope.*;
+
+public class ReactiveIntVariableTest {
+	@Test
+	public void crud() {
+		// Construct default.
+		ReactiveIntVariable v = new ReactiveIntVariable();
+		assertEquals(0, v.getAsInt());
+		// Write and read.
+		v.set(1);
+		assertEquals(1, v.getAsInt());
+		v.set(2);
+		assertEquals(2, v.getAsInt());
+		// Construct non-default.
+		v = new ReactiveIntVariable(1);
+		assertEquals(1, v.getAsInt());
+		// Boxed API is equivalent.
+		v.set(Integer.valueOf(2));
+		assertEquals(Integer.valueOf(2), v.get());
+		assertEquals(new ReactiveValue<>(Integer.valueOf(2)), v.value());
+	}
+	@Test
+	public void versions() {
+		ReactiveIntVariable v = new ReactiveIntVariable(1);
+		assertEquals(1, v.version());
+		v.set(2);
+		assertEquals(2, v.version());
+		// Writing the same value does not change the version.
+		v.set(2);
+		assertEquals(2, v.version());
+		v.set(Integer.valueOf(2));
+		assertEquals(2, v.version());
+	}
+	@Test
+	public void fireOnChange() {
+		ReactiveIntVariable v = new ReactiveIntVariable(1);
+		AtomicInteger c = new AtomicInteger();
+		try (ReactiveTrigger t = new ReactiveTrigger()) {
+			t.callback(c::incrementAndGet);
+			t.arm(Arrays.asList(new ReactiveVariable.Version(v)));
+			// Equal write does not fire the trigger.
+			v.set(1);
+			assertEquals(0, c.get());
+			v.set(2);
+			assertEquals(1, c.get());
+		}
+	}
+	@Test
+	public void trackAccess() {
+		ReactiveIntVariable v = new ReactiveIntVariable(1);
+		ReactiveScope s = new ReactiveScope();
+		try (CloseableScope c = s.enter()) {
+			assertEquals(1, v.getAsInt());
+			assertSame(v, s.versions().stream().findFirst().get().variable());
+		}
+	}
+	@Test
+	public void transaction() {
+		ReactiveIntVariable v = new ReactiveIntVariable(1);
+		ReactiveTransaction t = new ReactiveTransaction();
+		t.set(v, 2);
+		assertEquals(1, v.getAsInt());
+		t.commit();
+		assertEquals(2, v.getAsInt());
+		assertEquals(2, v.version());
+	}
+	@Test
+	public void rejectNonPrimitive() {
+		ReactiveIntVariable v = new ReactiveIntVariable(1);
+		assertThrows(IllegalArgumentException.class, () -> v.set((Integer)null));
+		assertThrows(IllegalArgumentException.class, () -> v.value(new ReactiveValue<>(new RuntimeException())));
+		assertThrows(IllegalArgumentException.class, () -> v.value(new ReactiveValue<>(Integer.valueOf(2), true)));
+		assertEquals(1, v.version());
+	}
+	@Test
+	public void readModifyWrite() {
+		ReactiveIntVariable v = new ReactiveIntVariable(1);
+		assertTrue(v.compareAndSet(1, 2));
+		assertEquals(3, v.incrementAndGet());
+		assertEquals(13, v.addAndGet(10));
+		assertEquals(13, v.getAndSet(0));
+		assertEquals(5, v.version());
+		ReactiveScope s = new ReactiveScope();
+		try (CloseableScope c = s.enter()) {
+			v.incrementAndGet();
+		}
+		// Updates do not record dependency.
+		assertTrue(s.versions().isEmpty());
+	}
+	@Test
+	public void cachedValue() {
+		ReactiveIntVariable v = new ReactiveIntVariable(1000);
+		// Repeated reads return the same instance until the value changes.
+		ReactiveValue<?> first = v.value();
+		assertSame(first, v.value());
+		v.set(1000);
+		assertSame(first, v.value());
+		v.set(2000);
+		assertNotSame(first, v.value());
+		assertEquals(Integer.valueOf(2000), v.value().result());
+	}
+	@Test
+	public void boxedCompareAndSet() {
+		ReactiveIntVariable v = new ReactiveIntVariable(1000);
+		// Values are compared by value even if equality is turned off.
+		v.equality(false);
+		assertTrue(v.compareAndSet(Integer.valueOf(1000), Integer.valueOf(2000)));
+		assertEquals(2000, v.getAsInt());
+		assertFalse(v.compareAndSet(Integer.valueOf(1000), Integer.valueOf(3000)));
+		assertFalse(v.compareAndSet(null, Integer.valueOf(3000)));
+		assertThrows(IllegalArgumentException.class, () -> v.compareAndSet(Integer.valueOf(2000), null));
+	}
+}
@@ -0,0 +1,88 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import com.machinezoo.closeablescope.*;
+
+public class ReactiveListTest {
+	private static ReactiveTrigger watch(Runnable read) {
+		ReactiveScope s = new ReactiveScope();
+		try (CloseableScope c = s.enter()) {
+			read.run();
+		} catch (IndexOutOfBoundsException ex) {
+		}
+		ReactiveTrigger t = new ReactiveTrigger();
+		t.arm(s);
+		return t;
+	}
+	@Test
+	public void crud() {
+		ReactiveList<String> l = new ReactiveList<>();
+		assertTrue(l.isEmpty());
+		l.add("a");
+		l.addAll(List.of("b", "c"));
+		l.add(0, "x");
+		assertEquals(List.of("x", "a", "b", "c"), l.snapshot());
+		assertEquals("a", l.set(1, "y"));
+		assertEquals("y", l.get(1));
+		assertEquals(2, l.indexOf("b"));
+		assertTrue(l.contains("c"));
+		assertEquals("x", l.remove(0));
+		assertEquals(3, l.size());
+		assertThrows(IndexOutOfBoundsException.class, () -> l.get(3));
+		l.clear();
+		assertTrue(l.isEmpty());
+	}
+	@Test
+	public void perIndex() {
+		ReactiveList<String> l = new ReactiveList<>(List.of("a", "b", "c"));
+		try (ReactiveTrigger t = watch(() -> l.get(1))) {
+			// Changes at other indexes and appends do not invalidate the reader.
+			l.set(0, "x");
+			l.set(2, "y");
+			l.add("z");
+			// Writing the same element is ignored.
+			l.set(1, "b");
+			assertFalse(t.fired());
+			l.set(1, "w");
+			assertTrue(t.fired());
+		}
+		// Insertion shifts following elements.
+		try (ReactiveTrigger before = watch(() -> l.get(0)); ReactiveTrigger after = watch(() -> l.get(2))) {
+			l.add(1, "i");
+			assertFalse(before.fired());
+			assertTrue(after.fired());
+		}
+		// Removal shifts following elements too.
+		try (ReactiveTrigger before = watch(() -> l.get(0)); ReactiveTrigger after = watch(() -> l.get(1))) {
+			l.remove(1);
+			assertFalse(before.fired());
+			assertTrue(after.fired());
+		}
+	}
+	@Test
+	public void outOfBounds() {
+		ReactiveList<String> l = new ReactiveList<>(List.of("a"));
+		// Out of bounds read becomes valid when the list grows.
+		try (ReactiveTrigger t = watch(() -> l.get(1))) {
+			l.set(0, "b");
+			assertFalse(t.fired());
+			l.add("c");
+			assertTrue(t.fired());
+		}
+	}
+	@Test
+	public void sizeAndIteration() {
+		ReactiveList<String> l = new ReactiveList<>(List.of("a"));
+		try (ReactiveTrigger size = watch(l::size); ReactiveTrigger content = watch(l::snapshot)) {
+			// Replacing an element does not change size.
+			l.set(0, "b");
+			assertFalse(size.fired());
+			assertTrue(content.fired());
+			l.add("c");
+			assertTrue(size.fired());
+		}
+	}
+}
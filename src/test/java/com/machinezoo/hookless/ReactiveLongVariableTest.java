@@ -0,0 +1,125 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import org.junit.jupiter.api.*;
+import com.machinezoo.closeablescope.*;
+
+public class ReactiveLongVariableTest {
+	@Test
+	public void crud() {
+		// Construct default.
+		ReactiveLongVariable v = new ReactiveLongVariable();
+		assertEquals(0, v.getAsLong());
+		// Write and read.
+		v.set(1L);
+		assertEquals(1L, v.getAsLong());
+		v.set(2L);
+		assertEquals(2L, v.getAsLong());
+		// Construct non-default.
+		v = new ReactiveLongVariable(1L);
+		assertEquals(1L, v.getAsLong());
+		// Boxed API is equivalent.
+		v.set(Long.valueOf(2L));
+		assertEquals(Long.valueOf(2L), v.get());
+		assertEquals(new ReactiveValue<>(Long.valueOf(2L)), v.value());
+	}
+	@Test
+	public void versions() {
+		ReactiveLongVariable v = new ReactiveLongVariable(1L);
+		assertEquals(1, v.version());
+		v.set(2L);
+		assertEquals(2, v.version());
+		// Writing the same value does not change the version.
+		v.set(2L);
+		assertEquals(2, v.version());
+		v.set(Long.valueOf(2L));
+		assertEquals(2, v.version());
+	}
+	@Test
+	public void fireOnChange() {
+		ReactiveLongVariable v = new ReactiveLongVariable(1L);
+		AtomicInteger c = new AtomicInteger();
+		try (ReactiveTrigger t = new ReactiveTrigger()) {
+			t.callback(c::incrementAndGet);
+			t.arm(Arrays.asList(new ReactiveVariable.Version(v)));
+			// Equal write does not fire the trigger.
+			v.set(1L);
+			assertEquals(0, c.get());
+			v.set(2L);
+			assertEquals(1, c.get());
+		}
+	}
+	@Test
+	public void trackAccess() {
+		ReactiveLongVariable v = new ReactiveLongVariable(1L);
+		ReactiveScope s = new ReactiveScope();
+		try (CloseableScope c = s.enter()) {
+			assertEquals(1L, v.getAsLong());
+			assertSame(v, s.versions().stream().findFirst().get().variable());
+		}
+	}
+	@Test
+	public void transaction() {
+		ReactiveLongVariable v = new ReactiveLongVariable(1L);
+		ReactiveTransaction t = new ReactiveTransaction();
+		t.set(v, 2L);
+		assertEquals(1L, v.getAsLong());
+		t.commit();
+		assertEquals(2L, v.getAsLong());
+		assertEquals(2, v.version());
+	}
+	@Test
+	public void rejectNonPrimitive() {
+		ReactiveLongVariable v = new ReactiveLongVariable(1L);
+		assertThrows(IllegalArgumentException.class, () -> v.set((Long)null));
+		assertThrows(IllegalArgumentException.class, () -> v.value(new ReactiveValue<>(new RuntimeException())));
+		assertThrows(IllegalArgumentException.class, () -> v.value(new ReactiveValue<>(Long.valueOf(2L), true)));
+		assertEquals(1, v.version());
+	}
+	@Test
+	public void readModifyWrite() {
+		ReactiveLongVariable v = new ReactiveLongVariable(1);
+		assertFalse(v.compareAndSet(2, 3));
+		assertTrue(v.compareAndSet(1, 2));
+		assertEquals(2, v.getAndIncrement());
+		assertEquals(4, v.incrementAndGet());
+		assertEquals(4, v.getAndDecrement());
+		assertEquals(2, v.decrementAndGet());
+		assertEquals(12, v.addAndGet(10));
+		assertEquals(12, v.getAndAccumulate(3, Math::max));
+		assertEquals(36, v.accumulateAndGet(3, (a, b) -> a * b));
+		assertEquals(36, v.getAndSet(0));
+		// Boxed update methods work too.
+		assertEquals(1L, v.updateAndGet(n -> n + 1));
+		assertEquals(10, v.version());
+		// No version change when value does not change.
+		v.addAndGet(0);
+		assertEquals(10, v.version());
+	}
+	@Test
+	public void cachedValue() {
+		ReactiveLongVariable v = new ReactiveLongVariable(1000L);
+		// Repeated reads return the same instance until the value changes.
+		ReactiveValue<?> first = v.value();
+		assertSame(first, v.value());
+		v.set(1000L);
+		assertSame(first, v.value());
+		v.set(2000L);
+		assertNotSame(first, v.value());
+		assertEquals(Long.valueOf(2000L), v.value().result());
+	}
+	@Test
+	public void boxedCompareAndSet() {
+		ReactiveLongVariable v = new ReactiveLongVariable(1000L);
+		// Values are compared by value even if equality is turned off.
+		v.equality(false);
+		assertTrue(v.compareAndSet(Long.valueOf(1000L), Long.valueOf(2000L)));
+		assertEquals(2000L, v.getAsLong());
+		assertFalse(v.compareAndSet(Long.valueOf(1000L), Long.valueOf(3000L)));
+		assertFalse(v.compareAndSet(null, Long.valueOf(3000L)));
+		assertThrows(IllegalArgumentException.class, () -> v.compareAndSet(Long.valueOf(2000L), null));
+	}
+}
@@ -0,0 +1,115 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import com.machinezoo.closeablescope.*;
+
+public class ReactiveMapTest {
+	private static ReactiveTrigger watch(Runnable read) {
+		ReactiveScope s = new ReactiveScope();
+		try (CloseableScope c = s.enter()) {
+			read.run();
+		}
+		ReactiveTrigger t = new ReactiveTrigger();
+		t.arm(s);
+		return t;
+	}
+	@Test
+	public void crud() {
+		ReactiveMap<String, Integer> m = new ReactiveMap<>();
+		assertTrue(m.isEmpty());
+		assertNull(m.put("a", 1));
+		assertEquals(1, m.put("a", 2));
+		m.putAll(Map.of("b", 3, "c", 4));
+		assertEquals(2, m.get("a"));
+		assertTrue(m.containsKey("b"));
+		assertFalse(m.containsKey("x"));
+		assertEquals(5, m.getOrDefault("x", 5));
+		assertEquals(3, m.size());
+		assertEquals(Map.of("a", 2, "b", 3, "c", 4), m.snapshot());
+		assertEquals(Set.of("a", "b", "c"), m.keySet());
+		assertEquals(3, m.remove("b"));
+		assertNull(m.remove("b"));
+		m.clear();
+		assertTrue(m.isEmpty());
+	}
+	@Test
+	public void perKey() {
+		ReactiveMap<String, Integer> m = new ReactiveMap<>(Map.of("a", 1, "b", 2));
+		try (ReactiveTrigger t = watch(() -> m.get("a"))) {
+			// Writes to other keys do not invalidate the reader.
+			m.put("b", 3);
+			m.put("c", 4);
+			m.remove("c");
+			assertFalse(t.fired());
+			// Writing the same value is ignored.
+			m.put("a", 1);
+			assertFalse(t.fired());
+			m.put("a", 2);
+			assertTrue(t.fired());
+		}
+		// Absent keys are tracked too.
+		try (ReactiveTrigger t = watch(() -> m.containsKey("x"))) {
+			m.put("y", 1);
+			assertFalse(t.fired());
+			m.put("x", 1);
+			assertTrue(t.fired());
+		}
+		// Clear invalidates keys that were present.
+		try (ReactiveTrigger t = watch(() -> m.get("a"))) {
+			m.clear();
+			assertTrue(t.fired());
+		}
+	}
+	@Test
+	public void size() {
+		ReactiveMap<String, Integer> m = new ReactiveMap<>(Map.of("a", 1));
+		try (ReactiveTrigger t = watch(m::size)) {
+			// Overwriting does not change size.
+			m.put("a", 2);
+			assertFalse(t.fired());
+			m.put("b", 1);
+			assertTrue(t.fired());
+		}
+		try (ReactiveTrigger t = watch(m::size)) {
+			m.remove("a");
+			assertTrue(t.fired());
+		}
+	}
+	@Test
+	public void iteration() {
+		ReactiveMap<String, Integer> m = new ReactiveMap<>(Map.of("a", 1));
+		try (ReactiveTrigger t = watch(m::snapshot)) {
+			m.put("a", 1);
+			assertFalse(t.fired());
+			// Any change invalidates iteration.
+			m.put("a", 2);
+			assertTrue(t.fired());
+		}
+	}
+	@Test
+	public void equalWriteKeepsInstance() {
+		ReactiveMap<String, String> m = new ReactiveMap<>();
+		String first = new String("x");
+		m.put("a", first);
+		ReactiveTrigger t = watch(() -> m.get("a"));
+		// Equal value neither invalidates readers nor replaces the stored instance.
+		assertSame(first, m.put("a", new String("x")));
+		assertFalse(t.fired());
+		assertSame(first, m.get("a"));
+		m.putAll(Map.of("a", new String("x")));
+		assertSame(first, m.get("a"));
+	}
+	@Test
+	public void writesDoNotDepend() {
+		ReactiveMap<String, Integer> m = new ReactiveMap<>();
+		ReactiveScope s = new ReactiveScope();
+		try (CloseableScope c = s.enter()) {
+			m.put("a", 1);
+			m.remove("a");
+		}
+		assertTrue(s.versions().isEmpty());
+	}
+}
@@ -0,0 +1,204 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import org.junit.jupiter.api.*;
+
+public class ReactiveQueueTest {
+	private static ReactiveExecutor.ReactiveTask task(long event) {
+		return new ReactiveExecutor.ReactiveTask(null, event, 0, () -> {});
+	}
+	@Test
+	public void order() {
+		ReactiveQueue q = new ReactiveQueue();
+		var e2a = task(2);
+		var e1a = task(1);
+		var e2b = task(2);
+		var e1b = task(1);
+		var e3 = task(3);
+		for (var t : List.of(e2a, e1a, e3, e2b, e1b))
+			q.offer(t);
+		assertEquals(5, q.size());
+		// Earlier events go first. Tasks of the same event are in FIFO order.
+		assertSame(e1a, q.poll());
+		assertSame(e1b, q.poll());
+		assertSame(e2a, q.poll());
+		assertSame(e2b, q.poll());
+		assertSame(e3, q.poll());
+		assertNull(q.poll());
+		assertTrue(q.isEmpty());
+	}
+	private static ReactiveExecutor.ReactiveTask background(long event) {
+		return new ReactiveExecutor.ReactiveTask(null, event, 0, ReactivePriority.BACKGROUND, () -> {});
+	}
+	@Test
+	public void lanes() {
+		ReactiveQueue q = new ReactiveQueue();
+		// Background lane is served only when interactive lane is empty.
+		q.share(0);
+		var b1 = background(1);
+		var b0 = background(0);
+		var i1 = task(1);
+		var i2 = task(2);
+		for (var t : List.of(b1, i2, b0, i1))
+			q.offer(t);
+		// Events are ordered within lanes, but interactive lane goes first even though it has later events.
+		assertSame(i1, q.poll());
+		assertSame(i2, q.poll());
+		assertSame(b0, q.poll());
+		assertSame(b1, q.poll());
+		assertNull(q.poll());
+	}
+	@Test
+	public void share() {
+		ReactiveQueue q = new ReactiveQueue();
+		// Every other take prefers background lane.
+		q.share(0.5);
+		assertEquals(0.5, q.share());
+		List<Runnable> interactive = new ArrayList<>();
+		List<Runnable> background = new ArrayList<>();
+		for (int i = 0; i < 10; ++i) {
+			interactive.add(task(1));
+			background.add(background(1));
+		}
+		interactive.forEach(q::offer);
+		background.forEach(q::offer);
+		int served = 0;
+		for (int i = 0; i < 10; ++i)
+			if (background.contains(q.poll()))
+				++served;
+		assertEquals(5, served);
+		assertThrows(IllegalArgumentException.class, () -> q.share(2));
+	}
+	@Test
+	public void reuseEvent() {
+		ReactiveQueue q = new ReactiveQueue();
+		// Event can be emptied and then receive more tasks.
+		var a = task(1);
+		q.offer(a);
+		assertSame(a, q.poll());
+		var b = task(1);
+		q.offer(b);
+		assertSame(b, q.poll());
+		assertNull(q.poll());
+	}
+	@Test
+	public void remove() {
+		ReactiveQueue q = new ReactiveQueue();
+		var a = task(1);
+		var b = task(1);
+		q.offer(a);
+		q.offer(b);
+		assertTrue(q.remove(a));
+		assertFalse(q.remove(a));
+		assertEquals(1, q.size());
+		assertEquals(List.of(b), new ArrayList<>(q));
+		assertSame(b, q.poll());
+		assertNull(q.poll());
+	}
+	@Test
+	public void drain() {
+		ReactiveQueue q = new ReactiveQueue();
+		var a = task(2);
+		var b = task(1);
+		q.offer(a);
+		q.offer(b);
+		List<Runnable> drained = new ArrayList<>();
+		assertEquals(2, q.drainTo(drained));
+		assertEquals(List.of(b, a), drained);
+		assertTrue(q.isEmpty());
+	}
+	@Test
+	public void bounded() {
+		ReactiveQueue q = new ReactiveQueue();
+		// Unbounded by default.
+		assertEquals(Integer.MAX_VALUE, q.remainingCapacity());
+		q.capacity(2);
+		assertTrue(q.offer(task(1)));
+		assertEquals(1, q.remainingCapacity());
+		assertTrue(q.offer(task(1)));
+		// Full queue rejects tasks.
+		assertFalse(q.offer(task(1)));
+		assertEquals(1, q.rejected());
+		assertEquals(2, q.size());
+		// Space is released when tasks are taken or removed.
+		q.poll();
+		assertTrue(q.offer(task(1)));
+		q.clear();
+		assertEquals(2, q.remainingCapacity());
+	}
+	@Test
+	public void shed() {
+		ReactiveQueue q = new ReactiveQueue();
+		q.capacity(4);
+		q.overflow(ReactiveExecutor.Overflow.SHED);
+		assertTrue(q.offer(background(1)));
+		assertTrue(q.offer(background(1)));
+		// Background tasks can fill only half of the queue.
+		assertFalse(q.offer(background(1)));
+		// The rest is reserved for interactive tasks.
+		assertTrue(q.offer(task(1)));
+		assertTrue(q.offer(task(1)));
+		assertFalse(q.offer(task(1)));
+		assertEquals(2, q.rejected());
+	}
+	@Test
+	public void block() throws Exception {
+		ReactiveQueue q = new ReactiveQueue();
+		q.capacity(1);
+		q.overflow(ReactiveExecutor.Overflow.BLOCK);
+		assertTrue(q.offer(task(1)));
+		// Nonblocking tasks are rejected immediately. Uncounted rejections are not included in rejection count.
+		var nonblocking = task(1);
+		nonblocking.nonblocking = true;
+		nonblocking.uncounted = true;
+		assertFalse(q.offer(nonblocking));
+		var blocked = task(1);
+		CompletableFuture<Boolean> offered = CompletableFuture.supplyAsync(() -> q.offer(blocked));
+		// Submitter waits for space.
+		Thread.sleep(50);
+		assertFalse(offered.isDone());
+		q.poll();
+		assertTrue(offered.get(1, TimeUnit.MINUTES));
+		assertSame(blocked, q.poll());
+		assertEquals(0, q.rejected());
+	}
+	@Test
+	public void concurrent() throws Exception {
+		ReactiveQueue q = new ReactiveQueue();
+		int producers = 4;
+		int consumers = 4;
+		int count = 10_000;
+		AtomicInteger taken = new AtomicInteger();
+		ExecutorService threads = Executors.newFixedThreadPool(producers + consumers);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < consumers; ++i) {
+				futures.add(threads.submit(() -> {
+					while (taken.get() < producers * count) {
+						if (q.poll(10, TimeUnit.MILLISECONDS) != null)
+							taken.incrementAndGet();
+					}
+					return null;
+				}));
+			}
+			for (int i = 0; i < producers; ++i) {
+				futures.add(threads.submit(() -> {
+					for (int j = 0; j < count; ++j)
+						q.offer(task(j / 100));
+					return null;
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get(1, TimeUnit.MINUTES);
+		} finally {
+			threads.shutdownNow();
+		}
+		// Every task was delivered exactly once.
+		assertEquals(producers * count, taken.get());
+		assertNull(q.poll());
+	}
+}
@@ -5,6 +5,7 @@ import static java.util.stream.Collectors.*;
 import static org.hamcrest.MatcherAssert.*;
 import static org.hamcrest.Matchers.*;
 import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
 import org.junit.jupiter.api.*;
 import com.machinezoo.closeablescope.*;
 
@@ -83,6 +84,27 @@ public class ReactiveScopeTest {
 		assertEquals(2, s.versions().stream().findFirst().get().number());
 	}
 	@Test
+	public void manyDependencies() {
+		// Enough variables to exceed any small-list optimizations.
+		List<ReactiveVariable<Integer>> vars = new ArrayList<>();
+		for (int i = 0; i < 1000; ++i)
+			vars.add(new ReactiveVariable<>(i));
+		ReactiveScope s = new ReactiveScope();
+		try (CloseableScope c = s.enter()) {
+			// Read every variable twice, changing it in between.
+			for (ReactiveVariable<Integer> v : vars)
+				v.get();
+			for (ReactiveVariable<Integer> v : vars) {
+				v.set(-1);
+				v.get();
+			}
+		}
+		// Every variable is recorded exactly once, in order of first access, with version from the first access.
+		assertEquals(vars, s.versions().stream().map(v -> v.variable()).collect(toList()));
+		for (ReactiveVariable.Version v : s.versions())
+			assertEquals(v.variable().version() - 1, v.number());
+	}
+	@Test
 	public void ignore() {
 		ReactiveVariable<String> v = new ReactiveVariable<>("hello");
 		ReactiveScope s1 = new ReactiveScope();
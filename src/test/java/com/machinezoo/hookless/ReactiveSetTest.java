@@ -0,0 +1,64 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import com.machinezoo.closeablescope.*;
+
+public class ReactiveSetTest {
+	private static ReactiveTrigger watch(Runnable read) {
+		ReactiveScope s = new ReactiveScope();
+		try (CloseableScope c = s.enter()) {
+			read.run();
+		}
+		ReactiveTrigger t = new ReactiveTrigger();
+		t.arm(s);
+		return t;
+	}
+	@Test
+	public void crud() {
+		ReactiveSet<String> s = new ReactiveSet<>();
+		assertTrue(s.isEmpty());
+		assertTrue(s.add("a"));
+		assertFalse(s.add("a"));
+		assertTrue(s.addAll(List.of("a", "b")));
+		assertFalse(s.addAll(List.of("a", "b")));
+		assertTrue(s.contains("b"));
+		assertEquals(2, s.size());
+		assertEquals(Set.of("a", "b"), s.snapshot());
+		assertTrue(s.remove("a"));
+		assertFalse(s.remove("a"));
+		s.clear();
+		assertTrue(s.isEmpty());
+	}
+	@Test
+	public void perElement() {
+		ReactiveSet<String> s = new ReactiveSet<>(List.of("a"));
+		try (ReactiveTrigger t = watch(() -> s.contains("x"))) {
+			s.add("b");
+			s.remove("a");
+			s.add("b");
+			assertFalse(t.fired());
+			s.add("x");
+			assertTrue(t.fired());
+		}
+		try (ReactiveTrigger t = watch(() -> s.contains("x"))) {
+			s.clear();
+			assertTrue(t.fired());
+		}
+	}
+	@Test
+	public void sizeAndIteration() {
+		ReactiveSet<String> s = new ReactiveSet<>(List.of("a"));
+		try (ReactiveTrigger size = watch(s::size); ReactiveTrigger content = watch(s::snapshot)) {
+			// Adding existing element changes nothing.
+			s.add("a");
+			assertFalse(size.fired());
+			assertFalse(content.fired());
+			s.add("b");
+			assertTrue(size.fired());
+			assertTrue(content.fired());
+		}
+	}
+}
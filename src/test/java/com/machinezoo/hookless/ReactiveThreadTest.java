@@ -3,11 +3,18 @@ package com.machinezoo.hookless;
 
 import static org.awaitility.Awaitility.*;
 import static org.hamcrest.Matchers.*;
+import static org.hamcrest.MatcherAssert.*;
 import static org.junit.jupiter.api.Assertions.*;
 import java.lang.ref.*;
+import java.time.*;
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.*;
 import org.junit.jupiter.api.*;
+import com.machinezoo.hookless.util.*;
+import com.machinezoo.noexception.*;
+import io.micrometer.core.instrument.*;
+import io.micrometer.core.instrument.simple.*;
 
 public class ReactiveThreadTest extends TestBase {
 	ReactiveThread t = new ReactiveThread();
@@ -215,4 +222,145 @@ public class ReactiveThreadTest extends TestBase {
 		await().untilAtomic(cx, sameInstance(x));
 		x.shutdown();
 	}
+	@Test
+	public void priority() {
+		AtomicInteger n = new AtomicInteger();
+		ReactiveThread t = new ReactiveThread(n::incrementAndGet);
+		// Interactive priority is the default.
+		assertEquals(ReactivePriority.INTERACTIVE, t.priority());
+		t.priority(ReactivePriority.BACKGROUND);
+		assertEquals(ReactivePriority.BACKGROUND, t.priority());
+		// Background thread still runs.
+		t.start();
+		await().untilAtomic(n, equalTo(1));
+		// Priority cannot be changed after the thread is started.
+		assertThrows(IllegalStateException.class, () -> t.priority(ReactivePriority.INTERACTIVE));
+		t.stop();
+	}
+	@Test
+	public void rejected() {
+		AtomicInteger n = new AtomicInteger();
+		ReactiveVariable<Integer> v = new ReactiveVariable<>(0);
+		ReactiveExecutor x = new ReactiveExecutor(1);
+		x.setCapacity(1);
+		t = new ReactiveThread(() -> {
+			v.get();
+			n.incrementAndGet();
+		}).executor(x).start();
+		await().untilAtomic(n, equalTo(1));
+		// Fill the executor, so that the next iteration is rejected.
+		CountDownLatch latch = new CountDownLatch(1);
+		x.execute(() -> Exceptions.sneak().run(latch::await));
+		await().until(() -> x.getQueue().isEmpty() && x.getActiveCount() == 1);
+		x.execute(() -> {});
+		v.set(1);
+		assertEquals(1, x.getRejectedCount());
+		// Retries are not counted as further rejections.
+		settle();
+		assertEquals(1, x.getRejectedCount());
+		// Rejected iteration is retried later.
+		latch.countDown();
+		await().untilAtomic(n, equalTo(2));
+		assertEquals(1, x.getRejectedCount());
+		x.shutdown();
+	}
+	@Test
+	public void backpressure() throws Exception {
+		AtomicInteger n = new AtomicInteger();
+		ReactiveVariable<Integer> v = new ReactiveVariable<>(0);
+		ReactiveExecutor x = new ReactiveExecutor(1);
+		x.setCapacity(1);
+		x.setOverflow(ReactiveExecutor.Overflow.BLOCK);
+		t = new ReactiveThread(() -> {
+			v.get();
+			n.incrementAndGet();
+		}).executor(x).start();
+		await().untilAtomic(n, equalTo(1));
+		// Fill the executor. The queued task needs the reactive thread's monitor.
+		CountDownLatch latch = new CountDownLatch(1);
+		x.execute(() -> Exceptions.sneak().run(latch::await));
+		await().until(() -> x.getQueue().isEmpty() && x.getActiveCount() == 1);
+		x.execute(() -> t.interval());
+		// Writer waits for space in the queue.
+		CompletableFuture<Void> writer = CompletableFuture.runAsync(() -> v.set(1));
+		settle();
+		assertFalse(writer.isDone());
+		// Blocked writer does not hold the monitor, so the queue drains and the iteration runs.
+		latch.countDown();
+		writer.get(1, TimeUnit.MINUTES);
+		await().untilAtomic(n, equalTo(2));
+		assertEquals(0, x.getRejectedCount());
+		x.shutdown();
+	}
+	@Test
+	public void coalesce() {
+		AtomicInteger n = new AtomicInteger();
+		ReactiveVariable<Integer> v = new ReactiveVariable<>(0);
+		ReactiveExecutor x = new ReactiveExecutor(1);
+		t = new ReactiveThread(() -> {
+			v.get();
+			n.incrementAndGet();
+		}).executor(x).start();
+		await().untilAtomic(n, equalTo(1));
+		// Keep the executor busy, so that iterations queue up.
+		CountDownLatch latch = new CountDownLatch(1);
+		x.execute(() -> Exceptions.sneak().run(latch::await));
+		for (int i = 1; i <= 10; ++i)
+			v.set(i);
+		latch.countDown();
+		await().untilAtomic(n, equalTo(2));
+		// Burst of changes results in single iteration.
+		settle();
+		assertEquals(2, n.get());
+		x.shutdown();
+	}
+	@Test
+	public void interval() {
+		List<Integer> seen = new CopyOnWriteArrayList<>();
+		ReactiveVariable<Integer> v = new ReactiveVariable<>(0);
+		t = new ReactiveThread(() -> seen.add(v.get()));
+		assertEquals(Duration.ZERO, t.interval());
+		t.interval(Duration.ofMillis(300));
+		assertEquals(Duration.ofMillis(300), t.interval());
+		t.start();
+		await().until(() -> seen.size() == 1);
+		// Changes arriving during the interval are merged into one delayed iteration.
+		for (int i = 1; i <= 10; ++i) {
+			v.set(i);
+			sleep(5);
+		}
+		await().until(() -> seen.contains(10));
+		assertThat(seen.size(), lessThanOrEqualTo(3));
+	}
+	@Test
+	public void metrics() {
+		MeterRegistry registry = new SimpleMeterRegistry();
+		Metrics.addRegistry(registry);
+		try {
+			ReactiveVariable<Integer> v = OwnerTrace.of(new ReactiveVariable<>(0)).alias("metered").target();
+			ReactiveVariable<Integer> w = new ReactiveVariable<>(0);
+			AtomicInteger n = new AtomicInteger();
+			t = OwnerTrace.of(new ReactiveThread(() -> {
+				v.get();
+				w.get();
+				n.incrementAndGet();
+			})).alias("metered").target().start();
+			await().untilAtomic(n, equalTo(1));
+			v.set(1);
+			await().untilAtomic(n, equalTo(2));
+			settle();
+			// Change of the variable invalidated one thread.
+			DistributionSummary fanout = registry.get("hookless.variable.fanout").tag("owner", "metered").summary();
+			assertEquals(1, fanout.count());
+			assertEquals(1, fanout.totalAmount(), 0);
+			// Both iterations recorded their two dependencies.
+			DistributionSummary dependencies = registry.get("hookless.scope.dependencies").tag("owner", "metered").summary();
+			assertEquals(2, dependencies.count());
+			assertEquals(2, dependencies.max(), 0);
+			// Only the second iteration was caused by invalidation.
+			assertEquals(1, registry.get("hookless.thread.latency").tag("owner", "metered").timer().count());
+		} finally {
+			Metrics.removeRegistry(registry);
+		}
+	}
 }
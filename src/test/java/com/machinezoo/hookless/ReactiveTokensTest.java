@@ -0,0 +1,43 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import com.machinezoo.closeablescope.*;
+
+public class ReactiveTokensTest {
+	@Test
+	public void lazy() {
+		ReactiveTokens k = new ReactiveTokens(this, "key");
+		// Tokens are not created outside of reactive computations.
+		k.watch("a");
+		assertNull(k.find("a"));
+		ReactiveScope s = new ReactiveScope();
+		try (CloseableScope c = s.enter()) {
+			k.watch("a");
+		}
+		assertSame(k.find("a"), s.versions().stream().findFirst().get().variable());
+	}
+	@Test
+	public void touch() {
+		ReactiveTokens k = new ReactiveTokens(this, "key");
+		ReactiveScope s = new ReactiveScope();
+		try (CloseableScope c = s.enter()) {
+			for (int i = 0; i < 10; ++i)
+				k.watch(i);
+		}
+		List<ReactiveVariable<Object>> touched = new ArrayList<>();
+		// Unwatched keys are skipped.
+		k.touch(20, touched);
+		assertTrue(touched.isEmpty());
+		k.touch(3, touched);
+		k.touch(x -> (Integer)x >= 8, touched);
+		assertEquals(3, touched.size());
+		try (ReactiveTrigger t = new ReactiveTrigger()) {
+			t.arm(s);
+			ReactiveTokens.change(touched);
+			assertTrue(t.fired());
+		}
+	}
+}
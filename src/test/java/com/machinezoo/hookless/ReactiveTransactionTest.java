@@ -0,0 +1,80 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import java.util.concurrent.atomic.*;
+import org.junit.jupiter.api.*;
+
+public class ReactiveTransactionTest {
+	@Test
+	public void bufferWrites() {
+		ReactiveVariable<String> v = new ReactiveVariable<>("hello");
+		ReactiveTransaction t = new ReactiveTransaction();
+		t.set(v, "world");
+		// Variable is not modified until commit.
+		assertEquals("hello", v.get());
+		assertEquals(1, v.version());
+		// Transaction sees its own writes.
+		assertEquals("world", t.get(v));
+		t.commit();
+		assertEquals("world", v.get());
+		assertEquals(2, v.version());
+	}
+	@Test
+	public void fireOnce() {
+		List<ReactiveVariable<Integer>> vars = new ArrayList<>();
+		for (int i = 0; i < 50; ++i)
+			vars.add(new ReactiveVariable<>(i));
+		AtomicInteger n = new AtomicInteger();
+		List<String> observed = new ArrayList<>();
+		try (ReactiveTrigger trigger = new ReactiveTrigger()) {
+			trigger.callback(() -> {
+				n.incrementAndGet();
+				// Fired trigger observes all writes from the transaction.
+				observed.add(vars.get(0).get() + " " + vars.get(49).get());
+			});
+			List<ReactiveVariable.Version> versions = new ArrayList<>();
+			for (ReactiveVariable<Integer> v : vars)
+				versions.add(new ReactiveVariable.Version(v));
+			trigger.arm(versions);
+			ReactiveTransaction t = new ReactiveTransaction();
+			for (ReactiveVariable<Integer> v : vars)
+				t.set(v, -1);
+			assertEquals(0, n.get());
+			t.commit();
+			// The trigger fires only once even though all variables changed.
+			assertEquals(1, n.get());
+			assertEquals(List.of("-1 -1"), observed);
+		}
+	}
+	@Test
+	public void lastWriteWins() {
+		ReactiveVariable<String> v = new ReactiveVariable<>("a");
+		ReactiveTransaction t = new ReactiveTransaction();
+		t.set(v, "b");
+		t.set(v, "c");
+		t.commit();
+		// Only the last write is applied and the version is incremented only once.
+		assertEquals("c", v.get());
+		assertEquals(2, v.version());
+	}
+	@Test
+	public void skipEqualWrites() {
+		ReactiveVariable<String> v = new ReactiveVariable<>("a");
+		ReactiveTransaction t = new ReactiveTransaction();
+		t.set(v, new String("a"));
+		t.commit();
+		assertEquals(1, v.version());
+	}
+	@Test
+	public void commitOnce() {
+		ReactiveVariable<String> v = new ReactiveVariable<>("a");
+		ReactiveTransaction t = new ReactiveTransaction();
+		assertFalse(t.committed());
+		t.commit();
+		assertTrue(t.committed());
+		assertThrows(IllegalStateException.class, () -> t.commit());
+		assertThrows(IllegalStateException.class, () -> t.set(v, "b"));
+	}
+}
@@ -5,6 +5,7 @@ import static org.junit.jupiter.api.Assertions.*;
 import java.util.*;
 import java.util.concurrent.atomic.*;
 import org.junit.jupiter.api.*;
+import com.machinezoo.closeablescope.*;
 
 public class ReactiveTriggerTest {
 	@Test
@@ -111,6 +112,28 @@ public class ReactiveTriggerTest {
 		}
 	}
 	@Test
+	public void armFromScope() {
+		ReactiveVariable<String> v1 = new ReactiveVariable<>("a");
+		ReactiveVariable<String> v2 = new ReactiveVariable<>("b");
+		ReactiveScope s = new ReactiveScope();
+		try (CloseableScope c = s.enter()) {
+			v1.get();
+			v2.get();
+		}
+		try (ReactiveTrigger t = new ReactiveTrigger()) {
+			// Trigger can read dependencies directly from the scope.
+			t.arm(s);
+			assertFalse(t.fired());
+			v2.set("hi");
+			assertTrue(t.fired());
+		}
+		// Scope with outdated dependencies fires the trigger immediately.
+		try (ReactiveTrigger t = new ReactiveTrigger()) {
+			t.arm(s);
+			assertTrue(t.fired());
+		}
+	}
+	@Test
 	public void fireImmediately() {
 		ReactiveVariable<String> v = new ReactiveVariable<>("hello");
 		AtomicInteger n = new AtomicInteger(0);
@@ -63,6 +63,68 @@ public class ReactiveValueTest {
 		assertNotEquals(new ReactiveValue<>(named[0]), new ReactiveValue<>(named[1]));
 	}
 	@Test
+	public void equalsForExceptionChains() {
+		// Created in a loop to have identical stack traces.
+		Throwable[] chained = new Throwable[2];
+		for (int i = 0; i < 2; ++i) {
+			RuntimeException ex = new RuntimeException("outer", new IllegalStateException("inner"));
+			ex.addSuppressed(new IllegalArgumentException("suppressed"));
+			chained[i] = ex;
+		}
+		assertEquals(new ReactiveValue<>(chained[0]), new ReactiveValue<>(chained[1]));
+		assertEquals(new ReactiveValue<>(chained[0]).hashCode(), new ReactiveValue<>(chained[1]).hashCode());
+		// Compare causes.
+		Throwable[] causes = new Throwable[2];
+		for (int i = 0; i < 2; ++i)
+			causes[i] = new RuntimeException("outer", new IllegalStateException("inner " + i));
+		assertNotEquals(new ReactiveValue<>(causes[0]), new ReactiveValue<>(causes[1]));
+		// Compare suppressed exceptions.
+		Throwable[] suppressed = new Throwable[2];
+		for (int i = 0; i < 2; ++i) {
+			suppressed[i] = new RuntimeException("outer");
+			if (i == 0)
+				suppressed[i].addSuppressed(new RuntimeException());
+		}
+		assertNotEquals(new ReactiveValue<>(suppressed[0]), new ReactiveValue<>(suppressed[1]));
+		// Tolerate circular cause chains.
+		Throwable[] circular = new Throwable[2];
+		for (int i = 0; i < 2; ++i) {
+			RuntimeException outer = new RuntimeException("outer");
+			RuntimeException inner = new RuntimeException("inner", outer);
+			outer.initCause(inner);
+			circular[i] = outer;
+		}
+		assertEquals(new ReactiveValue<>(circular[0]), new ReactiveValue<>(circular[1]));
+		assertEquals(new ReactiveValue<>(circular[0]).hashCode(), new ReactiveValue<>(circular[1]).hashCode());
+	}
+	@Test
+	public void equalsForSharedExceptions() {
+		// The same exception is both cause and suppressed exception in the first chain. The second chain has two equal copies.
+		Throwable[] shared = new Throwable[2];
+		for (int i = 0; i < 2; ++i) {
+			Throwable[] parts = new Throwable[2];
+			for (int j = 0; j < 2; ++j)
+				parts[j] = new IllegalStateException("shared", new IllegalArgumentException("root"));
+			shared[i] = new RuntimeException("outer", parts[i]);
+			shared[i].addSuppressed(parts[0]);
+		}
+		assertEquals(new ReactiveValue<>(shared[0]), new ReactiveValue<>(shared[1]));
+		assertEquals(new ReactiveValue<>(shared[1]), new ReactiveValue<>(shared[0]));
+		assertEquals(new ReactiveValue<>(shared[0]).hashCode(), new ReactiveValue<>(shared[1]).hashCode());
+		// Cycles must close at the same depth. Otherwise hashes of otherwise equal chains would differ.
+		Throwable[] links = new Throwable[6];
+		for (int i = 0; i < links.length; ++i)
+			links[i] = new RuntimeException("link");
+		links[0].initCause(links[1]);
+		links[1].initCause(links[0]);
+		links[2].initCause(links[3]);
+		links[3].initCause(links[4]);
+		links[4].initCause(links[5]);
+		links[5].initCause(links[2]);
+		Throwable[] cycles = new Throwable[] { links[0], links[2] };
+		assertNotEquals(new ReactiveValue<>(cycles[0]), new ReactiveValue<>(cycles[1]));
+	}
+	@Test
 	public void same() {
 		// Reference equality, not value equality.
 		String s = "hello";
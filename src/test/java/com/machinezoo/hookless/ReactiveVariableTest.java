@@ -125,4 +125,140 @@ public class ReactiveVariableTest {
 		v.set(s2);
 		assertEquals(2, v.version());
 	}
+	@Test
+	public void purgeClosedTriggers() {
+		ReactiveVariable<String> v = new ReactiveVariable<>("hello");
+		List<ReactiveTrigger> live = new ArrayList<>();
+		for (int i = 0; i < 10_000; ++i) {
+			ReactiveTrigger t = new ReactiveTrigger();
+			t.arm(Arrays.asList(new ReactiveVariable.Version(v)));
+			// Keep every 100th trigger alive and close the rest.
+			if (i % 100 == 0)
+				live.add(t);
+			else
+				t.close();
+		}
+		// Periodic cleanup of closed triggers must not lose any live ones.
+		v.set("hi");
+		for (ReactiveTrigger t : live)
+			assertTrue(t.fired());
+	}
+	@Test
+	public void concurrentSubscriptions() throws Exception {
+		ReactiveVariable<Integer> v = new ReactiveVariable<>(0);
+		int threads = 4;
+		int rounds = 200;
+		CyclicBarrier armed = new CyclicBarrier(threads + 1);
+		CyclicBarrier written = new CyclicBarrier(threads + 1);
+		AtomicInteger lost = new AtomicInteger();
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; ++i) {
+				futures.add(executor.submit(() -> {
+					for (int r = 0; r < rounds; ++r) {
+						List<ReactiveTrigger> kept = new ArrayList<>();
+						for (int j = 0; j < 50; ++j) {
+							ReactiveTrigger t = new ReactiveTrigger();
+							t.arm(Arrays.asList(new ReactiveVariable.Version(v)));
+							// Interleave subscriptions with unsubscriptions.
+							if (j % 2 == 0)
+								kept.add(t);
+							else
+								t.close();
+						}
+						armed.await();
+						written.await();
+						for (ReactiveTrigger t : kept) {
+							if (!t.fired())
+								lost.incrementAndGet();
+							t.close();
+						}
+					}
+					return null;
+				}));
+			}
+			for (int r = 0; r < rounds; ++r) {
+				armed.await();
+				v.set(r + 1);
+				written.await();
+			}
+			for (Future<?> future : futures)
+				future.get();
+		} finally {
+			executor.shutdown();
+		}
+		// Every trigger that was subscribed before the write must be notified.
+		assertEquals(0, lost.get());
+	}
+	@Test
+	public void compareAndSet() {
+		ReactiveVariable<String> v = new ReactiveVariable<>("a");
+		assertFalse(v.compareAndSet("b", "c"));
+		assertEquals(1, v.version());
+		// Expected value is compared by equality, not by reference.
+		assertTrue(v.compareAndSet(new String("a"), "b"));
+		assertEquals("b", v.get());
+		assertEquals(2, v.version());
+		// Blocking value never matches.
+		v.value(new ReactiveValue<>("c", true));
+		assertFalse(v.compareAndSet("c", "d"));
+	}
+	@Test
+	public void readModifyWrite() {
+		ReactiveVariable<Integer> v = new ReactiveVariable<>(1);
+		assertEquals(1, v.getAndUpdate(n -> n + 1));
+		assertEquals(3, v.updateAndGet(n -> n + 1));
+		assertEquals(3, v.getAndAccumulate(10, Integer::sum));
+		assertEquals(23, v.accumulateAndGet(10, Integer::sum));
+		assertEquals(23, v.getAndSet(0));
+		assertEquals(0, v.get());
+		assertEquals(6, v.version());
+		// Unchanged value does not change version.
+		v.updateAndGet(n -> n);
+		assertEquals(6, v.version());
+		// Stored exception is propagated.
+		v.value(new ReactiveValue<>(new RuntimeException()));
+		assertThrows(CompletionException.class, () -> v.updateAndGet(n -> n));
+	}
+	@Test
+	public void readModifyWriteWithoutDependency() {
+		ReactiveVariable<Integer> v = new ReactiveVariable<>(0);
+		AtomicInteger c = new AtomicInteger();
+		try (ReactiveTrigger t = new ReactiveTrigger()) {
+			t.callback(c::incrementAndGet);
+			t.arm(Arrays.asList(new ReactiveVariable.Version(v)));
+			ReactiveScope s = new ReactiveScope();
+			try (CloseableScope sc = s.enter()) {
+				v.updateAndGet(n -> n + 1);
+			}
+			// The write is not recorded as a read.
+			assertTrue(s.versions().isEmpty());
+			// Trigger fires once.
+			assertEquals(1, c.get());
+		}
+	}
+	@Test
+	public void concurrentUpdates() throws Exception {
+		ReactiveVariable<Integer> v = new ReactiveVariable<>(0);
+		int threads = 4;
+		int rounds = 10_000;
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < threads; ++i) {
+				futures.add(executor.submit(() -> {
+					for (int r = 0; r < rounds; ++r)
+						v.updateAndGet(n -> n + 1);
+				}));
+			}
+			for (Future<?> future : futures)
+				future.get();
+		} finally {
+			executor.shutdown();
+		}
+		// No increment is lost.
+		assertEquals(threads * rounds, v.get());
+		assertEquals(threads * rounds + 1, v.version());
+	}
 }
@@ -0,0 +1,45 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+
+public class ReactiveVersionHashingTest {
+	private static final ReactiveVersionHash A = ReactiveVersionHash.hash("a");
+	private static final ReactiveVersionHash B = ReactiveVersionHash.hash("b");
+	@Test
+	public void mixDeterministic() {
+		assertEquals(A.mix(B), A.mix(B));
+		assertEquals(A.mix(B), ReactiveVersionHash.hash("a").mix(ReactiveVersionHash.hash("b")));
+	}
+	@Test
+	public void mixOrderSensitive() {
+		assertNotEquals(A.mix(B), B.mix(A));
+		assertNotEquals(A.mix(A), B.mix(B));
+		assertNotEquals(A, A.mix(ReactiveVersionHash.ZERO));
+	}
+	@Test
+	public void mixAvalanche() {
+		/*
+		 * Flipping single input bit should flip about half of the output bits.
+		 */
+		var flipped = new ReactiveVersionHash(A.word3(), A.word2(), A.word1(), A.word0() ^ 1);
+		var left = A.mix(B);
+		var right = flipped.mix(B);
+		int bits = 0;
+		for (int i = 0; i < 4; ++i)
+			bits += Long.bitCount(left.word(i) ^ right.word(i));
+		assertTrue(bits > 64 && bits < 192, "Flipped bits: " + bits);
+	}
+	@Test
+	public void consistent() {
+		for (var hashing : ReactiveVersionHashing.values()) {
+			assertEquals(hashing.combine(A, B), hashing.combine(A, B));
+			assertEquals(hashing.combine(hashing.combine(A, B), A), hashing.combine(hashing.combine(A, B), A));
+			assertNotEquals(hashing.combine(A, B), hashing.combine(B, A));
+		}
+		assertEquals(A.combine(B), ReactiveVersionHashing.SECURE.combine(A, B));
+		assertEquals(A.mix(B), ReactiveVersionHashing.FAST.combine(A, B));
+		assertNotEquals(ReactiveVersionHashing.SECURE.combine(A, B), ReactiveVersionHashing.FAST.combine(A, B));
+	}
+}
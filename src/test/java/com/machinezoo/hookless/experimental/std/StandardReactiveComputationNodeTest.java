@@ -0,0 +1,72 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+import com.machinezoo.hookless.experimental.*;
+import com.machinezoo.hookless.experimental.std.bells.*;
+
+public class StandardReactiveComputationNodeTest {
+	private record Bell(String name) implements ReactiveBell {
+	}
+	private record Probe(ReactiveVersionHashing hashing) implements ReactiveComputation {
+		@Override
+		public ReactiveObjectConfig reactiveConfig() {
+			return new ReactiveObjectConfig() {
+				@Override
+				public Probe key() {
+					return Probe.this;
+				}
+				@Override
+				public ReactiveCache cache() {
+					throw new UnsupportedOperationException();
+				}
+				@Override
+				public ReactiveObjectNode instantiate() {
+					throw new UnsupportedOperationException();
+				}
+				@Override
+				public ReactiveVersionHashing hashing() {
+					return hashing;
+				}
+			};
+		}
+	}
+	private static class Sink extends StandardReactiveComputationNode {
+		final Probe key;
+		Sink(ReactiveVersionHashing hashing) {
+			key = new Probe(hashing);
+		}
+		@Override
+		public Probe key() {
+			return key;
+		}
+		@Override
+		protected void compute() {
+			new Bell("computation-a").listen();
+			new Bell("computation-b").listen();
+		}
+		@Override
+		protected void invalidated() {
+		}
+	}
+	private static ReactiveVersionHash version(Bell bell) {
+		return ((ReactiveDataNode)ReactiveObjectNode.of(bell)).version().toHash();
+	}
+	@Test
+	public void dependencyHash() {
+		for (var hashing : ReactiveVersionHashing.values()) {
+			var sink = new Sink(hashing);
+			assertNull(sink.dependencyHash());
+			sink.refresh();
+			var a = version(new Bell("computation-a"));
+			var b = version(new Bell("computation-b"));
+			var expected = hashing.combine(hashing.combine(ReactiveVersionHash.ZERO, a), b);
+			assertEquals(expected, sink.dependencyHash());
+			new Bell("computation-b").ring();
+			assertNull(sink.dependencyHash());
+			sink.refresh();
+			assertNotEquals(expected, sink.dependencyHash());
+		}
+	}
+}
@@ -0,0 +1,136 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.caches;
+
+import static org.junit.jupiter.api.Assertions.*;
+import org.junit.jupiter.api.*;
+import com.machinezoo.hookless.experimental.*;
+import com.machinezoo.hookless.experimental.std.*;
+import com.machinezoo.hookless.experimental.std.bells.*;
+
+public class BoundedReactiveCacheTest {
+	private static BoundedReactiveCache cache;
+	private record Bell(String name) implements ReactiveBell {
+		@Override
+		public ReactiveObjectConfig reactiveConfig() {
+			return new ReactiveBellConfig(this) {
+				@Override
+				public ReactiveCache cache() {
+					return cache;
+				}
+			};
+		}
+	}
+	private record Probe(String name) implements ReactiveComputation {
+		@Override
+		public ReactiveObjectConfig reactiveConfig() {
+			throw new UnsupportedOperationException();
+		}
+	}
+	private static class Sink extends StandardReactiveComputationNode {
+		final Probe key = new Probe("sink");
+		final Runnable body;
+		int runs;
+		Sink(Runnable body) {
+			this.body = body;
+		}
+		@Override
+		public Probe key() {
+			return key;
+		}
+		@Override
+		protected void compute() {
+			++runs;
+			body.run();
+		}
+		@Override
+		protected void invalidated() {
+		}
+		void update() {
+			refresh();
+		}
+		boolean current() {
+			return valid();
+		}
+		void drop() {
+			release();
+		}
+	}
+	@Test
+	public void lru() {
+		cache = new BoundedReactiveCache("test-lru", 2);
+		var a = ReactiveObjectNode.of(new Bell("a"));
+		ReactiveObjectNode.of(new Bell("b"));
+		assertSame(a, ReactiveObjectNode.of(new Bell("a")));
+		ReactiveObjectNode.of(new Bell("c"));
+		assertEquals(2, cache.size());
+		assertEquals(1, cache.evictions());
+		assertEquals(1, cache.hits());
+		assertEquals(3, cache.misses());
+		assertSame(a, ReactiveObjectNode.of(new Bell("a")));
+	}
+	@Test
+	public void subscribed() {
+		cache = new BoundedReactiveCache("test-subscribed", 1);
+		var a = new Bell("a");
+		var sink = new Sink(a::listen);
+		sink.update();
+		var node = ReactiveObjectNode.of(a);
+		ReactiveObjectNode.of(new Bell("b"));
+		assertSame(node, ReactiveObjectNode.of(a));
+		a.ring();
+		assertFalse(sink.current());
+	}
+	@Test
+	public void evictedDuringComputation() {
+		cache = new BoundedReactiveCache("test-evicted", 2);
+		var a = new Bell("a");
+		var b = new Bell("b");
+		var c = new Bell("c");
+		/*
+		 * First run materializes more bells than the cache can hold, so bell "a" is evicted before the sink subscribes to it.
+		 */
+		var sink = new Sink(() -> {
+			a.listen();
+			b.listen();
+			c.listen();
+		}) {
+			@Override
+			protected void compute() {
+				if (runs == 0)
+					super.compute();
+				else {
+					++runs;
+					a.listen();
+				}
+			}
+		};
+		sink.update();
+		assertEquals(1, sink.runs);
+		assertEquals(1, cache.evictions());
+		/*
+		 * Ring goes to new instance of the bell. Sink must still be invalidated.
+		 */
+		a.ring();
+		assertFalse(sink.current());
+		sink.update();
+		assertEquals(2, sink.runs);
+		assertTrue(sink.current());
+		a.ring();
+		assertFalse(sink.current());
+	}
+	@Test
+	public void replacedSubscriber() {
+		cache = new BoundedReactiveCache("test-replaced", 4);
+		var a = new Bell("a");
+		/*
+		 * Two instances of the same computation, as if the first one was evicted and then materialized again.
+		 */
+		var evicted = new Sink(a::listen);
+		evicted.update();
+		var replacement = new Sink(a::listen);
+		replacement.update();
+		evicted.drop();
+		a.ring();
+		assertFalse(replacement.current());
+	}
+}
@@ -0,0 +1,64 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.caches;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import com.machinezoo.hookless.experimental.*;
+import com.machinezoo.hookless.experimental.std.memos.*;
+
+public class PermanentReactiveCacheTest {
+	@TempDir
+	Path directory;
+	private static PermanentReactiveCache cache;
+	private static final Map<String, Integer> values = new ConcurrentHashMap<>();
+	private static final AtomicInteger computations = new AtomicInteger();
+	private record Variable(String name) implements ReactiveMemo<Integer> {
+		@Override
+		public ReactiveMemoConfig<Integer> reactiveConfig() {
+			return new ReactiveMemoConfig<>(this) {
+				@Override
+				public ReactiveCache cache() {
+					return cache;
+				}
+			};
+		}
+		@Override
+		public Integer compute() {
+			computations.incrementAndGet();
+			return values.get(name);
+		}
+	}
+	@Test
+	public void materialize() {
+		cache = new PermanentReactiveCache();
+		var node = ReactiveObjectNode.of(new Variable("a"));
+		assertSame(node, ReactiveObjectNode.of(new Variable("a")));
+		assertEquals(List.of(node), cache.nodes());
+	}
+	@Test
+	public void snapshot() {
+		var path = directory.resolve("snapshots");
+		cache = new PermanentReactiveCache();
+		values.put("a", 1);
+		values.put("b", 1);
+		new Variable("a").get();
+		new Variable("b").get();
+		assertEquals(2, cache.snapshot(path));
+		cache = new PermanentReactiveCache();
+		values.put("b", 2);
+		assertEquals(2, new Variable("b").get());
+		/*
+		 * Only key "a" is restored. Key "b" is already materialized and it keeps its current value.
+		 */
+		assertEquals(1, cache.restore(path));
+		computations.set(0);
+		assertEquals(1, new Variable("a").get());
+		assertEquals(2, new Variable("b").get());
+		assertEquals(0, computations.get());
+	}
+}
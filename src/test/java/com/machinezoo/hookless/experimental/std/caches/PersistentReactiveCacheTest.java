@@ -0,0 +1,184 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.caches;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.nio.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.concurrent.atomic.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import com.machinezoo.hookless.experimental.*;
+import com.machinezoo.hookless.experimental.std.bells.*;
+import com.machinezoo.hookless.experimental.std.memos.*;
+
+public class PersistentReactiveCacheTest {
+	@TempDir
+	Path directory;
+	private static PersistentReactiveCache cache;
+	private static final AtomicInteger computations = new AtomicInteger();
+	/*
+	 * Bells stay in the default permanent cache, so they keep their versions when the persistent cache is reopened.
+	 */
+	private record Bell(String name) implements ReactiveBell {
+	}
+	private record Counter(String name) implements ReactiveMemo<Integer> {
+		static final AtomicInteger rings = new AtomicInteger();
+		@Override
+		public ReactiveMemoConfig<Integer> reactiveConfig() {
+			return new ReactiveMemoConfig<>(this) {
+				@Override
+				public ReactiveCache cache() {
+					return cache;
+				}
+			};
+		}
+		@Override
+		public Integer compute() {
+			computations.incrementAndGet();
+			new Bell(name).listen();
+			return rings.get();
+		}
+	}
+	private record Constant(String name, int value) implements ReactiveMemo<Integer> {
+		@Override
+		public ReactiveMemoConfig<Integer> reactiveConfig() {
+			return new ReactiveMemoConfig<>(this) {
+				@Override
+				public ReactiveCache cache() {
+					return cache;
+				}
+			};
+		}
+		@Override
+		public Integer compute() {
+			computations.incrementAndGet();
+			return value;
+		}
+	}
+	private Path path() {
+		return directory.resolve("cache");
+	}
+	private void reopen() {
+		if (cache != null)
+			cache.close();
+		cache = new PersistentReactiveCache(path());
+	}
+	@AfterEach
+	public void close() {
+		if (cache != null)
+			cache.close();
+		cache = null;
+	}
+	private static long end(Path path) throws IOException {
+		try (var channel = FileChannel.open(path, StandardOpenOption.READ)) {
+			var header = ByteBuffer.allocate(16);
+			channel.read(header, 0);
+			return header.getLong(8);
+		}
+	}
+	@Test
+	public void roundTrip() {
+		reopen();
+		var memo = new Constant("round-trip", 7);
+		computations.set(0);
+		assertEquals(7, memo.get());
+		assertEquals(1, computations.get());
+		reopen();
+		assertEquals(7, memo.get());
+		assertEquals(1, computations.get());
+		/*
+		 * Restored node is saved again. Reopening once more must restore it too.
+		 */
+		reopen();
+		assertEquals(7, memo.get());
+		assertEquals(1, computations.get());
+	}
+	@Test
+	public void staleDependency() {
+		reopen();
+		var fresh = new Counter("persistent-fresh");
+		var stale = new Counter("persistent-stale");
+		fresh.get();
+		stale.get();
+		reopen();
+		new Bell("persistent-stale").ring();
+		computations.set(0);
+		fresh.get();
+		assertEquals(0, computations.get());
+		stale.get();
+		assertEquals(1, computations.get());
+	}
+	@Test
+	public void compaction() throws IOException {
+		reopen();
+		var memo = new Counter("persistent-compaction");
+		var bell = new Bell("persistent-compaction");
+		for (int i = 0; i < 50; ++i) {
+			bell.ring();
+			Counter.rings.incrementAndGet();
+			memo.get();
+			cache.flush();
+		}
+		int expected = memo.get();
+		cache.close();
+		long before = end(path());
+		/*
+		 * Compaction runs when the file is opened.
+		 */
+		reopen();
+		long after = end(path());
+		assertTrue(after < before / 10, after + " < " + before + " / 10");
+		assertFalse(Files.exists(directory.resolve("cache.tmp")));
+		computations.set(0);
+		assertEquals(expected, memo.get());
+		assertEquals(0, computations.get());
+		reopen();
+		assertEquals(end(path()), after);
+		assertEquals(expected, memo.get());
+		assertEquals(0, computations.get());
+	}
+	@Test
+	public void truncated() throws IOException {
+		reopen();
+		var first = new Constant("persistent-truncated-first", 1);
+		var second = new Constant("persistent-truncated-second", 2);
+		first.get();
+		cache.flush();
+		second.get();
+		cache.close();
+		cache = null;
+		long end = end(path());
+		try (var channel = FileChannel.open(path(), StandardOpenOption.WRITE)) {
+			channel.truncate(end - 10);
+		}
+		reopen();
+		computations.set(0);
+		assertEquals(1, first.get());
+		assertEquals(0, computations.get());
+		assertEquals(2, second.get());
+		assertEquals(1, computations.get());
+	}
+	@Test
+	public void corrupted() throws IOException {
+		reopen();
+		var first = new Constant("persistent-corrupted-first", 1);
+		var second = new Constant("persistent-corrupted-second", 2);
+		first.get();
+		cache.flush();
+		second.get();
+		cache.close();
+		cache = null;
+		long end = end(path());
+		try (var channel = FileChannel.open(path(), StandardOpenOption.WRITE)) {
+			channel.write(ByteBuffer.wrap(new byte[] { 1, 2, 3, 4, 5, 6, 7, 8 }), end - 30);
+		}
+		reopen();
+		computations.set(0);
+		assertEquals(1, first.get());
+		assertEquals(0, computations.get());
+		assertEquals(2, second.get());
+		assertEquals(1, computations.get());
+	}
+}
@@ -0,0 +1,72 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.caches;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.io.*;
+import java.nio.channels.*;
+import java.nio.file.*;
+import java.util.*;
+import org.junit.jupiter.api.*;
+import org.junit.jupiter.api.io.*;
+import com.machinezoo.hookless.experimental.*;
+import com.machinezoo.hookless.experimental.std.memos.*;
+
+public class ReactiveCacheSnapshotsTest {
+	@TempDir
+	Path directory;
+	private static PermanentReactiveCache cache;
+	private record Constant(String name, int value) implements ReactiveMemo<Integer> {
+		@Override
+		public ReactiveMemoConfig<Integer> reactiveConfig() {
+			return new ReactiveMemoConfig<>(this) {
+				@Override
+				public ReactiveCache cache() {
+					return cache;
+				}
+			};
+		}
+		@Override
+		public Integer compute() {
+			return value;
+		}
+	}
+	private Path populate() {
+		cache = new PermanentReactiveCache();
+		new Constant("a", 1).get();
+		new Constant("b", 2).get();
+		var path = directory.resolve("snapshots");
+		assertEquals(2, ReactiveCacheSnapshots.save(cache.nodes(), path));
+		return path;
+	}
+	@Test
+	public void roundTrip() {
+		var snapshots = ReactiveCacheSnapshots.load(populate());
+		assertEquals(Set.of(new Constant("a", 1), new Constant("b", 2)), snapshots.keySet());
+		assertEquals(1, snapshots.get(new Constant("a", 1)).output());
+		assertEquals(2, snapshots.get(new Constant("b", 2)).output());
+	}
+	@Test
+	public void missing() {
+		assertTrue(ReactiveCacheSnapshots.load(directory.resolve("missing")).isEmpty());
+	}
+	@Test
+	public void truncated() throws IOException {
+		var path = populate();
+		try (var channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+			channel.truncate(channel.size() - 10);
+		}
+		assertEquals(1, ReactiveCacheSnapshots.load(path).size());
+	}
+	@Test
+	public void replace() throws IOException {
+		var path = directory.resolve("snapshots");
+		Files.write(path, new byte[] { 1, 2, 3 });
+		cache = new PermanentReactiveCache();
+		new Constant("a", 1).get();
+		assertEquals(1, ReactiveCacheSnapshots.save(cache.nodes(), path));
+		assertEquals(Set.of(new Constant("a", 1)), ReactiveCacheSnapshots.load(path).keySet());
+		try (var files = Files.list(directory)) {
+			assertEquals(List.of(path), files.toList());
+		}
+	}
+}
@@ -0,0 +1,154 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.caches;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.*;
+import java.util.stream.*;
+import org.junit.jupiter.api.*;
+import com.machinezoo.hookless.experimental.*;
+import io.micrometer.core.instrument.*;
+
+public class ShardedReactiveCacheTest {
+	private static ShardedReactiveCache cache;
+	/*
+	 * Instantiation hooks by key name. Keys without hook instantiate immediately.
+	 */
+	private static final Map<String, Supplier<ReactiveObjectNode>> hooks = new ConcurrentHashMap<>();
+	private record Node(Key key) implements ReactiveObjectNode {
+	}
+	private record Key(String name) implements ReactiveObject {
+		@Override
+		public ReactiveObjectConfig reactiveConfig() {
+			return new ReactiveObjectConfig() {
+				@Override
+				public Key key() {
+					return Key.this;
+				}
+				@Override
+				public ReactiveCache cache() {
+					return cache;
+				}
+				@Override
+				public ReactiveObjectNode instantiate() {
+					var hook = hooks.remove(name);
+					return hook != null ? hook.get() : new Node(Key.this);
+				}
+			};
+		}
+	}
+	private final ExecutorService threads = Executors.newCachedThreadPool();
+	@AfterEach
+	public void cleanup() {
+		threads.shutdownNow();
+		hooks.clear();
+	}
+	private static void await(CyclicBarrier barrier) {
+		try {
+			barrier.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException | BrokenBarrierException | TimeoutException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+	private static void await(CountDownLatch latch) {
+		try {
+			assertTrue(latch.await(10, TimeUnit.SECONDS));
+		} catch (InterruptedException ex) {
+			throw new IllegalStateException(ex);
+		}
+	}
+	private static double waits(String name) {
+		return Metrics.globalRegistry.find("hookless.cache.waits").tag("cache", name).functionCounters().stream()
+			.mapToDouble(FunctionCounter::count)
+			.sum();
+	}
+	private static Throwable failure(Future<?> future) throws Exception {
+		try {
+			future.get(10, TimeUnit.SECONDS);
+			return null;
+		} catch (ExecutionException ex) {
+			return ex.getCause();
+		}
+	}
+	@Test
+	public void materialize() {
+		cache = new ShardedReactiveCache("test-sharded-materialize", 4);
+		var node = ReactiveObjectNode.of(new Key("a"));
+		assertSame(node, ReactiveObjectNode.of(new Key("a")));
+		ReactiveObjectNode.of(new Key("b"));
+		assertEquals(2, cache.nodes().size());
+		assertEquals(Set.of(new Key("a"), new Key("b")), cache.nodes().stream().map(ReactiveObjectNode::key).collect(Collectors.toSet()));
+	}
+	@Test
+	public void recursive() {
+		cache = new ShardedReactiveCache("test-sharded-recursive", 4);
+		hooks.put("self", () -> ReactiveObjectNode.of(new Key("self")));
+		assertThrows(IllegalStateException.class, () -> ReactiveObjectNode.of(new Key("self")));
+		/*
+		 * Failed instantiation does not leave placeholder behind.
+		 */
+		assertEquals(new Key("self"), ReactiveObjectNode.of(new Key("self")).key());
+	}
+	@Test
+	public void cyclic() throws Exception {
+		cache = new ShardedReactiveCache("test-sharded-cyclic", 4);
+		/*
+		 * Both threads hold their placeholder before either of them requests the other key.
+		 */
+		var barrier = new CyclicBarrier(2);
+		hooks.put("x", () -> {
+			await(barrier);
+			ReactiveObjectNode.of(new Key("y"));
+			return new Node(new Key("x"));
+		});
+		hooks.put("y", () -> {
+			await(barrier);
+			ReactiveObjectNode.of(new Key("x"));
+			return new Node(new Key("y"));
+		});
+		var x = threads.submit(() -> ReactiveObjectNode.of(new Key("x")));
+		var y = threads.submit(() -> ReactiveObjectNode.of(new Key("y")));
+		var failures = new ArrayList<Throwable>();
+		for (var future : List.of(x, y)) {
+			var failure = failure(future);
+			if (failure != null)
+				failures.add(failure);
+		}
+		assertFalse(failures.isEmpty());
+		for (var failure : failures)
+			assertInstanceOf(IllegalStateException.class, failure);
+		assertEquals(new Key("x"), ReactiveObjectNode.of(new Key("x")).key());
+		assertEquals(new Key("y"), ReactiveObjectNode.of(new Key("y")).key());
+		assertEquals(2, cache.nodes().size());
+	}
+	@Test
+	public void retry() throws Exception {
+		cache = new ShardedReactiveCache("test-sharded-retry", 1);
+		var started = new CountDownLatch(1);
+		var release = new CountDownLatch(1);
+		hooks.put("a", () -> {
+			started.countDown();
+			await(release);
+			throw new IllegalArgumentException();
+		});
+		var failing = threads.submit(() -> ReactiveObjectNode.of(new Key("a")));
+		await(started);
+		/*
+		 * Placeholder is not counted or iterated.
+		 */
+		assertEquals(0, cache.nodes().size());
+		assertFalse(cache.nodes().iterator().hasNext());
+		var waiting = threads.submit(() -> ReactiveObjectNode.of(new Key("a")));
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		while (waits("test-sharded-retry") == 0 && System.nanoTime() < deadline)
+			Thread.sleep(1);
+		release.countDown();
+		assertInstanceOf(IllegalArgumentException.class, failure(failing));
+		/*
+		 * Waiting thread retries instantiation after the first attempt fails.
+		 */
+		assertEquals(new Key("a"), waiting.get(10, TimeUnit.SECONDS).key());
+		assertEquals(1, cache.nodes().size());
+	}
+}
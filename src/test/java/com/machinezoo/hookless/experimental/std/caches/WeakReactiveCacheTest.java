@@ -0,0 +1,97 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.caches;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.lang.ref.*;
+import org.junit.jupiter.api.*;
+import com.machinezoo.hookless.experimental.*;
+import com.machinezoo.hookless.experimental.std.*;
+import com.machinezoo.hookless.experimental.std.bells.*;
+
+public class WeakReactiveCacheTest {
+	private static final WeakReactiveCache cache = new WeakReactiveCache();
+	private record Bell(String name) implements ReactiveBell {
+		@Override
+		public ReactiveObjectConfig reactiveConfig() {
+			return new ReactiveBellConfig(this) {
+				@Override
+				public ReactiveCache cache() {
+					return cache;
+				}
+			};
+		}
+	}
+	private record Probe(String name) implements ReactiveComputation {
+		@Override
+		public ReactiveObjectConfig reactiveConfig() {
+			throw new UnsupportedOperationException();
+		}
+	}
+	private static class Sink extends StandardReactiveComputationNode {
+		final Probe key = new Probe("sink");
+		final Bell bell;
+		Sink(Bell bell) {
+			this.bell = bell;
+		}
+		@Override
+		public Probe key() {
+			return key;
+		}
+		@Override
+		protected void compute() {
+			bell.listen();
+		}
+		@Override
+		protected void invalidated() {
+		}
+		void update() {
+			refresh();
+		}
+		boolean current() {
+			return valid();
+		}
+		void drop() {
+			release();
+		}
+	}
+	/*
+	 * Garbage collector does not guarantee anything, so we keep asking for a while.
+	 */
+	private static boolean collected(WeakReference<?> reference) throws InterruptedException {
+		for (int i = 0; i < 50 && reference.get() != null; ++i) {
+			System.gc();
+			Thread.sleep(10);
+		}
+		return reference.get() == null;
+	}
+	@Test
+	public void unreferenced() throws InterruptedException {
+		var reference = new WeakReference<>(ReactiveObjectNode.of(new Bell("weak-unreferenced")));
+		assertTrue(collected(reference));
+	}
+	@Test
+	public void subscribed() throws InterruptedException {
+		var bell = new Bell("weak-subscribed");
+		var sink = new Sink(bell);
+		sink.update();
+		var reference = new WeakReference<>(ReactiveObjectNode.of(bell));
+		assertFalse(collected(reference));
+		/*
+		 * Ring reaches the same node instance the sink is subscribed to.
+		 */
+		assertSame(reference.get(), ReactiveObjectNode.of(bell));
+		bell.ring();
+		assertFalse(sink.current());
+		/*
+		 * Subscription held through refresh keeps the node alive too.
+		 */
+		sink.update();
+		assertTrue(sink.current());
+		assertFalse(collected(reference));
+		/*
+		 * Released sink no longer keeps the node alive.
+		 */
+		sink.drop();
+		assertTrue(collected(reference));
+	}
+}
@@ -0,0 +1,72 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.memos;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.concurrent.atomic.*;
+import org.junit.jupiter.api.*;
+import com.machinezoo.hookless.experimental.std.bells.*;
+
+public class ReactiveMemoTest {
+	private record Bell(String name) implements ReactiveBell {
+	}
+	/*
+	 * Intermediary that reduces its input, so that some input changes do not change its output.
+	 */
+	private record Parity(Bell bell, AtomicInteger input, AtomicInteger runs) implements ReactiveMemo<Integer> {
+		Parity(String name) {
+			this(new Bell(name), new AtomicInteger(), new AtomicInteger());
+		}
+		@Override
+		public Integer compute() {
+			runs.incrementAndGet();
+			bell.listen();
+			return input.get() % 2;
+		}
+		void change(int delta) {
+			input.addAndGet(delta);
+			bell.ring();
+		}
+	}
+	private record Downstream(Parity parity, AtomicInteger runs) implements ReactiveMemo<String> {
+		Downstream(Parity parity) {
+			this(parity, new AtomicInteger());
+		}
+		@Override
+		public String compute() {
+			runs.incrementAndGet();
+			return parity.get() == 0 ? "even" : "odd";
+		}
+	}
+	@Test
+	public void cached() {
+		var parity = new Parity("memo-cached");
+		var downstream = new Downstream(parity);
+		assertEquals("even", downstream.get());
+		assertEquals("even", downstream.get());
+		assertEquals(1, parity.runs().get());
+		assertEquals(1, downstream.runs().get());
+	}
+	@Test
+	public void cutoff() {
+		var parity = new Parity("memo-cutoff");
+		var downstream = new Downstream(parity);
+		assertEquals("even", downstream.get());
+		parity.change(2);
+		assertEquals("even", downstream.get());
+		/*
+		 * Intermediary reran, but its output is the same, so downstream memo is verified without running.
+		 */
+		assertEquals(2, parity.runs().get());
+		assertEquals(1, downstream.runs().get());
+	}
+	@Test
+	public void change() {
+		var parity = new Parity("memo-change");
+		var downstream = new Downstream(parity);
+		assertEquals("even", downstream.get());
+		parity.change(1);
+		assertEquals("odd", downstream.get());
+		assertEquals(2, parity.runs().get());
+		assertEquals(2, downstream.runs().get());
+	}
+}
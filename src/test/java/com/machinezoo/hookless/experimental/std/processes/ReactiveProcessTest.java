@@ -0,0 +1,75 @@
+// Part of Hookless: https://hookless.machinezoo.com
+package com.machinezoo.hookless.experimental.std.processes;
+
+import static org.junit.jupiter.api.Assertions.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.*;
+import org.junit.jupiter.api.*;
+import com.machinezoo.hookless.experimental.*;
+import com.machinezoo.hookless.experimental.std.bells.*;
+
+public class ReactiveProcessTest {
+	private record Bell(String name) implements ReactiveBell {
+	}
+	/*
+	 * Process runs synchronously, so that the test does not have to wait for it.
+	 */
+	private record Process(Bell bell, AtomicInteger runs) implements ReactiveProcess {
+		Process(String name) {
+			this(new Bell(name), new AtomicInteger());
+		}
+		@Override
+		public ReactiveProcessConfig reactiveConfig() {
+			return new ReactiveProcessConfig(this) {
+				@Override
+				public Executor executor() {
+					return Runnable::run;
+				}
+			};
+		}
+		@Override
+		public void run() {
+			runs.incrementAndGet();
+			bell.listen();
+		}
+	}
+	private static boolean subscribed(Bell bell) {
+		return ((ReactiveDataNode)ReactiveObjectNode.of(bell)).subscribed();
+	}
+	@Test
+	public void rerun() {
+		var process = new Process("process-rerun");
+		process.start();
+		assertEquals(1, process.runs().get());
+		process.start();
+		assertEquals(1, process.runs().get());
+		process.bell().ring();
+		assertEquals(2, process.runs().get());
+		process.stop();
+	}
+	@Test
+	public void stop() {
+		var process = new Process("process-stop");
+		process.start();
+		assertTrue(subscribed(process.bell()));
+		process.stop();
+		assertFalse(subscribed(process.bell()));
+		process.bell().ring();
+		assertEquals(1, process.runs().get());
+	}
+	@Test
+	public void restart() {
+		var process = new Process("process-restart");
+		process.start();
+		process.stop();
+		/*
+		 * Dependencies did not change, but restarted process runs from scratch.
+		 */
+		process.start();
+		assertEquals(2, process.runs().get());
+		assertTrue(subscribed(process.bell()));
+		process.bell().ring();
+		assertEquals(3, process.runs().get());
+		process.stop();
+	}
+}